@@ -68,7 +68,7 @@ JVM_OPTS="$JVM_OPTS -Duser.timezone=Asia/Shanghai"
 # Spring Boot参数
 SPRING_OPTS="--spring.profiles.active=prod"
 if [ -n "$DB_HOST" ]; then
-    SPRING_OPTS="$SPRING_OPTS --spring.datasource.url=jdbc:mysql://${DB_HOST}:${DB_PORT:-3306}/${DB_NAME:-quota_db}?useUnicode=true&characterEncoding=utf8&useSSL=true&serverTimezone=Asia/Shanghai"
+    SPRING_OPTS="$SPRING_OPTS --spring.datasource.url=jdbc:mysql://${DB_HOST}:${DB_PORT:-3306}/${DB_NAME:-quota_db}?useUnicode=true&characterEncoding=utf8&useSSL=true&serverTimezone=Asia/Shanghai&rewriteBatchedStatements=true"
 fi
 if [ -n "$DB_USERNAME" ]; then
     SPRING_OPTS="$SPRING_OPTS --spring.datasource.username=${DB_USERNAME}"
@@ -0,0 +1,81 @@
+package com.enterprise.quota.benchmark;
+
+import com.enterprise.quota.util.KeywordExtractor;
+import com.enterprise.quota.util.PreparedText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 关键词提取、关键词相似度、文本匹配得分基准
+ * cacheSize=16 时几乎全部未命中缓存，反映实际提取的开销；默认容量时反映缓存命中的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KeywordExtractorBenchmark {
+
+    @Param({"10000"})
+    private int textCount;
+
+    @Param({"16", "50000"})
+    private int cacheSize;
+
+    private List<String> texts;
+
+    private List<List<String>> keywords;
+
+    private List<PreparedText> preparedTexts;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        KeywordExtractor.configureCaches(cacheSize);
+        texts = SyntheticCorpus.texts(textCount);
+        keywords = new ArrayList<>(textCount);
+        preparedTexts = new ArrayList<>(textCount);
+        for (String text : texts) {
+            keywords.add(KeywordExtractor.extractKeywords(text));
+            preparedTexts.add(PreparedText.of(text));
+        }
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = index + 1 == textCount ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public List<String> extractKeywords() {
+        return KeywordExtractor.extractKeywords(texts.get(next()));
+    }
+
+    @Benchmark
+    public double calculateSimilarity() {
+        int index = next();
+        return KeywordExtractor.calculateSimilarity(keywords.get(index), keywords.get(textCount - 1 - index));
+    }
+
+    @Benchmark
+    public double calculateTextMatchScore() {
+        int index = next();
+        return KeywordExtractor.calculateTextMatchScore(texts.get(index), texts.get(textCount - 1 - index));
+    }
+
+    @Benchmark
+    public double calculateTextMatchScorePrepared() {
+        int index = next();
+        return KeywordExtractor.calculateTextMatchScore(preparedTexts.get(index), preparedTexts.get(textCount - 1 - index));
+    }
+}
@@ -0,0 +1,67 @@
+package com.enterprise.quota.benchmark;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.util.QuotaSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 定额全文检索基准：按关键词检索一页（50条）结果的平均耗时，关键词依次轮换
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuotaSearchIndexBenchmark {
+
+    private static final String[] KEYWORDS = {
+        "摄像机", "硬盘录像机", "交换机 安装", "六类网线", "光缆敷设", "门禁控制器", "机", "DN25", "系统调试"
+    };
+
+    @Param({"10000", "100000"})
+    private int quotaCount;
+
+    private Path dir;
+
+    private QuotaSearchIndex index;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("quota-search-bench");
+        index = new QuotaSearchIndex(dir);
+        for (EnterpriseQuota quota : SyntheticCorpus.quotas(quotaCount)) {
+            index.add(quota);
+        }
+        index.commit();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public QuotaSearchIndex.Hits search() throws IOException {
+        String keyword = KEYWORDS[cursor];
+        cursor = cursor + 1 == KEYWORDS.length ? 0 : cursor + 1;
+        return index.search(QuotaSearchIndex.NO_VERSION, keyword, 0, 50);
+    }
+}
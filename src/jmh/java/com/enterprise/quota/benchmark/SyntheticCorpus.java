@@ -0,0 +1,123 @@
+package com.enterprise.quota.benchmark;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.entity.ProjectItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成语料
+ * 用固定随机种子生成中文定额和项目清单，名称、特征组合自常见的弱电/安装工程用语，
+ * 同样的参数每次生成的数据相同，便于不同版本之间对比结果
+ */
+public final class SyntheticCorpus {
+
+    private static final long SEED = 20240601L;
+
+    private static final String[] DEVICES = {
+        "网络硬盘录像机", "硬盘录像机", "NVR", "摄像机", "监控摄像头", "半球摄像机", "枪式摄像机",
+        "交换机", "核心交换机", "接入交换机", "光纤收发器", "配线架", "机柜", "服务器", "存储设备",
+        "显示器", "拼接屏", "门禁控制器", "读卡器", "电锁", "出门按钮", "对讲主机", "广播功放",
+        "音箱", "报警主机", "红外探测器", "烟感探测器", "电源适配器", "UPS电源", "防雷器"
+    };
+
+    private static final String[] WORKS = {
+        "安装", "安装调试", "敷设", "布放", "测试", "系统调试", "拆除", "更换"
+    };
+
+    private static final String[] MATERIALS = {
+        "六类网线", "超五类网线", "单模光缆", "多模光缆", "电源线", "RVV护套线", "镀锌钢管",
+        "PVC线管", "金属线槽", "桥架", "水晶头", "光纤跳线"
+    };
+
+    private static final String[] SPECS = {
+        "16路", "32路", "64路", "8T", "4T", "24口", "48口", "400万像素", "200万像素", "POE供电",
+        "室外防水", "壁装", "吊装", "落地安装", "1U", "2U", "42U", "DN20", "DN25", "4芯", "12芯",
+        "（含支架）", "(含配件)", "【含辅材】", "《按图施工》"
+    };
+
+    private static final String[] UNITS = {"台", "套", "个", "米", "项", "只", "块"};
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * 生成定额
+     * @param count 定额数量
+     */
+    public static List<EnterpriseQuota> quotas(int count) {
+        Random random = new Random(SEED);
+        List<EnterpriseQuota> quotas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EnterpriseQuota quota = new EnterpriseQuota();
+            quota.setId((long) (i + 1));
+            quota.setQuotaCode(String.format("Q%06d", i + 1));
+            quota.setQuotaName(name(random));
+            quota.setFeatureValue(feature(random));
+            quota.setUnit(pick(random, UNITS));
+            quota.setUnitPrice(BigDecimal.valueOf(random.nextInt(100000), 2));
+            quotas.add(quota);
+        }
+        return quotas;
+    }
+
+    /**
+     * 生成项目清单（与定额使用相同的用语，但组合不同）
+     * @param count 清单数量
+     */
+    public static List<ProjectItem> items(int count) {
+        Random random = new Random(SEED + 1);
+        List<ProjectItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ProjectItem item = new ProjectItem();
+            item.setId((long) (i + 1));
+            item.setItemCode(String.format("I%06d", i + 1));
+            item.setItemName(name(random));
+            item.setFeatureValue(feature(random));
+            item.setUnit(pick(random, UNITS));
+            item.setQuantity(BigDecimal.valueOf(1 + random.nextInt(200)));
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * 生成文本（名称 + 特征），用于关键词提取、文本相似度基准
+     * @param count 文本数量
+     */
+    public static List<String> texts(int count) {
+        Random random = new Random(SEED + 2);
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            texts.add(name(random) + " " + feature(random));
+        }
+        return texts;
+    }
+
+    private static String name(Random random) {
+        if (random.nextInt(4) == 0) {
+            return pick(random, MATERIALS) + pick(random, WORKS);
+        }
+        return pick(random, DEVICES) + pick(random, WORKS);
+    }
+
+    private static String feature(Random random) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("1.名称:").append(pick(random, DEVICES));
+        int specCount = 1 + random.nextInt(3);
+        for (int i = 0; i < specCount; i++) {
+            sb.append(i == 0 ? " 2.规格:" : "，").append(pick(random, SPECS));
+        }
+        if (random.nextBoolean()) {
+            sb.append(" 3.材质:").append(pick(random, MATERIALS));
+        }
+        return sb.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,71 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.benchmark.SyntheticCorpus;
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.entity.ProjectItem;
+import com.enterprise.quota.util.CompiledQuotaIndex;
+import com.enterprise.quota.util.QuotaKeywordIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整的单条清单匹配基准（findBestMatchOptimized），每次调用依次匹配一条清单，结果以每秒匹配的清单数计
+ * 定额预编译、清单文本预处理在 setup 中完成，与批量匹配时的处理方式一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QuotaMatcherBenchmark {
+
+    private static final int ITEM_COUNT = 200;
+
+    @Param({"1000", "10000", "100000"})
+    private int quotaCount;
+
+    @Param({"true", "false"})
+    private boolean invertedIndex;
+
+    private final QuotaMatchingService matchingService = new QuotaMatchingService();
+
+    private List<EnterpriseQuota> quotas;
+
+    private CompiledQuotaIndex quotaIndex;
+
+    private QuotaKeywordIndex keywordIndex;
+
+    private List<ProjectItem> items;
+
+    private List<QuotaMatchingService.ItemText> itemTexts;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        quotas = SyntheticCorpus.quotas(quotaCount);
+        quotaIndex = CompiledQuotaIndex.compile(null, quotas);
+        keywordIndex = invertedIndex ? quotaIndex.getKeywordIndex() : null;
+        items = SyntheticCorpus.items(ITEM_COUNT);
+        itemTexts = new ArrayList<>(ITEM_COUNT);
+        for (ProjectItem item : items) {
+            itemTexts.add(new QuotaMatchingService.ItemText(item));
+        }
+    }
+
+    @Benchmark
+    public EnterpriseQuota findBestMatchOptimized() {
+        int index = cursor;
+        cursor = index + 1 == ITEM_COUNT ? 0 : index + 1;
+        return matchingService.findBestMatchOptimized(
+                items.get(index), itemTexts.get(index), quotas, quotaIndex, keywordIndex);
+    }
+}
@@ -0,0 +1,55 @@
+package com.enterprise.quota.config;
+
+import com.enterprise.quota.util.KeywordExtractor;
+import com.enterprise.quota.util.LruCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.function.Supplier;
+
+/**
+ * 关键词提取缓存配置
+ * 设置缓存容量，并将命中/未命中次数、命中率、条目数注册为指标（/actuator/metrics/quota.keyword.cache.*）
+ */
+@Component
+public class KeywordCacheConfig implements MeterBinder {
+    
+    @Value("${quota.keyword-cache.max-size:50000}")
+    private int maxSize;
+    
+    @PostConstruct
+    public void init() {
+        KeywordExtractor.configureCaches(maxSize);
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCache(registry, "keywords", KeywordExtractor::getKeywordCache);
+        bindCache(registry, "prepared-text", KeywordExtractor::getPreparedTextCache);
+    }
+    
+    // 缓存实例在重新配置容量时会被替换，指标每次读取当前实例
+    private void bindCache(MeterRegistry registry, String name, Supplier<? extends LruCache<?, ?>> cache) {
+        FunctionCounter.builder("quota.keyword.cache.hits", cache, c -> c.get().getHitCount())
+                .tag("cache", name)
+                .description("关键词缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("quota.keyword.cache.misses", cache, c -> c.get().getMissCount())
+                .tag("cache", name)
+                .description("关键词缓存未命中次数")
+                .register(registry);
+        Gauge.builder("quota.keyword.cache.hit.rate", cache, c -> c.get().getHitRate())
+                .tag("cache", name)
+                .description("关键词缓存命中率")
+                .register(registry);
+        Gauge.builder("quota.keyword.cache.size", cache, c -> c.get().size())
+                .tag("cache", name)
+                .description("关键词缓存条目数")
+                .register(registry);
+    }
+}
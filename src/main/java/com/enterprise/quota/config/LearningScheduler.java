@@ -1,13 +1,14 @@
 package com.enterprise.quota.config;
 
 import com.enterprise.quota.service.MatchingLearningService;
+import com.enterprise.quota.service.ScoringModelService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
  * 学习定时任务
- * 定期分析学习数据，更新权重和规则
+ * 定期分析学习数据，更新权重和规则，完成后发布新的打分模型
  */
 @Component
 public class LearningScheduler {
@@ -15,6 +16,9 @@ public class LearningScheduler {
     @Autowired
     private MatchingLearningService learningService;
     
+    @Autowired
+    private ScoringModelService scoringModelService;
+    
     /**
      * 每天凌晨2点执行学习分析
      */
@@ -29,6 +33,9 @@ public class LearningScheduler {
             // 发现同义词
             learningService.discoverSynonyms();
             
+            // 学习结果应用到匹配打分
+            scoringModelService.reload();
+            
             System.out.println("学习分析任务完成");
         } catch (Exception e) {
             System.err.println("学习分析任务失败: " + e.getMessage());
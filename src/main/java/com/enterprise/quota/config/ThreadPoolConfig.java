@@ -7,6 +7,8 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -29,9 +31,13 @@ public class ThreadPoolConfig {
     @Value("${quota.matching.thread-pool.keep-alive-seconds:60}")
     private int keepAliveSeconds;
     
+    // 并行匹配线程数，0 表示使用可用CPU核数
+    @Value("${quota.matching.parallelism:0}")
+    private int matchingParallelism;
+    
     /**
      * 匹配任务线程池
-     * 用于并行处理匹配任务
+     * 用于运行后台匹配作业
      */
     @Bean(name = "matchingTaskExecutor")
     public Executor matchingTaskExecutor() {
@@ -48,9 +54,25 @@ public class ThreadPoolConfig {
         return executor;
     }
     
+    /**
+     * 并行匹配线程池（工作窃取）
+     * 匹配是纯CPU计算，线程数与CPU核数一致；清单按估算开销递归拆分，空闲线程窃取其他线程的子任务
+     */
+    @Bean(name = "matchingForkJoinPool", destroyMethod = "shutdown")
+    public ForkJoinPool matchingForkJoinPool() {
+        int parallelism = matchingParallelism > 0 ? matchingParallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("quota-match-fj-" + thread.getPoolIndex());
+            return thread;
+        };
+        System.out.println("并行匹配线程池并行度: " + parallelism);
+        return new ForkJoinPool(parallelism, factory, null, false);
+    }
+    
     /**
      * 异步任务线程池
-     * 用于异步处理学习数据收集等非关键任务
+     * 用于异步处理非关键任务
      */
     @Bean(name = "asyncTaskExecutor")
     public Executor asyncTaskExecutor() {
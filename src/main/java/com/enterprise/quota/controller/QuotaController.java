@@ -8,11 +8,23 @@ import com.enterprise.quota.repository.EnterpriseQuotaRepository;
 import com.enterprise.quota.repository.ProjectItemQuotaRepository;
 import com.enterprise.quota.repository.ProjectItemRepository;
 import com.enterprise.quota.repository.QuotaVersionRepository;
+import com.enterprise.quota.service.BulkImportService;
 import com.enterprise.quota.service.ExcelExportService;
 import com.enterprise.quota.service.ExcelImportService;
 import com.enterprise.quota.service.QuotaMatchingService;
 import com.enterprise.quota.service.MatchingLearningService;
+import com.enterprise.quota.service.MatchJob;
+import com.enterprise.quota.service.MatchJobService;
+import com.enterprise.quota.service.QuotaIndexService;
+import com.enterprise.quota.service.QuotaSearchService;
+import com.enterprise.quota.service.QuotaSuggestion;
+import com.enterprise.quota.service.ScoringModelService;
+import com.enterprise.quota.util.LikePatterns;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -20,12 +32,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpSession;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/quota")
@@ -55,17 +73,42 @@ public class QuotaController {
     @Autowired
     private MatchingLearningService learningService;
     
+    @Autowired
+    private ScoringModelService scoringModelService;
+    
+    @Autowired
+    private QuotaIndexService quotaIndexService;
+    
+    @Autowired
+    private MatchJobService matchJobService;
+    
+    @Autowired
+    private BulkImportService bulkImportService;
+    
+    @Autowired
+    private QuotaSearchService quotaSearchService;
+    
+    // 清单分页查询允许的排序字段
+    private static final Set<String> ITEM_SORT_FIELDS = new HashSet<>(Arrays.asList(
+            "id", "itemCode", "itemName", "unit", "quantity", "matchedUnitPrice", "totalPrice", "matchStatus"));
+    
     @PostMapping("/import-quotas")
     public ResponseEntity<Map<String, Object>> importQuotas(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "versionId", required = false) Long versionId) {
         Map<String, Object> result = new HashMap<>();
         try {
-            List<EnterpriseQuota> quotas = importService.importEnterpriseQuotas(file, versionId);
-            quotaRepository.saveAll(quotas);
+            // 流式解析，每块单独批量插入，不在内存中保留全部定额
+            long startTime = System.currentTimeMillis();
+            int count = importService.importEnterpriseQuotas(file, versionId, bulkImportService::insertQuotas);
+            double rowsPerSecond = rowsPerSecond(count, startTime);
+            System.out.println("企业定额导入完成: " + count + " 条, " + rowsPerSecond + " 行/秒");
+            // 导入后预编译该版本的定额索引，后续匹配直接加载
+            quotaIndexService.rebuild(versionId);
             result.put("success", true);
-            result.put("message", "导入成功，共导入 " + quotas.size() + " 条企业定额数据");
-            result.put("count", quotas.size());
+            result.put("message", "导入成功，共导入 " + count + " 条企业定额数据");
+            result.put("count", count);
+            result.put("rowsPerSecond", rowsPerSecond);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             result.put("success", false);
@@ -85,15 +128,20 @@ public class QuotaController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result);
             }
             
-            List<ProjectItem> items = importService.importProjectItems(file);
-            // 为导入的项目清单设置用户ID
-            for (ProjectItem item : items) {
-                item.setUserId(userId);
-            }
-            itemRepository.saveAll(items);
+            long startTime = System.currentTimeMillis();
+            int count = importService.importProjectItems(file, items -> {
+                // 为导入的项目清单设置用户ID
+                for (ProjectItem item : items) {
+                    item.setUserId(userId);
+                }
+                bulkImportService.insertItems(items);
+            });
+            double rowsPerSecond = rowsPerSecond(count, startTime);
+            System.out.println("项目清单导入完成: " + count + " 条, " + rowsPerSecond + " 行/秒");
             result.put("success", true);
-            result.put("message", "导入成功，共导入 " + items.size() + " 条项目清单数据");
-            result.put("count", items.size());
+            result.put("message", "导入成功，共导入 " + count + " 条项目清单数据");
+            result.put("count", count);
+            result.put("rowsPerSecond", rowsPerSecond);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             result.put("success", false);
@@ -102,9 +150,19 @@ public class QuotaController {
         }
     }
     
+    /**
+     * 导入速度（行/秒，保留一位小数）
+     */
+    private static double rowsPerSecond(int count, long startTime) {
+        long elapsedMillis = Math.max(1, System.currentTimeMillis() - startTime);
+        return Math.round(count * 10000.0 / elapsedMillis) / 10.0;
+    }
+    
     @PostMapping("/match")
     public ResponseEntity<Map<String, Object>> matchQuotas(
-            @RequestParam(value = "versionId", required = false) Long versionId, HttpSession session) {
+            @RequestParam(value = "versionId", required = false) Long versionId,
+            @RequestParam(value = "force", defaultValue = "false") boolean force,
+            HttpSession session) {
         Map<String, Object> result = new HashMap<>();
         try {
             Long userId = (Long) session.getAttribute("userId");
@@ -114,7 +172,10 @@ public class QuotaController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result);
             }
             
-            int matchedCount = matchingService.batchMatchQuotasForUser(userId, versionId);
+            // 流水线模式逐页读取、匹配并提交；关闭时使用原有的单事务匹配
+            int matchedCount = matchingService.isPipelineEnabled()
+                    ? matchingService.batchMatchQuotasForUserPipelined(userId, versionId, force)
+                    : matchingService.batchMatchQuotasForUser(userId, versionId, force);
             result.put("success", true);
             result.put("message", "匹配完成，共匹配 " + matchedCount + " 条项目清单");
             result.put("matchedCount", matchedCount);
@@ -126,6 +187,113 @@ public class QuotaController {
         }
     }
     
+    /**
+     * 提交异步匹配任务，立即返回任务ID
+     */
+    @PostMapping("/match-jobs")
+    public ResponseEntity<Map<String, Object>> submitMatchJob(
+            @RequestParam(value = "versionId", required = false) Long versionId,
+            @RequestParam(value = "force", defaultValue = "false") boolean force,
+            HttpSession session) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            Long userId = (Long) session.getAttribute("userId");
+            if (userId == null) {
+                result.put("success", false);
+                result.put("message", "请先登录");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result);
+            }
+            
+            MatchJob job = matchJobService.submit(userId, versionId, force);
+            result.put("success", true);
+            result.put("message", "匹配任务已提交");
+            result.put("jobId", job.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "提交匹配任务失败：" + e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        }
+    }
+    
+    /**
+     * 查询匹配任务进度
+     */
+    @GetMapping("/match-jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getMatchJob(@PathVariable String jobId, HttpSession session) {
+        Map<String, Object> result = new HashMap<>();
+        // 只查询一次：过期任务随时可能被清理，再次查询可能返回null
+        MatchJob job = matchJobService.getJob(jobId);
+        ResponseEntity<Map<String, Object>> denied = checkMatchJobAccess(job, session, result);
+        if (denied != null) {
+            return denied;
+        }
+        result.put("success", true);
+        result.putAll(job.toProgress());
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * 订阅匹配任务进度（Server-Sent Events，每秒推送一次，任务结束后关闭）
+     */
+    @GetMapping(value = "/match-jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMatchJob(@PathVariable String jobId, HttpSession session) {
+        Long userId = (Long) session.getAttribute("userId");
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        MatchJob job = matchJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (!job.getUserId().equals(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(matchJobService.subscribe(job));
+    }
+    
+    /**
+     * 取消匹配任务（当前批次完成后停止，已提交的结果保留）
+     */
+    @DeleteMapping("/match-jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelMatchJob(@PathVariable String jobId, HttpSession session) {
+        Map<String, Object> result = new HashMap<>();
+        MatchJob job = matchJobService.getJob(jobId);
+        ResponseEntity<Map<String, Object>> denied = checkMatchJobAccess(job, session, result);
+        if (denied != null) {
+            return denied;
+        }
+        if (matchJobService.cancel(jobId)) {
+            result.put("success", true);
+            result.put("message", "已请求取消，当前批次完成后停止");
+            return ResponseEntity.ok(result);
+        }
+        result.put("success", false);
+        result.put("message", "匹配任务已结束");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+    }
+    
+    private ResponseEntity<Map<String, Object>> checkMatchJobAccess(MatchJob job, HttpSession session,
+                                                                    Map<String, Object> result) {
+        Long userId = (Long) session.getAttribute("userId");
+        if (userId == null) {
+            result.put("success", false);
+            result.put("message", "请先登录");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result);
+        }
+        if (job == null) {
+            result.put("success", false);
+            result.put("message", "匹配任务不存在");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
+        }
+        if (!job.getUserId().equals(userId)) {
+            result.put("success", false);
+            result.put("message", "无权限查看此匹配任务");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(result);
+        }
+        return null;
+    }
+    
     @GetMapping("/items")
     public ResponseEntity<List<ProjectItem>> getAllItems(HttpSession session) {
         Long userId = (Long) session.getAttribute("userId");
@@ -133,11 +301,67 @@ public class QuotaController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        // 只返回当前用户的项目清单
+        // 只返回当前用户的项目清单，多定额匹配的定额明细批量预加载
         List<ProjectItem> items = itemRepository.findByUserId(userId);
+        matchingService.fillItemQuotas(items);
         return ResponseEntity.ok(items);
     }
     
+    /**
+     * 分页查询当前用户的项目清单
+     * @param page 页码（从0开始）
+     * @param size 每页条数（1-500）
+     * @param sort 排序字段（id、itemCode、itemName、unit、quantity、matchedUnitPrice、totalPrice、matchStatus）
+     * @param direction 排序方向（asc/desc）
+     * @param matchStatus 匹配状态筛选（可选）
+     * @param keyword 关键词筛选（编码、名称、特征值，可选）
+     */
+    @GetMapping("/items/page")
+    public ResponseEntity<Map<String, Object>> getItemsPage(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "100") int size,
+            @RequestParam(value = "sort", defaultValue = "id") String sort,
+            @RequestParam(value = "direction", defaultValue = "asc") String direction,
+            @RequestParam(value = "matchStatus", required = false) Integer matchStatus,
+            @RequestParam(value = "keyword", required = false) String keyword,
+            HttpSession session) {
+        Map<String, Object> result = new HashMap<>();
+        Long userId = (Long) session.getAttribute("userId");
+        if (userId == null) {
+            result.put("success", false);
+            result.put("message", "请先登录");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result);
+        }
+        if (!ITEM_SORT_FIELDS.contains(sort)) {
+            result.put("success", false);
+            result.put("message", "不支持的排序字段：" + sort);
+            return ResponseEntity.badRequest().body(result);
+        }
+        
+        Sort.Direction sortDirection = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort order = Sort.by(sortDirection, sort);
+        if (!"id".equals(sort)) {
+            // 排序字段相同时按ID排列，翻页结果稳定
+            order = order.and(Sort.by(Sort.Direction.ASC, "id"));
+        }
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.min(500, Math.max(1, size)), order);
+        // 关键词按字面匹配，% 和 _ 不作为通配符
+        String filterKeyword = keyword != null ? LikePatterns.escape(keyword.trim()) : "";
+        
+        Page<ProjectItem> items = itemRepository.searchByUser(userId, matchStatus, filterKeyword, pageable);
+        matchingService.fillItemQuotas(items.getContent());
+        
+        result.put("success", true);
+        result.put("data", items.getContent());
+        result.put("page", items.getNumber());
+        result.put("size", items.getSize());
+        result.put("totalElements", items.getTotalElements());
+        result.put("totalPages", items.getTotalPages());
+        // 金额合计为该用户全部清单的合计（不受筛选条件影响）
+        result.put("totalAmount", itemRepository.sumTotalPriceByUserId(userId));
+        return ResponseEntity.ok(result);
+    }
+    
     /**
      * 新增项目清单（基础信息）
      */
@@ -314,20 +538,32 @@ public class QuotaController {
     @GetMapping("/quotas")
     public ResponseEntity<List<EnterpriseQuota>> getAllQuotas(
             @RequestParam(value = "versionId", required = false) Long versionId) {
-        if (versionId != null) {
-            return ResponseEntity.ok(quotaRepository.findByVersionId(versionId));
-        }
-        return ResponseEntity.ok(quotaRepository.findAll());
+        return ResponseEntity.ok(quotaIndexService.loadQuotas(versionId));
     }
     
+    /**
+     * 按关键词搜索企业定额（名称、特征值），按相关度排序分页返回
+     * @param versionId 定额版本ID（可选，为空时搜索全部定额）
+     * @param page 页码（从0开始）
+     * @param size 每页条数（1-200）
+     */
     @GetMapping("/quotas/search")
-    public ResponseEntity<List<EnterpriseQuota>> searchQuotas(
+    public ResponseEntity<Map<String, Object>> searchQuotas(
             @RequestParam String keyword,
-            @RequestParam(value = "versionId", required = false) Long versionId) {
-        if (versionId != null) {
-            return ResponseEntity.ok(quotaRepository.findByVersionIdAndKeyword(versionId, keyword));
-        }
-        return ResponseEntity.ok(quotaRepository.findByKeyword(keyword));
+            @RequestParam(value = "versionId", required = false) Long versionId,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        Map<String, Object> result = new HashMap<>();
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.min(200, Math.max(1, size)));
+        Page<EnterpriseQuota> quotas = quotaSearchService.search(versionId, keyword.trim(), pageable);
+        
+        result.put("success", true);
+        result.put("data", quotas.getContent());
+        result.put("page", quotas.getNumber());
+        result.put("size", quotas.getSize());
+        result.put("totalElements", quotas.getTotalElements());
+        result.put("totalPages", quotas.getTotalPages());
+        return ResponseEntity.ok(result);
     }
     
     @PutMapping("/items/{itemId}/match")
@@ -363,6 +599,48 @@ public class QuotaController {
         }
     }
     
+    /**
+     * 获取清单项的候选定额建议（按匹配得分从高到低）
+     */
+    @GetMapping("/items/{itemId}/suggestions")
+    public ResponseEntity<Map<String, Object>> getQuotaSuggestions(
+            @PathVariable Long itemId,
+            @RequestParam(value = "versionId", required = false) Long versionId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            HttpSession session) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            Long userId = (Long) session.getAttribute("userId");
+            if (userId == null) {
+                result.put("success", false);
+                result.put("message", "请先登录");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result);
+            }
+            
+            ProjectItem item = itemRepository.findById(itemId)
+                    .orElseThrow(() -> new RuntimeException("项目清单不存在"));
+            
+            // 验证用户是否有权限查看此项目清单
+            if (!item.getUserId().equals(userId)) {
+                result.put("success", false);
+                result.put("message", "无权限查看此项目清单");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(result);
+            }
+            
+            // 候选数量限制在1-50之间
+            int size = Math.max(1, Math.min(limit, 50));
+            List<QuotaSuggestion> suggestions = matchingService.suggestQuotas(itemId, versionId, size);
+            result.put("success", true);
+            result.put("data", suggestions);
+            result.put("count", suggestions.size());
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "获取候选定额失败：" + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+        }
+    }
+    
     @PutMapping("/items/{itemId}/price")
     public ResponseEntity<Map<String, Object>> updateItemPrice(
             @PathVariable Long itemId, @RequestParam BigDecimal unitPrice, HttpSession session) {
@@ -396,17 +674,28 @@ public class QuotaController {
         }
     }
     
+    /**
+     * 导出当前用户的匹配结果（边生成边写入响应）
+     */
     @GetMapping("/export")
-    public ResponseEntity<byte[]> exportMatchedItems() {
-        try {
-            byte[] excelData = exportService.exportMatchedItems();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "匹配结果.xlsx");
-            return ResponseEntity.ok().headers(headers).body(excelData);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    public ResponseEntity<StreamingResponseBody> exportMatchedItems(HttpSession session) {
+        Long userId = (Long) session.getAttribute("userId");
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "匹配结果.xlsx");
+        StreamingResponseBody body = out -> {
+            try {
+                exportService.exportMatchedItems(userId, out);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("导出匹配结果失败: " + e.getMessage());
+                throw e;
+            }
+        };
+        return ResponseEntity.ok().headers(headers).body(body);
     }
     
     @DeleteMapping("/clear")
@@ -642,7 +931,7 @@ public class QuotaController {
      */
     @GetMapping("/quotas/{quotaId}")
     public ResponseEntity<EnterpriseQuota> getQuota(@PathVariable Long quotaId) {
-        return quotaRepository.findById(quotaId)
+        return quotaIndexService.findQuota(quotaId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -651,16 +940,19 @@ public class QuotaController {
      * 导出企业定额数据
      */
     @GetMapping("/quotas/export")
-    public ResponseEntity<byte[]> exportQuotas() {
-        try {
-            byte[] excelData = exportService.exportQuotas();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "企业定额数据.xlsx");
-            return ResponseEntity.ok().headers(headers).body(excelData);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public ResponseEntity<StreamingResponseBody> exportQuotas() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "企业定额数据.xlsx");
+        StreamingResponseBody body = out -> {
+            try {
+                exportService.exportQuotas(out);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("导出企业定额数据失败: " + e.getMessage());
+                throw e;
+            }
+        };
+        return ResponseEntity.ok().headers(headers).body(body);
     }
     
     // ==================== 版本管理模块接口 ====================
@@ -799,12 +1091,18 @@ public class QuotaController {
                 return ResponseEntity.badRequest().body(result);
             }
             
-            List<EnterpriseQuota> quotas = importService.importEnterpriseQuotas(file, versionId);
-            quotaRepository.saveAll(quotas);
+            // 流式解析，每块单独批量插入，不在内存中保留全部定额
+            long startTime = System.currentTimeMillis();
+            int count = importService.importEnterpriseQuotas(file, versionId, bulkImportService::insertQuotas);
+            double rowsPerSecond = rowsPerSecond(count, startTime);
+            System.out.println("企业定额导入完成: " + count + " 条, " + rowsPerSecond + " 行/秒");
+            // 导入后预编译该版本的定额索引，后续匹配直接加载
+            quotaIndexService.rebuild(versionId);
             
             result.put("success", true);
-            result.put("message", "导入成功，共导入 " + quotas.size() + " 条企业定额数据");
-            result.put("count", quotas.size());
+            result.put("message", "导入成功，共导入 " + count + " 条企业定额数据");
+            result.put("count", count);
+            result.put("rowsPerSecond", rowsPerSecond);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             result.put("success", false);
@@ -850,6 +1148,7 @@ public class QuotaController {
         try {
             learningService.analyzeAndUpdateWeights();
             learningService.discoverSynonyms();
+            scoringModelService.reload();
             result.put("success", true);
             result.put("message", "学习分析完成");
             return ResponseEntity.ok(result);
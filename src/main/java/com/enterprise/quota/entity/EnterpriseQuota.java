@@ -7,7 +7,11 @@ import java.math.BigDecimal;
  * 企业定额实体类
  */
 @Entity
-@Table(name = "enterprise_quota")
+@Table(name = "enterprise_quota", indexes = {
+    @Index(name = "idx_enterprise_quota_version_id", columnList = "version_id, id"),
+    @Index(name = "idx_enterprise_quota_quota_code", columnList = "quota_code")
+})
+@EntityListeners(EnterpriseQuotaListener.class)
 public class EnterpriseQuota {
     
     @Id
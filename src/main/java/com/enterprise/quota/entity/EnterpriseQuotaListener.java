@@ -0,0 +1,21 @@
+package com.enterprise.quota.entity;
+
+import com.enterprise.quota.service.QuotaChangeNotifier;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * 企业定额实体监听器
+ * 任何对定额的写入都会使该版本的预编译索引失效
+ */
+public class EnterpriseQuotaListener {
+    
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onQuotaChanged(EnterpriseQuota quota) {
+        QuotaChangeNotifier.notifyChanged(quota.getVersionId());
+    }
+}
@@ -22,7 +22,7 @@ public class KeywordWeight {
     private Double weight = 1.0; // 权重值，默认1.0
     
     @Column(name = "match_count")
-    private Integer matchCount = 0; // 匹配成功次数
+    private Double matchCount = 0.0; // 匹配成功次数（按学习权重累计）
     
     @Column(name = "total_count")
     private Integer totalCount = 0; // 出现总次数
@@ -43,7 +43,7 @@ public class KeywordWeight {
         updateTime = new Date();
         // 自动计算成功率
         if (totalCount > 0) {
-            successRate = (double) matchCount / totalCount;
+            successRate = matchCount / totalCount;
         }
     }
     
@@ -57,8 +57,8 @@ public class KeywordWeight {
     public Double getWeight() { return weight; }
     public void setWeight(Double weight) { this.weight = weight; }
     
-    public Integer getMatchCount() { return matchCount; }
-    public void setMatchCount(Integer matchCount) { this.matchCount = matchCount; }
+    public Double getMatchCount() { return matchCount; }
+    public void setMatchCount(Double matchCount) { this.matchCount = matchCount; }
     
     public Integer getTotalCount() { return totalCount; }
     public void setTotalCount(Integer totalCount) { this.totalCount = totalCount; }
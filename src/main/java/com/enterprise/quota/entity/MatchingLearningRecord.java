@@ -33,14 +33,16 @@ public class MatchingLearningRecord {
     @Column(name = "match_type")
     private Integer matchType; // 1=自动匹配，2=手动修改，3=多定额
     
+    // 旧版本以JSON格式保存的关键词列表；关键词现在保存在 learning_record_keyword 中，
+    // 旧记录在学习时迁移过去后清空这三列
     @Column(name = "item_keywords", columnDefinition = "TEXT")
-    private String itemKeywords; // JSON格式存储关键词列表
+    private String itemKeywords;
     
     @Column(name = "quota_keywords", columnDefinition = "TEXT")
-    private String quotaKeywords; // JSON格式存储关键词列表
+    private String quotaKeywords;
     
     @Column(name = "common_keywords", columnDefinition = "TEXT")
-    private String commonKeywords; // JSON格式存储共同关键词列表
+    private String commonKeywords;
     
     @Column(name = "learning_weight")
     private Double learningWeight = 1.0; // 学习权重，手动修改的权重更高
@@ -1,10 +1,18 @@
 package com.enterprise.quota.entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.util.List;
 
 @Entity
-@Table(name = "project_item")
+// 索引由 db/migration 下的迁移脚本创建，这里的声明与其保持一致
+@Table(name = "project_item", indexes = {
+    @Index(name = "idx_project_item_user_id", columnList = "user_id, id"),
+    @Index(name = "idx_project_item_user_status", columnList = "user_id, match_status, id"),
+    @Index(name = "idx_project_item_match_status", columnList = "match_status")
+})
 public class ProjectItem {
     
     @Id
@@ -52,6 +60,19 @@ public class ProjectItem {
     
     @Column(name = "remark", columnDefinition = "LONGTEXT")
     private String remark;
+    
+    // 自动匹配时清单输入（名称、特征、单位、数量）的指纹
+    @Column(name = "match_fingerprint")
+    private Long matchFingerprint;
+    
+    // 自动匹配时的匹配修订号（定额索引修订号与匹配规则版本），与当前一致且输入未变化时可跳过重新匹配
+    @Column(name = "match_revision")
+    private Long matchRevision;
+    
+    // 多定额匹配的定额明细（不持久化，列表接口批量预加载后随清单一起返回）
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ProjectItemQuota> quotas;
 
     public Long getUserId() { return userId; }
     public void setUserId(Long userId) { this.userId = userId; }
@@ -83,5 +104,11 @@ public class ProjectItem {
     public void setMatchStatus(Integer matchStatus) { this.matchStatus = matchStatus; }
     public String getRemark() { return remark; }
     public void setRemark(String remark) { this.remark = remark; }
+    public Long getMatchFingerprint() { return matchFingerprint; }
+    public void setMatchFingerprint(Long matchFingerprint) { this.matchFingerprint = matchFingerprint; }
+    public Long getMatchRevision() { return matchRevision; }
+    public void setMatchRevision(Long matchRevision) { this.matchRevision = matchRevision; }
+    public List<ProjectItemQuota> getQuotas() { return quotas; }
+    public void setQuotas(List<ProjectItemQuota> quotas) { this.quotas = quotas; }
 }
 
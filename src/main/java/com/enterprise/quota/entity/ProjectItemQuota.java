@@ -8,7 +8,8 @@ import java.math.BigDecimal;
  * 用于支持一条清单对应多个定额的功能
  */
 @Entity
-@Table(name = "project_item_quota")
+@Table(name = "project_item_quota", indexes =
+    @Index(name = "idx_project_item_quota_item_id", columnList = "project_item_id, sort_order"))
 public class ProjectItemQuota {
     
     @Id
@@ -1,6 +1,8 @@
 package com.enterprise.quota.repository;
 
 import com.enterprise.quota.entity.EnterpriseQuota;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,14 +17,16 @@ public interface EnterpriseQuotaRepository extends JpaRepository<EnterpriseQuota
     List<EnterpriseQuota> findByFeatureValueContaining(String featureValue);
     EnterpriseQuota findByQuotaCode(String quotaCode);
     
-    @Query("SELECT e FROM EnterpriseQuota e WHERE e.quotaName LIKE %:keyword% OR e.featureValue LIKE %:keyword%")
-    List<EnterpriseQuota> findByKeyword(@Param("keyword") String keyword);
-    
     // 版本相关查询
     List<EnterpriseQuota> findByVersionId(Long versionId);
     
-    @Query("SELECT e FROM EnterpriseQuota e WHERE e.versionId = :versionId AND (e.quotaName LIKE %:keyword% OR e.featureValue LIKE %:keyword%)")
-    List<EnterpriseQuota> findByVersionIdAndKeyword(@Param("versionId") Long versionId, @Param("keyword") String keyword);
+    // 按关键词分页查询定额（versionId为null时不限版本），全文检索索引不可用或未更新时使用
+    // 关键词需经 LikePatterns.escape 转义（转义符与 ProjectItemRepository.searchByUser 相同）
+    @Query("SELECT e FROM EnterpriseQuota e WHERE (:versionId IS NULL OR e.versionId = :versionId)"
+            + " AND (e.quotaName LIKE CONCAT('%', :keyword, '%') ESCAPE '\\\\'"
+            + " OR e.featureValue LIKE CONCAT('%', :keyword, '%') ESCAPE '\\\\')")
+    Page<EnterpriseQuota> searchByKeyword(@Param("versionId") Long versionId, @Param("keyword") String keyword,
+                                          Pageable pageable);
     
     @Query("SELECT e FROM EnterpriseQuota e WHERE e.versionId = :versionId AND e.quotaName LIKE %:quotaName%")
     List<EnterpriseQuota> findByVersionIdAndQuotaNameContaining(@Param("versionId") Long versionId, @Param("quotaName") String quotaName);
@@ -30,6 +34,17 @@ public interface EnterpriseQuotaRepository extends JpaRepository<EnterpriseQuota
     @Query("SELECT e FROM EnterpriseQuota e WHERE e.versionId = :versionId AND e.featureValue LIKE %:featureValue%")
     List<EnterpriseQuota> findByVersionIdAndFeatureValueContaining(@Param("versionId") Long versionId, @Param("featureValue") String featureValue);
     
+    // 按ID游标分页查询（流式导出逐页读取）
+    List<EnterpriseQuota> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // 按ID游标分页查询指定版本/未指定版本的定额（重建检索索引时逐页读取）
+    List<EnterpriseQuota> findByVersionIdAndIdGreaterThanOrderByIdAsc(Long versionId, Long id, Pageable pageable);
+    List<EnterpriseQuota> findByVersionIdIsNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // 各版本的定额数量：[versionId, count]
+    @Query("SELECT e.versionId, COUNT(e) FROM EnterpriseQuota e GROUP BY e.versionId")
+    List<Object[]> countGroupByVersionId();
+    
     // 删除指定版本的所有定额
     void deleteByVersionId(Long versionId);
 }
@@ -1,7 +1,11 @@
 package com.enterprise.quota.repository;
 
 import com.enterprise.quota.entity.MatchingLearningRecord;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,5 +16,21 @@ public interface MatchingLearningRecordRepository extends JpaRepository<Matching
     List<MatchingLearningRecord> findByMatchTypeOrderByCreateTimeDesc(Integer matchType);
     
     List<MatchingLearningRecord> findAllByOrderByCreateTimeDesc();
+    
+    // 按ID游标分页读取学习记录ID和创建时间（增量学习）：[id, createTime]
+    @Query("SELECT r.id, r.createTime FROM MatchingLearningRecord r WHERE r.id > :lastId ORDER BY r.id ASC")
+    List<Object[]> findIdsAndCreateTimesAfter(@Param("lastId") Long lastId, Pageable pageable);
+    
+    // 仍以JSON文本保存关键词的旧记录：[id, itemKeywords, quotaKeywords, commonKeywords]
+    @Query("SELECT r.id, r.itemKeywords, r.quotaKeywords, r.commonKeywords FROM MatchingLearningRecord r"
+            + " WHERE r.itemKeywords IS NOT NULL OR r.quotaKeywords IS NOT NULL OR r.commonKeywords IS NOT NULL"
+            + " ORDER BY r.id ASC")
+    List<Object[]> findLegacyKeywords(Pageable pageable);
+    
+    // 清空已迁移记录的JSON关键词
+    @Modifying
+    @Query("UPDATE MatchingLearningRecord r SET r.itemKeywords = NULL, r.quotaKeywords = NULL, r.commonKeywords = NULL"
+            + " WHERE r.id IN :ids")
+    int clearLegacyKeywords(@Param("ids") List<Long> ids);
 }
 
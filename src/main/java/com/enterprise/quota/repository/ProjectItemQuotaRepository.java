@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,6 +17,11 @@ public interface ProjectItemQuotaRepository extends JpaRepository<ProjectItemQuo
      */
     List<ProjectItemQuota> findByProjectItemIdOrderBySortOrderAsc(Long projectItemId);
     
+    /**
+     * 批量查找多个清单项关联的定额（按清单项、排序号排列）
+     */
+    List<ProjectItemQuota> findByProjectItemIdInOrderByProjectItemIdAscSortOrderAsc(Collection<Long> projectItemIds);
+    
     /**
      * 删除清单项的所有定额关联
      */
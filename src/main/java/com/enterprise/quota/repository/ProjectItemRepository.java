@@ -1,11 +1,14 @@
 package com.enterprise.quota.repository;
 
 import com.enterprise.quota.entity.ProjectItem;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
@@ -17,6 +20,26 @@ public interface ProjectItemRepository extends JpaRepository<ProjectItem, Long>
     // 按用户ID查询清单项
     List<ProjectItem> findByUserId(Long userId);
     
+    // 按ID游标分页查询指定用户的清单项（流水线匹配、流式导出逐页读取，避免一次加载全部清单）
+    List<ProjectItem> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Pageable pageable);
+    
+    // 分页查询指定用户的清单项，可按匹配状态（为null时不限）和关键词（为空时不限，匹配编码、名称、特征值）筛选
+    // 关键词需经 LikePatterns.escape 转义；ESCAPE 子句原样传给 MySQL，'\\' 在 MySQL 字符串中即一个反斜杠
+    @Query("SELECT p FROM ProjectItem p WHERE p.userId = :userId"
+            + " AND (:matchStatus IS NULL OR p.matchStatus = :matchStatus)"
+            + " AND (:keyword = '' OR p.itemCode LIKE CONCAT('%', :keyword, '%') ESCAPE '\\\\'"
+            + " OR p.itemName LIKE CONCAT('%', :keyword, '%') ESCAPE '\\\\'"
+            + " OR p.featureValue LIKE CONCAT('%', :keyword, '%') ESCAPE '\\\\')")
+    Page<ProjectItem> searchByUser(@Param("userId") Long userId, @Param("matchStatus") Integer matchStatus,
+                                   @Param("keyword") String keyword, Pageable pageable);
+    
+    // 指定用户所有清单项的合价合计
+    @Query("SELECT COALESCE(SUM(p.totalPrice), 0) FROM ProjectItem p WHERE p.userId = :userId")
+    BigDecimal sumTotalPriceByUserId(@Param("userId") Long userId);
+    
+    // 统计指定用户的清单项数量
+    long countByUserId(Long userId);
+    
     // 按用户ID和匹配状态查询
     List<ProjectItem> findByUserIdAndMatchStatus(Long userId, Integer matchStatus);
     
@@ -0,0 +1,103 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.entity.ProjectItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 批量导入服务
+ * 定额、清单主键使用 IDENTITY 生成，Hibernate 无法对其插入做 JDBC 批处理，每行都是一次数据库往返；
+ * 导入时改为直接使用 JDBC 批量插入（MySQL 连接需开启 rewriteBatchedStatements，驱动会改写为多行 INSERT）
+ */
+@Service
+public class BulkImportService {
+
+    private static final String INSERT_QUOTA_SQL = "INSERT INTO enterprise_quota "
+            + "(quota_code, quota_name, feature_value, unit, unit_price, labor_cost, material_cost, machine_cost, remark, version_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM_SQL = "INSERT INTO project_item "
+            + "(user_id, item_code, item_name, feature_value, unit, quantity, match_status, remark) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量插入企业定额（不回填ID）
+     * 不经过JPA，因此在这里通知定额变更，事务提交后对应版本的预编译索引失效
+     */
+    @Transactional
+    public void insertQuotas(List<EnterpriseQuota> quotas) {
+        if (quotas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_QUOTA_SQL, quotas, quotas.size(), (ps, quota) -> {
+            ps.setString(1, quota.getQuotaCode());
+            ps.setString(2, quota.getQuotaName());
+            ps.setString(3, quota.getFeatureValue());
+            ps.setString(4, quota.getUnit());
+            setDecimal(ps, 5, quota.getUnitPrice());
+            setDecimal(ps, 6, quota.getLaborCost());
+            setDecimal(ps, 7, quota.getMaterialCost());
+            setDecimal(ps, 8, quota.getMachineCost());
+            ps.setString(9, quota.getRemark());
+            setLong(ps, 10, quota.getVersionId());
+        });
+
+        Set<Long> versionIds = new HashSet<>();
+        for (EnterpriseQuota quota : quotas) {
+            versionIds.add(quota.getVersionId());
+        }
+        for (Long versionId : versionIds) {
+            QuotaChangeNotifier.notifyChanged(versionId);
+        }
+    }
+
+    /**
+     * 批量插入项目清单（不回填ID）
+     */
+    @Transactional
+    public void insertItems(List<ProjectItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items, items.size(), (ps, item) -> {
+            setLong(ps, 1, item.getUserId());
+            ps.setString(2, item.getItemCode());
+            ps.setString(3, item.getItemName());
+            ps.setString(4, item.getFeatureValue());
+            ps.setString(5, item.getUnit());
+            setDecimal(ps, 6, item.getQuantity());
+            ps.setInt(7, item.getMatchStatus() != null ? item.getMatchStatus() : 0);
+            ps.setString(8, item.getRemark());
+        });
+    }
+
+    private static void setDecimal(PreparedStatement ps, int index, BigDecimal value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DECIMAL);
+        } else {
+            ps.setBigDecimal(index, value);
+        }
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+}
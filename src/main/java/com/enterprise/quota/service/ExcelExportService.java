@@ -5,153 +5,206 @@ import com.enterprise.quota.entity.ProjectItem;
 import com.enterprise.quota.entity.ProjectItemQuota;
 import com.enterprise.quota.repository.EnterpriseQuotaRepository;
 import com.enterprise.quota.repository.ProjectItemRepository;
-import com.enterprise.quota.repository.ProjectItemQuotaRepository;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
+/**
+ * Excel导出服务
+ * 使用 SXSSFWorkbook 流式写入（内存中只保留最近的若干行，其余写入临时文件），数据按ID分页读取，
+ * 直接写入输出流，导出内存占用与行数无关
+ */
 @Service
 public class ExcelExportService {
-    
+
+    // 内存中保留的行数（滑动窗口）
+    private static final int ROW_WINDOW = 200;
+
+    // 每次从数据库读取的行数
+    private static final int PAGE_SIZE = 1000;
+
+    // 用于估算列宽的采样行数（不含表头）
+    private static final int WIDTH_SAMPLE_ROWS = 500;
+
+    private static final int MIN_COLUMN_WIDTH = 3000;
+
+    private static final int MAX_COLUMN_WIDTH = 60 * 256;
+
     @Autowired
     private ProjectItemRepository itemRepository;
-    
+
     @Autowired
-    private ProjectItemQuotaRepository itemQuotaRepository;
-    
+    private QuotaMatchingService matchingService;
+
     @Autowired
     private EnterpriseQuotaRepository quotaRepository;
-    
-    public byte[] exportMatchedItems() throws IOException {
-        List<ProjectItem> items = itemRepository.findAll();
-        
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            
-            Sheet sheet = workbook.createSheet("匹配结果");
-            
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerFont.setFontHeightInPoints((short) 12);
-            headerStyle.setFont(headerFont);
-            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            headerStyle.setAlignment(HorizontalAlignment.CENTER);
-            
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {
-                "序号", "清单编码", "清单名称", "项目特征值", "单位", "工程量",
-                "匹配定额编码", "匹配定额名称", "定额项目特征", "单价", "合价", "匹配状态", "备注", "多定额明细"
-            };
-            
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-            }
-            
-            int rowNum = 1;
+
+    /**
+     * 导出指定用户的项目清单匹配结果
+     */
+    public void exportMatchedItems(Long userId, OutputStream out) throws IOException {
+        String[] headers = {
+            "序号", "清单编码", "清单名称", "项目特征值", "单位", "工程量",
+            "匹配定额编码", "匹配定额名称", "定额项目特征", "单价", "合价", "匹配状态", "备注", "多定额明细"
+        };
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            SheetWriter writer = new SheetWriter(workbook, "匹配结果", headers);
+
             int sequenceNum = 1;
-            for (ProjectItem item : items) {
-                Row row = sheet.createRow(rowNum++);
-                
-                // 序号列
-                row.createCell(0).setCellValue(sequenceNum++);
-                
-                row.createCell(1).setCellValue(item.getItemCode() != null ? item.getItemCode() : "");
-                row.createCell(2).setCellValue(item.getItemName() != null ? item.getItemName() : "");
-                row.createCell(3).setCellValue(item.getFeatureValue() != null ? item.getFeatureValue() : "");
-                row.createCell(4).setCellValue(item.getUnit() != null ? item.getUnit() : "");
-                row.createCell(5).setCellValue(item.getQuantity() != null ? item.getQuantity().doubleValue() : 0);
-                
-                // 如果是多定额匹配，显示汇总信息
-                if (item.getMatchStatus() != null && item.getMatchStatus() == 3) {
-                    List<ProjectItemQuota> quotas = itemQuotaRepository.findByProjectItemIdOrderBySortOrderAsc(item.getId());
-                    if (!quotas.isEmpty()) {
-                        StringBuilder quotaCodes = new StringBuilder();
-                        StringBuilder quotaNames = new StringBuilder();
-                        for (ProjectItemQuota quota : quotas) {
-                            if (quotaCodes.length() > 0) quotaCodes.append("; ");
-                            quotaCodes.append(quota.getQuotaCode());
-                            if (quotaNames.length() > 0) quotaNames.append("; ");
-                            quotaNames.append(quota.getQuotaName());
+            long lastId = 0L;
+            List<ProjectItem> items;
+            do {
+                items = itemRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, lastId, PageRequest.of(0, PAGE_SIZE));
+                // 每页的多定额明细一次批量查询
+                matchingService.fillItemQuotas(items);
+                for (ProjectItem item : items) {
+                    lastId = item.getId();
+                    writer.nextRow();
+
+                    // 序号列
+                    writer.number(0, sequenceNum++);
+
+                    writer.text(1, item.getItemCode());
+                    writer.text(2, item.getItemName());
+                    writer.text(3, item.getFeatureValue());
+                    writer.text(4, item.getUnit());
+                    writer.number(5, item.getQuantity() != null ? item.getQuantity().doubleValue() : 0);
+
+                    // 如果是多定额匹配，显示汇总信息
+                    if (item.getMatchStatus() != null && item.getMatchStatus() == 3) {
+                        List<ProjectItemQuota> quotas = item.getQuotas();
+                        if (!quotas.isEmpty()) {
+                            StringBuilder quotaCodes = new StringBuilder();
+                            StringBuilder quotaNames = new StringBuilder();
+                            for (ProjectItemQuota quota : quotas) {
+                                if (quotaCodes.length() > 0) quotaCodes.append("; ");
+                                quotaCodes.append(quota.getQuotaCode());
+                                if (quotaNames.length() > 0) quotaNames.append("; ");
+                                quotaNames.append(quota.getQuotaName());
+                            }
+                            writer.text(6, quotaCodes.toString());
+                            writer.text(7, quotaNames.toString());
+                            writer.text(8, "多定额组合");
+                        } else {
+                            writer.text(6, "");
+                            writer.text(7, "");
+                            writer.text(8, "");
                         }
-                        row.createCell(6).setCellValue(quotaCodes.toString());
-                        row.createCell(7).setCellValue(quotaNames.toString());
-                        row.createCell(8).setCellValue("多定额组合");
                     } else {
-                        row.createCell(6).setCellValue("");
-                        row.createCell(7).setCellValue("");
-                        row.createCell(8).setCellValue("");
+                        writer.text(6, item.getMatchedQuotaCode());
+                        writer.text(7, item.getMatchedQuotaName());
+                        writer.text(8, item.getMatchedQuotaFeatureValue());
                     }
-                } else {
-                    row.createCell(6).setCellValue(item.getMatchedQuotaCode() != null ? item.getMatchedQuotaCode() : "");
-                    row.createCell(7).setCellValue(item.getMatchedQuotaName() != null ? item.getMatchedQuotaName() : "");
-                    row.createCell(8).setCellValue(item.getMatchedQuotaFeatureValue() != null ? item.getMatchedQuotaFeatureValue() : "");
-                }
-                
-                row.createCell(9).setCellValue(item.getMatchedUnitPrice() != null ? item.getMatchedUnitPrice().doubleValue() : 0);
-                row.createCell(10).setCellValue(item.getTotalPrice() != null ? item.getTotalPrice().doubleValue() : 0);
-                
-                String status = "";
-                if (item.getMatchStatus() != null) {
-                    switch (item.getMatchStatus()) {
-                        case 0: status = "未匹配"; break;
-                        case 1: status = "已匹配"; break;
-                        case 2: status = "手动修改"; break;
-                        case 3: status = "多定额匹配"; break;
+
+                    writer.number(9, item.getMatchedUnitPrice() != null ? item.getMatchedUnitPrice().doubleValue() : 0);
+                    writer.number(10, item.getTotalPrice() != null ? item.getTotalPrice().doubleValue() : 0);
+
+                    String status = "";
+                    if (item.getMatchStatus() != null) {
+                        switch (item.getMatchStatus()) {
+                            case 0: status = "未匹配"; break;
+                            case 1: status = "已匹配"; break;
+                            case 2: status = "手动修改"; break;
+                            case 3: status = "多定额匹配"; break;
+                        }
                     }
-                }
-                row.createCell(11).setCellValue(status);
-                row.createCell(12).setCellValue(item.getRemark() != null ? item.getRemark() : "");
-                
-                // 多定额明细
-                if (item.getMatchStatus() != null && item.getMatchStatus() == 3) {
-                    List<ProjectItemQuota> quotas = itemQuotaRepository.findByProjectItemIdOrderBySortOrderAsc(item.getId());
-                    if (!quotas.isEmpty()) {
-                        StringBuilder detail = new StringBuilder();
-                        for (int i = 0; i < quotas.size(); i++) {
-                            ProjectItemQuota quota = quotas.get(i);
-                            if (i > 0) detail.append("\n");
-                            detail.append(String.format("%d. %s - %s (单价: %.2f元)", 
-                                i + 1, quota.getQuotaCode(), quota.getQuotaName(), 
-                                quota.getUnitPrice() != null ? quota.getUnitPrice().doubleValue() : 0));
+                    writer.text(11, status);
+                    writer.text(12, item.getRemark());
+
+                    // 多定额明细
+                    if (item.getMatchStatus() != null && item.getMatchStatus() == 3) {
+                        List<ProjectItemQuota> quotas = item.getQuotas();
+                        if (!quotas.isEmpty()) {
+                            StringBuilder detail = new StringBuilder();
+                            for (int i = 0; i < quotas.size(); i++) {
+                                ProjectItemQuota quota = quotas.get(i);
+                                if (i > 0) detail.append("\n");
+                                detail.append(String.format("%d. %s - %s (单价: %.2f元)",
+                                    i + 1, quota.getQuotaCode(), quota.getQuotaName(),
+                                    quota.getUnitPrice() != null ? quota.getUnitPrice().doubleValue() : 0));
+                            }
+                            writer.text(13, detail.toString());
+                        } else {
+                            writer.text(13, "");
                         }
-                        row.createCell(13).setCellValue(detail.toString());
                     } else {
-                        row.createCell(13).setCellValue("");
+                        writer.text(13, "");
                     }
-                } else {
-                    row.createCell(13).setCellValue("");
                 }
-            }
-            
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                if (sheet.getColumnWidth(i) < 3000) {
-                    sheet.setColumnWidth(i, 3000);
+            } while (items.size() == PAGE_SIZE);
+
+            writer.applyColumnWidths();
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    public void exportQuotas(OutputStream out) throws IOException {
+        String[] headers = {
+            "序号", "定额编码", "定额名称", "项目特征值", "单位",
+            "单价", "人工费", "材料费", "机械费", "备注"
+        };
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            SheetWriter writer = new SheetWriter(workbook, "企业定额数据", headers);
+
+            int sequenceNum = 1;
+            long lastId = 0L;
+            List<EnterpriseQuota> quotas;
+            do {
+                quotas = quotaRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, PAGE_SIZE));
+                for (EnterpriseQuota quota : quotas) {
+                    lastId = quota.getId();
+                    writer.nextRow();
+
+                    writer.number(0, sequenceNum++);
+                    writer.text(1, quota.getQuotaCode());
+                    writer.text(2, quota.getQuotaName());
+                    writer.text(3, quota.getFeatureValue());
+                    writer.text(4, quota.getUnit());
+                    writer.number(5, quota.getUnitPrice() != null ? quota.getUnitPrice().doubleValue() : 0);
+                    writer.number(6, quota.getLaborCost() != null ? quota.getLaborCost().doubleValue() : 0);
+                    writer.number(7, quota.getMaterialCost() != null ? quota.getMaterialCost().doubleValue() : 0);
+                    writer.number(8, quota.getMachineCost() != null ? quota.getMachineCost().doubleValue() : 0);
+                    writer.text(9, quota.getRemark());
                 }
-            }
-            
+            } while (quotas.size() == PAGE_SIZE);
+
+            writer.applyColumnWidths();
             workbook.write(out);
-            return out.toByteArray();
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
-    
-    public byte[] exportQuotas() throws IOException {
-        List<EnterpriseQuota> quotas = quotaRepository.findAll();
-        
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            
-            Sheet sheet = workbook.createSheet("企业定额数据");
-            
+
+    /**
+     * 逐行写入工作表，并根据表头和前若干行数据估算列宽
+     * （autoSizeColumn 需要重新测量所有行，流式写入时已写出的行也无法再测量）
+     */
+    private static class SheetWriter {
+        private final Sheet sheet;
+        private final int[] widths;
+        private int rowNum;
+        private Row row;
+
+        SheetWriter(Workbook workbook, String sheetName, String[] headers) {
+            this.sheet = workbook.createSheet(sheetName);
+            this.widths = new int[headers.length];
+
             CellStyle headerStyle = workbook.createCellStyle();
             Font headerFont = workbook.createFont();
             headerFont.setBold(true);
@@ -160,46 +213,60 @@ public class ExcelExportService {
             headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
             headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
             headerStyle.setAlignment(HorizontalAlignment.CENTER);
-            
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {
-                "序号", "定额编码", "定额名称", "项目特征值", "单位", 
-                "单价", "人工费", "材料费", "机械费", "备注"
-            };
-            
+
+            row = sheet.createRow(rowNum++);
             for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
+                Cell cell = row.createCell(i);
                 cell.setCellValue(headers[i]);
                 cell.setCellStyle(headerStyle);
+                // 表头字体较大，按1.2倍估算
+                measure(i, headers[i], 1.2);
             }
-            
-            int rowNum = 1;
-            int sequenceNum = 1;
-            for (EnterpriseQuota quota : quotas) {
-                Row row = sheet.createRow(rowNum++);
-                
-                row.createCell(0).setCellValue(sequenceNum++);
-                row.createCell(1).setCellValue(quota.getQuotaCode() != null ? quota.getQuotaCode() : "");
-                row.createCell(2).setCellValue(quota.getQuotaName() != null ? quota.getQuotaName() : "");
-                row.createCell(3).setCellValue(quota.getFeatureValue() != null ? quota.getFeatureValue() : "");
-                row.createCell(4).setCellValue(quota.getUnit() != null ? quota.getUnit() : "");
-                row.createCell(5).setCellValue(quota.getUnitPrice() != null ? quota.getUnitPrice().doubleValue() : 0);
-                row.createCell(6).setCellValue(quota.getLaborCost() != null ? quota.getLaborCost().doubleValue() : 0);
-                row.createCell(7).setCellValue(quota.getMaterialCost() != null ? quota.getMaterialCost().doubleValue() : 0);
-                row.createCell(8).setCellValue(quota.getMachineCost() != null ? quota.getMachineCost().doubleValue() : 0);
-                row.createCell(9).setCellValue(quota.getRemark() != null ? quota.getRemark() : "");
+        }
+
+        void nextRow() {
+            row = sheet.createRow(rowNum++);
+        }
+
+        void text(int column, String value) {
+            String text = value != null ? value : "";
+            row.createCell(column).setCellValue(text);
+            if (rowNum <= WIDTH_SAMPLE_ROWS + 1) {
+                measure(column, text, 1.0);
             }
-            
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                if (sheet.getColumnWidth(i) < 3000) {
-                    sheet.setColumnWidth(i, 3000);
+        }
+
+        void number(int column, double value) {
+            row.createCell(column).setCellValue(value);
+            if (rowNum <= WIDTH_SAMPLE_ROWS + 1) {
+                String text = value == (long) value ? String.valueOf((long) value) : String.valueOf(value);
+                measure(column, text, 1.0);
+            }
+        }
+
+        /**
+         * 估算显示宽度（1/256字符宽度）：中文等全角字符按2个字符计算，多行文本取最长的一行
+         */
+        private void measure(int column, String text, double scale) {
+            int lineWidth = 0;
+            int maxWidth = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    lineWidth = 0;
+                    continue;
                 }
+                lineWidth += c < 0x2E80 ? 1 : 2;
+                maxWidth = Math.max(maxWidth, lineWidth);
+            }
+            int width = (int) ((maxWidth * scale + 2) * 256);
+            widths[column] = Math.max(widths[column], width);
+        }
+
+        void applyColumnWidths() {
+            for (int i = 0; i < widths.length; i++) {
+                sheet.setColumnWidth(i, Math.min(MAX_COLUMN_WIDTH, Math.max(MIN_COLUMN_WIDTH, widths[i])));
             }
-            
-            workbook.write(out);
-            return out.toByteArray();
         }
     }
 }
-
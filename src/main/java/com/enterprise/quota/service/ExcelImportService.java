@@ -2,47 +2,65 @@ package com.enterprise.quota.service;
 
 import com.enterprise.quota.entity.EnterpriseQuota;
 import com.enterprise.quota.entity.ProjectItem;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.enterprise.quota.util.ExcelSheetReader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Excel导入服务
+ * 以流式方式逐行解析上传的xlsx文件，按固定大小分块交给调用方保存，内存占用与文件大小无关
+ */
 @Service
 public class ExcelImportService {
     
+    // 每块的行数
+    @Value("${quota.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+    
+    /**
+     * 流式导入企业定额
+     * @param versionId 定额版本ID
+     * @param chunkHandler 分块处理（通常为保存到数据库），每块最多 chunkSize 条
+     * @return 导入的定额数量
+     */
+    public int importEnterpriseQuotas(MultipartFile file, Long versionId,
+                                      Consumer<List<EnterpriseQuota>> chunkHandler) throws IOException {
+        return importRows(file, row -> {
+            EnterpriseQuota quota = new EnterpriseQuota();
+            quota.setQuotaCode(row.getString(0));
+            quota.setQuotaName(row.getString(1));
+            quota.setFeatureValue(row.getString(2));
+            quota.setUnit(row.getString(3));
+            quota.setUnitPrice(row.getNumber(4));
+            quota.setLaborCost(row.getNumber(5));
+            quota.setMaterialCost(row.getNumber(6));
+            quota.setMachineCost(row.getNumber(7));
+            if (row.getLastCellNum() > 8) {
+                quota.setRemark(row.getString(8));
+            }
+            // 设置版本ID
+            quota.setVersionId(versionId);
+            return quota;
+        }, chunkHandler);
+    }
+    
+    /**
+     * 导入企业定额并返回全部结果（适用于小文件，大文件请使用分块导入）
+     */
     public List<EnterpriseQuota> importEnterpriseQuotas(MultipartFile file, Long versionId) throws IOException {
         List<EnterpriseQuota> quotas = new ArrayList<>();
-        
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-                
-                EnterpriseQuota quota = new EnterpriseQuota();
-                quota.setQuotaCode(getCellValue(row.getCell(0)));
-                quota.setQuotaName(getCellValue(row.getCell(1)));
-                quota.setFeatureValue(getCellValue(row.getCell(2)));
-                quota.setUnit(getCellValue(row.getCell(3)));
-                quota.setUnitPrice(getNumericValue(row.getCell(4)));
-                quota.setLaborCost(getNumericValue(row.getCell(5)));
-                quota.setMaterialCost(getNumericValue(row.getCell(6)));
-                quota.setMachineCost(getNumericValue(row.getCell(7)));
-                if (row.getLastCellNum() > 8) {
-                    quota.setRemark(getCellValue(row.getCell(8)));
-                }
-                // 设置版本ID
-                quota.setVersionId(versionId);
-                quotas.add(quota);
-            }
-        }
-        
+        importEnterpriseQuotas(file, versionId, quotas::addAll);
         return quotas;
     }
     
@@ -50,105 +68,95 @@ public class ExcelImportService {
      * 兼容旧版本的导入方法（不设置版本ID）
      */
     public List<EnterpriseQuota> importEnterpriseQuotas(MultipartFile file) throws IOException {
-        return importEnterpriseQuotas(file, null);
+        return importEnterpriseQuotas(file, (Long) null);
     }
     
+    /**
+     * 流式导入项目清单
+     * @param chunkHandler 分块处理（通常为保存到数据库），每块最多 chunkSize 条
+     * @return 导入的清单数量
+     */
+    public int importProjectItems(MultipartFile file, Consumer<List<ProjectItem>> chunkHandler) throws IOException {
+        return importRows(file, row -> {
+            ProjectItem item = new ProjectItem();
+            item.setItemCode(row.getString(0));
+            item.setItemName(row.getString(1));
+            item.setFeatureValue(row.getString(2));
+            item.setUnit(row.getString(3));
+            item.setQuantity(row.getNumber(4));
+            if (row.getLastCellNum() > 5) {
+                item.setRemark(row.getString(5));
+            }
+            return item;
+        }, chunkHandler);
+    }
+    
+    /**
+     * 导入项目清单并返回全部结果（适用于小文件，大文件请使用分块导入）
+     */
     public List<ProjectItem> importProjectItems(MultipartFile file) throws IOException {
         List<ProjectItem> items = new ArrayList<>();
-        
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-                
-                ProjectItem item = new ProjectItem();
-                item.setItemCode(getCellValue(row.getCell(0)));
-                item.setItemName(getCellValue(row.getCell(1)));
-                item.setFeatureValue(getCellValue(row.getCell(2)));
-                item.setUnit(getCellValue(row.getCell(3)));
-                item.setQuantity(getNumericValue(row.getCell(4)));
-                if (row.getLastCellNum() > 5) {
-                    item.setRemark(getCellValue(row.getCell(5)));
-                }
-                items.add(item);
-            }
-        }
-        
+        importProjectItems(file, items::addAll);
         return items;
     }
     
-    private String getCellValue(Cell cell) {
-        if (cell == null) return "";
-        
+    /**
+     * 逐行解析第一个工作表（跳过表头行），按块回调
+     * 上传内容先写入临时文件，POI按需从zip中读取工作表，避免整个文件解压到内存
+     */
+    private <T> int importRows(MultipartFile file, Function<ExcelSheetReader.SheetRow, T> rowMapper,
+                               Consumer<List<T>> chunkHandler) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Path tempFile = Files.createTempFile("quota-import-", ".xlsx");
         try {
-            switch (cell.getCellType()) {
-                case STRING:
-                    return cell.getStringCellValue().trim();
-                case NUMERIC:
-                    if (DateUtil.isCellDateFormatted(cell)) {
-                        return cell.getDateCellValue().toString();
-                    } else {
-                        double numericValue = cell.getNumericCellValue();
-                        if (numericValue == (long) numericValue) {
-                            return String.valueOf((long) numericValue);
-                        } else {
-                            return String.valueOf(numericValue);
-                        }
-                    }
-                case BOOLEAN:
-                    return String.valueOf(cell.getBooleanCellValue());
-                case FORMULA:
-                    // 对于公式单元格，尝试获取计算后的值
-                    try {
-                        switch (cell.getCachedFormulaResultType()) {
-                            case STRING:
-                                return cell.getStringCellValue().trim();
-                            case NUMERIC:
-                                if (DateUtil.isCellDateFormatted(cell)) {
-                                    return cell.getDateCellValue().toString();
-                                } else {
-                                    double numericValue = cell.getNumericCellValue();
-                                    if (numericValue == (long) numericValue) {
-                                        return String.valueOf((long) numericValue);
-                                    } else {
-                                        return String.valueOf(numericValue);
-                                    }
-                                }
-                            case BOOLEAN:
-                                return String.valueOf(cell.getBooleanCellValue());
-                            default:
-                                return cell.getCellFormula();
-                        }
-                    } catch (Exception e) {
-                        // 如果获取公式值失败，返回公式本身
-                        return cell.getCellFormula();
-                    }
-                default:
-                    return "";
+            try (InputStream in = file.getInputStream()) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
             }
-        } catch (Exception e) {
-            // 处理任何异常，返回空字符串，避免导入失败
-            return "";
+            
+            ChunkBuffer<T> buffer = new ChunkBuffer<>(Math.max(1, chunkSize), chunkHandler);
+            ExcelSheetReader.readFirstSheet(tempFile.toFile(), row -> {
+                if (row.getRowNum() >= 1) {
+                    buffer.add(rowMapper.apply(row));
+                }
+            });
+            buffer.flush();
+            
+            System.out.println("Excel导入完成: " + file.getOriginalFilename() + ", 共 " + buffer.count + " 行, 耗时 "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+            return buffer.count;
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
     }
     
-    private BigDecimal getNumericValue(Cell cell) {
-        if (cell == null) return BigDecimal.ZERO;
+    /**
+     * 分块缓冲：满一块即交给处理方，随后开始新的一块
+     */
+    private static class ChunkBuffer<T> {
+        private final int size;
+        private final Consumer<List<T>> handler;
+        private List<T> chunk;
+        private int count;
         
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return BigDecimal.valueOf(cell.getNumericCellValue());
-            case STRING:
-                try {
-                    return new BigDecimal(cell.getStringCellValue().trim());
-                } catch (NumberFormatException e) {
-                    return BigDecimal.ZERO;
-                }
-            default:
-                return BigDecimal.ZERO;
+        ChunkBuffer(int size, Consumer<List<T>> handler) {
+            this.size = size;
+            this.handler = handler;
+            this.chunk = new ArrayList<>(size);
+        }
+        
+        void add(T value) {
+            chunk.add(value);
+            count++;
+            if (chunk.size() >= size) {
+                flush();
+            }
+        }
+        
+        void flush() {
+            if (!chunk.isEmpty()) {
+                handler.accept(chunk);
+                chunk = new ArrayList<>(size);
+            }
         }
     }
 }
-
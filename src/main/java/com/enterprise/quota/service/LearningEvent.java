@@ -0,0 +1,33 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.entity.ProjectItem;
+
+/**
+ * 学习事件：一次匹配结果中学习需要的文本和得分（不持有实体引用）
+ */
+public class LearningEvent {
+
+    private final String itemName;
+    private final String itemFeatureValue;
+    private final String quotaName;
+    private final String quotaFeatureValue;
+    private final double matchScore;
+    private final int matchType;
+
+    public LearningEvent(ProjectItem item, EnterpriseQuota quota, double matchScore, int matchType) {
+        this.itemName = item.getItemName();
+        this.itemFeatureValue = item.getFeatureValue();
+        this.quotaName = quota.getQuotaName();
+        this.quotaFeatureValue = quota.getFeatureValue();
+        this.matchScore = matchScore;
+        this.matchType = matchType;
+    }
+
+    public String getItemName() { return itemName; }
+    public String getItemFeatureValue() { return itemFeatureValue; }
+    public String getQuotaName() { return quotaName; }
+    public String getQuotaFeatureValue() { return quotaFeatureValue; }
+    public double getMatchScore() { return matchScore; }
+    public int getMatchType() { return matchType; }
+}
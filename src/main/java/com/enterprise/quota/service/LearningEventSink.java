@@ -0,0 +1,158 @@
+package com.enterprise.quota.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 学习事件写入器
+ * 匹配线程只把学习事件放入有界的无锁队列，后台线程按批取出，批量插入学习记录和关键词；
+ * 队列已满时丢弃新事件并计数（学习数据允许丢失，匹配不等待数据库写入），
+ * 队列中积压满一批时立即唤醒写入线程，否则按固定间隔写入
+ */
+@Service
+public class LearningEventSink implements MeterBinder {
+
+    @Autowired
+    private MatchingLearningService learningService;
+
+    @Value("${quota.learning.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${quota.learning.batch-size:500}")
+    private int batchSize;
+
+    @Value("${quota.learning.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    private final ConcurrentLinkedQueue<LearningEvent> queue = new ConcurrentLinkedQueue<>();
+
+    // 队列中的事件数（ConcurrentLinkedQueue.size() 需要遍历）
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    // 上次输出日志时的丢弃数
+    private long reportedDropped;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "learning-event-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 停止时写完队列中剩余的事件
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 提交学习事件（不阻塞）
+     * @return 队列已满被丢弃时返回false
+     */
+    public boolean publish(LearningEvent event) {
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        queue.offer(event);
+        accepted.increment();
+        if (queued.get() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        while (running || queued.get() > 0) {
+            if (running && queued.get() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            // 积压时连续写入，直到不足一批
+            do {
+                writeBatch();
+            } while (queued.get() >= batchSize);
+            reportDropped();
+        }
+    }
+
+    private void writeBatch() {
+        List<LearningEvent> batch = new ArrayList<>(Math.min(batchSize, Math.max(1, queued.get())));
+        LearningEvent event;
+        while (batch.size() < batchSize && (event = queue.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        queued.addAndGet(-batch.size());
+        try {
+            learningService.saveLearningEvents(batch);
+            written.add(batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            System.err.println("批量写入学习记录失败，丢弃 " + batch.size() + " 条: " + e.getMessage());
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total > reportedDropped) {
+            System.err.println("学习事件队列已满，累计丢弃 " + total + " 条（队列容量 " + queueCapacity + "）");
+            reportedDropped = total;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("quota.learning.events.accepted", accepted, LongAdder::sum)
+                .description("进入队列的学习事件数")
+                .register(registry);
+        FunctionCounter.builder("quota.learning.events.dropped", dropped, LongAdder::sum)
+                .description("队列已满被丢弃的学习事件数")
+                .register(registry);
+        FunctionCounter.builder("quota.learning.events.written", written, LongAdder::sum)
+                .description("已写入数据库的学习事件数")
+                .register(registry);
+        FunctionCounter.builder("quota.learning.events.failed", failed, LongAdder::sum)
+                .description("写入失败的学习事件数")
+                .register(registry);
+        Gauge.builder("quota.learning.queue.size", queued, AtomicInteger::get)
+                .description("学习事件队列中等待写入的事件数")
+                .register(registry);
+    }
+}
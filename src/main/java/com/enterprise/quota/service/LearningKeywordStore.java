@@ -0,0 +1,200 @@
+package com.enterprise.quota.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 学习记录关键词存储
+ * 学习记录中的清单、定额、共同关键词按 (记录ID, 角色, 关键词ID) 存入 learning_record_keyword，
+ * 关键词统计直接在数据库中 GROUP BY，学习时不再解析 JSON
+ */
+@Service
+public class LearningKeywordStore {
+
+    public static final int ROLE_ITEM = 1;
+    public static final int ROLE_QUOTA = 2;
+    public static final int ROLE_COMMON = 3;
+
+    // learning_keyword.keyword 列长度，更长的关键词不记录
+    private static final int MAX_KEYWORD_LENGTH = 200;
+
+    // 每条 IN 查询的最大参数个数
+    private static final int IN_QUERY_BATCH_SIZE = 1000;
+
+    // 关键词ID缓存的最大条目数，超出后清空重新加载
+    private static final int MAX_CACHED_KEYWORDS = 100000;
+
+    private static final String INSERT_KEYWORD_SQL = "INSERT IGNORE INTO learning_keyword (keyword) VALUES (?)";
+
+    private static final String INSERT_OCCURRENCE_SQL = "INSERT IGNORE INTO learning_record_keyword "
+            + "(record_id, role, keyword_id) VALUES (?, ?, ?)";
+
+    // 记录ID范围内各共同关键词的 [关键词, 学习权重之和, 出现次数]
+    private static final String COMMON_KEYWORD_STATS_SQL = "SELECT k.keyword, SUM(COALESCE(r.learning_weight, 1.0)), COUNT(*) "
+            + "FROM learning_record_keyword o "
+            + "JOIN matching_learning_record r ON r.id = o.record_id "
+            + "JOIN learning_keyword k ON k.id = o.keyword_id "
+            + "WHERE o.role = " + ROLE_COMMON + " AND o.record_id > ? AND o.record_id <= ? "
+            + "GROUP BY k.keyword";
+
+    private static final String KEYWORDS_BY_MATCH_TYPE_SQL = "SELECT o.record_id, k.keyword "
+            + "FROM learning_record_keyword o "
+            + "JOIN matching_learning_record r ON r.id = o.record_id "
+            + "JOIN learning_keyword k ON k.id = o.keyword_id "
+            + "WHERE r.match_type = ? AND o.role = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // 关键词 -> ID（只缓存已提交的ID）
+    private final Map<String, Long> keywordIds = new ConcurrentHashMap<>();
+
+    /**
+     * 保存学习记录的关键词（在调用方的事务中写入，重复写入会被忽略）
+     */
+    public void save(List<RecordKeywords> records) {
+        Set<String> keywords = new LinkedHashSet<>();
+        for (RecordKeywords record : records) {
+            keywords.addAll(record.itemKeywords);
+            keywords.addAll(record.quotaKeywords);
+            keywords.addAll(record.commonKeywords);
+        }
+        Map<String, Long> ids = resolveIds(keywords);
+
+        List<long[]> rows = new ArrayList<>();
+        for (RecordKeywords record : records) {
+            addRows(rows, record.recordId, ROLE_ITEM, record.itemKeywords, ids);
+            addRows(rows, record.recordId, ROLE_QUOTA, record.quotaKeywords, ids);
+            addRows(rows, record.recordId, ROLE_COMMON, record.commonKeywords, ids);
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_OCCURRENCE_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row[0]);
+            ps.setInt(2, (int) row[1]);
+            ps.setLong(3, row[2]);
+        });
+    }
+
+    private static void addRows(List<long[]> rows, long recordId, int role, Collection<String> keywords,
+                                Map<String, Long> ids) {
+        for (String keyword : keywords) {
+            Long id = ids.get(keyword);
+            if (id != null) {
+                rows.add(new long[] {recordId, role, id});
+            }
+        }
+    }
+
+    /**
+     * 记录ID在 (afterId, toId] 范围内的共同关键词统计，按关键词排序
+     * @return 关键词 -> [学习权重之和, 出现次数]
+     */
+    public Map<String, double[]> commonKeywordStats(long afterId, long toId) {
+        Map<String, double[]> stats = new TreeMap<>();
+        jdbcTemplate.query(COMMON_KEYWORD_STATS_SQL, rs -> {
+            stats.put(rs.getString(1), new double[] {rs.getDouble(2), rs.getLong(3)});
+        }, afterId, toId);
+        return stats;
+    }
+
+    /**
+     * 指定匹配类型的学习记录中某一角色的关键词（一次查询）
+     * @return 记录ID -> 关键词
+     */
+    public Map<Long, List<String>> keywordsByMatchType(int matchType, int role) {
+        Map<Long, List<String>> keywords = new HashMap<>();
+        jdbcTemplate.query(KEYWORDS_BY_MATCH_TYPE_SQL, rs -> {
+            keywords.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getString(2));
+        }, matchType, role);
+        return keywords;
+    }
+
+    /**
+     * 查询关键词ID，不存在的关键词先插入
+     * 插入在独立事务中提交，调用方事务回滚时缓存中的ID仍然有效
+     */
+    private Map<String, Long> resolveIds(Collection<String> keywords) {
+        Map<String, Long> ids = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String keyword : keywords) {
+            if (keyword == null || keyword.isEmpty() || keyword.length() > MAX_KEYWORD_LENGTH) {
+                continue;
+            }
+            Long id = keywordIds.get(keyword);
+            if (id != null) {
+                ids.put(keyword, id);
+            } else {
+                missing.add(keyword);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Map<String, Long> loaded = template.execute(status -> {
+            jdbcTemplate.batchUpdate(INSERT_KEYWORD_SQL, missing, missing.size(),
+                    (ps, keyword) -> ps.setString(1, keyword));
+            return loadIds(missing);
+        });
+
+        if (keywordIds.size() + loaded.size() > MAX_CACHED_KEYWORDS) {
+            keywordIds.clear();
+        }
+        keywordIds.putAll(loaded);
+        ids.putAll(loaded);
+        return ids;
+    }
+
+    private Map<String, Long> loadIds(List<String> keywords) {
+        Map<String, Long> ids = new HashMap<>();
+        for (int start = 0; start < keywords.size(); start += IN_QUERY_BATCH_SIZE) {
+            List<String> chunk = keywords.subList(start, Math.min(start + IN_QUERY_BATCH_SIZE, keywords.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("SELECT id, keyword FROM learning_keyword WHERE keyword IN (" + placeholders + ")",
+                    rs -> {
+                        ids.put(rs.getString(2), rs.getLong(1));
+                    }, chunk.toArray());
+        }
+        return ids;
+    }
+
+    /**
+     * 一条学习记录的关键词（各角色内去重）
+     */
+    public static class RecordKeywords {
+        private final long recordId;
+        private final Set<String> itemKeywords;
+        private final Set<String> quotaKeywords;
+        private final Set<String> commonKeywords;
+
+        public RecordKeywords(long recordId, Collection<String> itemKeywords, Collection<String> quotaKeywords,
+                              Collection<String> commonKeywords) {
+            this.recordId = recordId;
+            this.itemKeywords = new LinkedHashSet<>(itemKeywords);
+            this.quotaKeywords = new LinkedHashSet<>(quotaKeywords);
+            this.commonKeywords = new LinkedHashSet<>(commonKeywords);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.enterprise.quota.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步匹配任务
+ * 记录任务状态和进度（已处理、已匹配、吞吐量、预计剩余时间），支持协作式取消
+ */
+public class MatchJob implements MatchProgressListener {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final Long userId;
+    private final Long versionId;
+    private final boolean force;
+    private final long startTime = System.currentTimeMillis();
+
+    private final AtomicLong totalItems = new AtomicLong(-1);
+    private final AtomicLong processedItems = new AtomicLong();
+    private final AtomicLong matchedItems = new AtomicLong();
+    private final AtomicBoolean cancelRequested = new AtomicBoolean();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile long endTime;
+    private volatile String message = "匹配中";
+
+    public MatchJob(String id, Long userId, Long versionId, boolean force) {
+        this.id = id;
+        this.userId = userId;
+        this.versionId = versionId;
+        this.force = force;
+    }
+
+    @Override
+    public void onStart(long total) {
+        totalItems.set(total);
+    }
+
+    @Override
+    public void onBatchFinished(int processed, int matched) {
+        processedItems.addAndGet(processed);
+        matchedItems.addAndGet(matched);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested.get();
+    }
+
+    /**
+     * 请求取消，已开始的批次执行完后停止
+     * @return 任务仍在运行时返回true
+     */
+    public boolean cancel() {
+        if (status != Status.RUNNING) {
+            return false;
+        }
+        cancelRequested.set(true);
+        message = "正在取消";
+        return true;
+    }
+
+    void finish(Status finalStatus, String finalMessage) {
+        this.message = finalMessage;
+        this.endTime = System.currentTimeMillis();
+        this.status = finalStatus;
+    }
+
+    public boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+
+    /**
+     * 任务进度快照
+     */
+    public Map<String, Object> toProgress() {
+        long now = endTime > 0 ? endTime : System.currentTimeMillis();
+        long elapsedMillis = Math.max(1, now - startTime);
+        long total = totalItems.get();
+        long processed = processedItems.get();
+        double throughput = processed * 1000.0 / elapsedMillis;
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", id);
+        progress.put("status", status.name());
+        progress.put("message", message);
+        progress.put("versionId", versionId);
+        progress.put("totalItems", total >= 0 ? total : null);
+        progress.put("processedItems", processed);
+        progress.put("matchedItems", matchedItems.get());
+        progress.put("percent", total > 0 ? Math.min(100, processed * 100 / total) : null);
+        progress.put("itemsPerSecond", Math.round(throughput * 10) / 10.0);
+        progress.put("elapsedSeconds", elapsedMillis / 1000);
+        // 预计剩余时间按当前平均吞吐量估算
+        Long etaSeconds = null;
+        if (status == Status.RUNNING && total >= 0 && throughput > 0) {
+            etaSeconds = (long) Math.ceil(Math.max(0, total - processed) / throughput);
+        }
+        progress.put("etaSeconds", etaSeconds);
+        return progress;
+    }
+
+    public String getId() { return id; }
+    public Long getUserId() { return userId; }
+    public Long getVersionId() { return versionId; }
+    public boolean isForce() { return force; }
+    public Status getStatus() { return status; }
+    public long getEndTime() { return endTime; }
+}
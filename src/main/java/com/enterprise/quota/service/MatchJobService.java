@@ -0,0 +1,162 @@
+package com.enterprise.quota.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * 异步匹配任务服务
+ * 提交匹配后立即返回任务ID，任务在匹配线程池中以流水线模式执行，
+ * 进度可通过轮询或SSE获取，取消请求在批次边界生效
+ */
+@Service
+public class MatchJobService {
+
+    @Autowired
+    private QuotaMatchingService matchingService;
+
+    @Autowired
+    @Qualifier("matchingTaskExecutor")
+    private Executor matchingTaskExecutor;
+
+    // 同时运行的任务数量上限：任务线程本身占用匹配线程池的线程，需要给批次留出足够的线程
+    @Value("${quota.matching.jobs.max-concurrent:2}")
+    private int maxConcurrentJobs;
+
+    // 已结束任务的保留时间（分钟）
+    @Value("${quota.matching.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    // SSE连接超时时间（毫秒）
+    @Value("${quota.matching.jobs.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    private final Map<String, MatchJob> jobs = new ConcurrentHashMap<>();
+
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    /**
+     * 提交匹配任务
+     * @param force 为true时忽略增量匹配记录，全部重新匹配
+     * @return 新建的任务
+     */
+    public synchronized MatchJob submit(Long userId, Long versionId, boolean force) {
+        int running = 0;
+        for (MatchJob job : jobs.values()) {
+            if (!job.isRunning()) {
+                continue;
+            }
+            if (job.getUserId().equals(userId)) {
+                throw new RuntimeException("已有正在运行的匹配任务：" + job.getId());
+            }
+            running++;
+        }
+        if (running >= maxConcurrentJobs) {
+            throw new RuntimeException("当前匹配任务较多，请稍后再试");
+        }
+
+        MatchJob job = new MatchJob(UUID.randomUUID().toString(), userId, versionId, force);
+        jobs.put(job.getId(), job);
+        matchingTaskExecutor.execute(() -> run(job));
+        return job;
+    }
+
+    private void run(MatchJob job) {
+        try {
+            int matchedCount = matchingService.batchMatchQuotasForUserPipelined(
+                    job.getUserId(), job.getVersionId(), job.isForce(), job);
+            if (job.isCancelled()) {
+                job.finish(MatchJob.Status.CANCELLED, "匹配已取消，已提交的结果保留，共匹配 " + matchedCount + " 条项目清单");
+            } else {
+                job.finish(MatchJob.Status.COMPLETED, "匹配完成，共匹配 " + matchedCount + " 条项目清单");
+            }
+        } catch (Exception e) {
+            System.err.println("匹配任务失败: " + job.getId() + ", 错误: " + e.getMessage());
+            e.printStackTrace();
+            job.finish(MatchJob.Status.FAILED, "匹配失败：" + e.getMessage());
+        }
+        pushProgress(job);
+    }
+
+    /**
+     * 获取任务，不存在时返回null
+     */
+    public MatchJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 请求取消任务
+     * @return 任务仍在运行时返回true
+     */
+    public boolean cancel(String jobId) {
+        MatchJob job = jobs.get(jobId);
+        return job != null && job.cancel();
+    }
+
+    /**
+     * 订阅任务进度（SSE），立即推送一次当前进度，任务结束后关闭连接
+     */
+    public SseEmitter subscribe(MatchJob job) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> list = emitters.computeIfAbsent(job.getId(), k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        emitter.onCompletion(() -> list.remove(emitter));
+        emitter.onTimeout(() -> list.remove(emitter));
+        emitter.onError(e -> list.remove(emitter));
+        pushProgress(job);
+        return emitter;
+    }
+
+    /**
+     * 每秒向订阅者推送一次进度，并清理过期的已结束任务
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void pushAllProgress() {
+        for (String jobId : emitters.keySet()) {
+            MatchJob job = jobs.get(jobId);
+            if (job != null) {
+                pushProgress(job);
+            } else {
+                emitters.remove(jobId);
+            }
+        }
+
+        long expireBefore = System.currentTimeMillis() - retentionMinutes * 60 * 1000;
+        jobs.values().removeIf(job -> !job.isRunning() && job.getEndTime() < expireBefore);
+    }
+
+    private void pushProgress(MatchJob job) {
+        List<SseEmitter> list = emitters.get(job.getId());
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        Map<String, Object> progress = job.toProgress();
+        boolean finished = !job.isRunning();
+        for (SseEmitter emitter : list) {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(progress));
+                if (finished) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开
+                list.remove(emitter);
+            }
+        }
+        if (finished) {
+            emitters.remove(job.getId());
+        }
+    }
+}
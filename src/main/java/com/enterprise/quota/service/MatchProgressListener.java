@@ -0,0 +1,36 @@
+package com.enterprise.quota.service;
+
+/**
+ * 匹配进度监听
+ * 流水线匹配在开始时、每个批次完成后回调，并在每页、每个批次开始前检查是否已取消
+ */
+public interface MatchProgressListener {
+
+    /**
+     * 不关心进度的监听器
+     */
+    MatchProgressListener NONE = new MatchProgressListener() {
+    };
+
+    /**
+     * 匹配开始
+     * @param totalItems 需要处理的清单总数
+     */
+    default void onStart(long totalItems) {
+    }
+
+    /**
+     * 一个批次处理完成（包括跳过的、无需匹配的清单）
+     * @param processedItems 本批次处理的清单数量
+     * @param matchedItems 本批次匹配成功的清单数量
+     */
+    default void onBatchFinished(int processedItems, int matchedItems) {
+    }
+
+    /**
+     * 是否已请求取消（在批次边界检查，已开始的批次会执行完）
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
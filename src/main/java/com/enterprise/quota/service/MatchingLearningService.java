@@ -6,9 +6,20 @@ import com.enterprise.quota.util.KeywordExtractor;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -37,12 +48,62 @@ public class MatchingLearningService {
     @Autowired
     private ProjectItemQuotaRepository itemQuotaRepository;
     
+    @Autowired
+    private LearningKeywordStore keywordStore;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    // 写入学习记录的事务从取创建时间到提交的最长耗时（秒），同时容纳应用与数据库之间的时钟偏差
+    @Value("${quota.learning.commit-lag-seconds:300}")
+    private long commitLagSeconds;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     // 学习权重配置
     private static final double AUTO_MATCH_WEIGHT = 0.5; // 自动匹配权重
     private static final double MANUAL_MATCH_WEIGHT = 1.0; // 手动修改权重
     
+    // 权重学习进度在 learning_checkpoint 中的名称
+    private static final String WEIGHT_CHECKPOINT = "keyword_weight";
+    
+    // 权重学习每页（每个事务）处理的学习记录数
+    private static final int WEIGHT_PAGE_SIZE = 500;
+    
+    // 旧版本JSON关键词每页（每个事务）迁移的学习记录数
+    private static final int LEGACY_PAGE_SIZE = 500;
+    
+    private static final String INSERT_RECORD_SQL = "INSERT INTO matching_learning_record "
+            + "(item_name, item_feature_value, quota_name, quota_feature_value, match_score, match_type, "
+            + "learning_weight, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String INIT_CHECKPOINT_SQL = "INSERT IGNORE INTO learning_checkpoint "
+            + "(name, last_record_id, update_time) VALUES (?, 0, NOW(6))";
+    
+    private static final String LOCK_CHECKPOINT_SQL = "SELECT last_record_id FROM learning_checkpoint "
+            + "WHERE name = ? FOR UPDATE";
+    
+    // 最早开始的未提交事务（需要 PROCESS 权限）
+    private static final String OLDEST_OPEN_TRANSACTION_SQL = "SELECT MIN(trx_started) FROM information_schema.innodb_trx";
+    
+    private static final String UPDATE_CHECKPOINT_SQL = "UPDATE learning_checkpoint "
+            + "SET last_record_id = ?, update_time = NOW(6) WHERE name = ?";
+    
+    // 新关键词直接插入；已有关键词累加计数后重新计算成功率和权重（MySQL 按从左到右的顺序赋值，后面的表达式使用更新后的值）
+    // 权重 = 1.0 + (成功率 - 0.5) * 2.0，限制在0.5-2.0之间：成功率0.5时权重1.0，成功率1.0时权重2.0
+    private static final String UPSERT_WEIGHT_SQL = "INSERT INTO keyword_weight "
+            + "(keyword, weight, match_count, total_count, success_rate, is_core_concept, update_time) "
+            + "VALUES (?, ?, ?, ?, ?, FALSE, NOW(6)) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "match_count = COALESCE(match_count, 0) + VALUES(match_count), "
+            + "total_count = COALESCE(total_count, 0) + VALUES(total_count), "
+            + "success_rate = match_count / total_count, "
+            + "weight = GREATEST(0.5, LEAST(2.0, 1.0 + (success_rate - 0.5) * 2.0)), "
+            + "update_time = VALUES(update_time)";
+    
     /**
      * 收集匹配数据（在匹配完成后调用）
      */
@@ -56,44 +117,13 @@ public class MatchingLearningService {
             record.setQuotaFeatureValue(quota.getFeatureValue());
             record.setMatchScore(matchScore);
             record.setMatchType(matchType);
-            
-            // 提取关键词
-            List<String> itemKeywords = new ArrayList<>();
-            if (item.getItemName() != null && !item.getItemName().trim().isEmpty()) {
-                itemKeywords.addAll(KeywordExtractor.extractKeywords(item.getItemName()));
-            }
-            if (item.getFeatureValue() != null && !item.getFeatureValue().trim().isEmpty()) {
-                itemKeywords.addAll(KeywordExtractor.extractKeywords(item.getFeatureValue()));
-            }
-            
-            List<String> quotaKeywords = new ArrayList<>();
-            if (quota.getQuotaName() != null && !quota.getQuotaName().trim().isEmpty()) {
-                quotaKeywords.addAll(KeywordExtractor.extractKeywords(quota.getQuotaName()));
-            }
-            if (quota.getFeatureValue() != null && !quota.getFeatureValue().trim().isEmpty()) {
-                quotaKeywords.addAll(KeywordExtractor.extractKeywords(quota.getFeatureValue()));
-            }
-            
-            // 计算共同关键词
-            Set<String> itemKeywordSet = new HashSet<>(itemKeywords);
-            Set<String> quotaKeywordSet = new HashSet<>(quotaKeywords);
-            List<String> commonKeywords = itemKeywordSet.stream()
-                    .filter(quotaKeywordSet::contains)
-                    .collect(Collectors.toList());
-            
-            // 保存关键词（JSON格式）
-            record.setItemKeywords(objectMapper.writeValueAsString(itemKeywords));
-            record.setQuotaKeywords(objectMapper.writeValueAsString(quotaKeywords));
-            record.setCommonKeywords(objectMapper.writeValueAsString(commonKeywords));
-            
-            // 设置学习权重
-            if (matchType == 2 || matchType == 3) {
-                record.setLearningWeight(MANUAL_MATCH_WEIGHT); // 手动修改权重更高
-            } else {
-                record.setLearningWeight(AUTO_MATCH_WEIGHT);
-            }
+            record.setLearningWeight(learningWeightOf(matchType));
             
             learningRecordRepository.save(record);
+            
+            // 保存关键词（按关键词ID存入 learning_record_keyword）
+            keywordStore.save(Collections.singletonList(recordKeywords(record.getId(),
+                    item.getItemName(), item.getFeatureValue(), quota.getQuotaName(), quota.getFeatureValue())));
         } catch (Exception e) {
             // 记录错误但不影响主流程
             System.err.println("收集学习数据失败: " + e.getMessage());
@@ -101,62 +131,226 @@ public class MatchingLearningService {
     }
     
     /**
-     * 分析学习数据，更新关键词权重
+     * 批量写入学习事件（学习事件写入器调用）
+     * 学习记录用一次批量 INSERT 写入（驱动改写为多行 INSERT）并取回自增ID，关键词随后批量写入，整批在一个事务中提交
      */
     @Transactional
-    public void analyzeAndUpdateWeights() {
-        List<MatchingLearningRecord> records = learningRecordRepository.findAllByOrderByCreateTimeDesc();
+    public void saveLearningEvents(List<LearningEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_RECORD_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                for (LearningEvent event : events) {
+                    ps.setString(1, event.getItemName());
+                    ps.setString(2, event.getItemFeatureValue());
+                    ps.setString(3, event.getQuotaName());
+                    ps.setString(4, event.getQuotaFeatureValue());
+                    ps.setDouble(5, event.getMatchScore());
+                    ps.setInt(6, event.getMatchType());
+                    ps.setDouble(7, learningWeightOf(event.getMatchType()));
+                    ps.setTimestamp(8, now);
+                    ps.setTimestamp(9, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Long> generated = new ArrayList<>(events.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generated.add(keys.getLong(1));
+                    }
+                }
+                return generated;
+            }
+        });
+        if (ids == null || ids.size() != events.size()) {
+            throw new RuntimeException("学习记录自增ID数量与写入数量不一致");
+        }
         
-        if (records.size() < 10) {
+        List<LearningKeywordStore.RecordKeywords> records = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            LearningEvent event = events.get(i);
+            records.add(recordKeywords(ids.get(i), event.getItemName(), event.getItemFeatureValue(),
+                    event.getQuotaName(), event.getQuotaFeatureValue()));
+        }
+        keywordStore.save(records);
+    }
+    
+    private static double learningWeightOf(int matchType) {
+        if (matchType == 2 || matchType == 3) {
+            return MANUAL_MATCH_WEIGHT; // 手动修改权重更高
+        }
+        return AUTO_MATCH_WEIGHT;
+    }
+    
+    /**
+     * 提取清单、定额关键词并计算共同关键词
+     */
+    private static LearningKeywordStore.RecordKeywords recordKeywords(long recordId, String itemName,
+                                                                    String itemFeatureValue, String quotaName,
+                                                                    String quotaFeatureValue) {
+        Set<String> itemKeywords = new LinkedHashSet<>();
+        addKeywords(itemKeywords, itemName);
+        addKeywords(itemKeywords, itemFeatureValue);
+        
+        Set<String> quotaKeywords = new LinkedHashSet<>();
+        addKeywords(quotaKeywords, quotaName);
+        addKeywords(quotaKeywords, quotaFeatureValue);
+        
+        List<String> commonKeywords = itemKeywords.stream()
+                .filter(quotaKeywords::contains)
+                .collect(Collectors.toList());
+        return new LearningKeywordStore.RecordKeywords(recordId, itemKeywords, quotaKeywords, commonKeywords);
+    }
+    
+    private static void addKeywords(Set<String> keywords, String text) {
+        if (text != null && !text.trim().isEmpty()) {
+            keywords.addAll(KeywordExtractor.extractKeywords(text));
+        }
+    }
+    
+    /**
+     * 分析学习数据，更新关键词权重
+     * 增量学习：只处理上次学习之后新增的学习记录（按ID记录进度），每页在一个事务中批量累加关键词计数并推进进度，
+     * 每条记录只计入一次；多个学习任务同时执行时，进度行的行锁保证同一页不会被重复处理。
+     * 自增ID在插入时分配、按提交顺序可见：较小ID的记录可能在较大ID的记录之后才提交，
+     * 因此进度只推进到"已确定提交"的前缀（创建时间早于安全时间点的连续记录），之后的记录留到下次学习
+     */
+    public void analyzeAndUpdateWeights() {
+        if (learningRecordRepository.count() < 10) {
             // 数据太少，暂不学习
             return;
         }
         
-        // 统计关键词权重
-        Map<String, KeywordWeight> keywordWeightMap = new HashMap<>();
+        long start = System.currentTimeMillis();
+        migrateLegacyKeywords();
+        jdbcTemplate.update(INIT_CHECKPOINT_SQL, WEIGHT_CHECKPOINT);
+        Timestamp cutoff = commitSafeCutoff();
+        TransactionTemplate pageTemplate = new TransactionTemplate(transactionManager);
+        int processed = 0;
+        int pageCount = 0;
+        int pageRecords;
+        do {
+            Integer result = pageTemplate.execute(status -> learnWeightsPage(cutoff));
+            pageRecords = result != null ? result : 0;
+            processed += pageRecords;
+            pageCount++;
+        } while (pageRecords == WEIGHT_PAGE_SIZE);
         
-        for (MatchingLearningRecord record : records) {
+        System.out.println("关键词权重学习完成，新增学习记录: " + processed + ", 页数: " + pageCount
+                + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+    }
+    
+    /**
+     * 安全时间点：当前时间与最早的未提交事务开始时间中较早者，再减去 commit-lag-seconds。
+     * 仍未提交的学习记录创建时间不早于其事务开始时间，因此创建时间早于安全时间点的记录都已提交；
+     * 无权限查询未提交事务时只按当前时间减去固定延迟判断（要求写入学习记录的事务在此时间内提交）
+     */
+    private Timestamp commitSafeCutoff() {
+        Timestamp now = jdbcTemplate.queryForObject("SELECT NOW(6)", Timestamp.class);
+        long cutoff = now != null ? now.getTime() : System.currentTimeMillis();
+        try {
+            Timestamp oldest = jdbcTemplate.queryForObject(OLDEST_OPEN_TRANSACTION_SQL, Timestamp.class);
+            if (oldest != null) {
+                cutoff = Math.min(cutoff, oldest.getTime());
+            }
+        } catch (RuntimeException e) {
+            System.err.println("查询未提交事务失败，只按固定延迟判断学习记录是否已提交: " + e.getMessage());
+        }
+        return new Timestamp(cutoff - commitLagSeconds * 1000);
+    }
+    
+    /**
+     * 处理进度之后的一页学习记录（在调用方的事务中执行）
+     * 只处理从进度开始、创建时间早于安全时间点的连续记录，遇到较新的记录即停止
+     * @return 本页处理的记录数
+     */
+    private int learnWeightsPage(Timestamp cutoff) {
+        Long lastId = jdbcTemplate.queryForObject(LOCK_CHECKPOINT_SQL, Long.class, WEIGHT_CHECKPOINT);
+        long afterId = lastId != null ? lastId : 0L;
+        List<Object[]> rows = learningRecordRepository.findIdsAndCreateTimesAfter(
+                afterId, PageRequest.of(0, WEIGHT_PAGE_SIZE));
+        int safeCount = 0;
+        for (Object[] row : rows) {
+            Date createTime = (Date) row[1];
+            if (createTime != null && !createTime.before(cutoff)) {
+                break;
+            }
+            safeCount++;
+        }
+        if (safeCount == 0) {
+            return 0;
+        }
+        long pageLastId = (Long) rows.get(safeCount - 1)[0];
+        
+        // 本页的共同关键词计数：[加权匹配次数, 出现次数]，数据库中分组统计，按关键词排序写入，减少并发写入时的死锁
+        Map<String, double[]> counters = keywordStore.commonKeywordStats(afterId, pageLastId);
+        if (!counters.isEmpty()) {
+            List<Map.Entry<String, double[]>> entries = new ArrayList<>(counters.entrySet());
+            jdbcTemplate.batchUpdate(UPSERT_WEIGHT_SQL, entries, entries.size(), (ps, entry) -> {
+                double matchCount = entry.getValue()[0];
+                double totalCount = entry.getValue()[1];
+                double successRate = matchCount / totalCount;
+                ps.setString(1, entry.getKey());
+                ps.setDouble(2, Math.max(0.5, Math.min(2.0, 1.0 + (successRate - 0.5) * 2.0)));
+                ps.setDouble(3, matchCount);
+                ps.setInt(4, (int) totalCount);
+                ps.setDouble(5, successRate);
+            });
+        }
+        
+        jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, pageLastId, WEIGHT_CHECKPOINT);
+        return safeCount;
+    }
+    
+    /**
+     * 把旧版本以JSON文本保存的关键词迁移到 learning_record_keyword，迁移后清空JSON列
+     * 每页一个事务；已迁移的记录不再出现在查询结果中，中断后下次学习时继续
+     */
+    private void migrateLegacyKeywords() {
+        TransactionTemplate pageTemplate = new TransactionTemplate(transactionManager);
+        int migrated = 0;
+        int pageRecords;
+        do {
+            Integer result = pageTemplate.execute(status -> migrateLegacyKeywordsPage());
+            pageRecords = result != null ? result : 0;
+            migrated += pageRecords;
+        } while (pageRecords == LEGACY_PAGE_SIZE);
+        if (migrated > 0) {
+            System.out.println("迁移旧版本学习记录关键词: " + migrated + " 条");
+        }
+    }
+    
+    private int migrateLegacyKeywordsPage() {
+        List<Object[]> rows = learningRecordRepository.findLegacyKeywords(PageRequest.of(0, LEGACY_PAGE_SIZE));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<LearningKeywordStore.RecordKeywords> records = new ArrayList<>(rows.size());
+        List<Long> recordIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long recordId = (Long) row[0];
+            recordIds.add(recordId);
             try {
-                List<String> commonKeywords = objectMapper.readValue(
-                    record.getCommonKeywords(), 
-                    new TypeReference<List<String>>() {}
-                );
-                
-                double weight = record.getLearningWeight();
-                
-                for (String keyword : commonKeywords) {
-                    KeywordWeight kw = keywordWeightMap.get(keyword);
-                    if (kw == null) {
-                        kw = keywordWeightRepository.findByKeyword(keyword)
-                            .orElse(new KeywordWeight());
-                        kw.setKeyword(keyword);
-                        kw.setWeight(1.0);
-                        kw.setMatchCount(0);
-                        kw.setTotalCount(0);
-                    }
-                    
-                    // 更新统计
-                    kw.setTotalCount(kw.getTotalCount() + 1);
-                    kw.setMatchCount((int)(kw.getMatchCount() + weight));
-                    
-                    // 计算新权重：成功率越高，权重越高
-                    double successRate = kw.getMatchCount() / (double) kw.getTotalCount();
-                    kw.setSuccessRate(successRate);
-                    
-                    // 权重 = 1.0 + (成功率 - 0.5) * 2.0
-                    // 成功率0.5时权重1.0，成功率1.0时权重2.0
-                    double newWeight = 1.0 + (successRate - 0.5) * 2.0;
-                    kw.setWeight(Math.max(0.5, Math.min(2.0, newWeight))); // 限制在0.5-2.0之间
-                    
-                    keywordWeightMap.put(keyword, kw);
-                }
+                records.add(new LearningKeywordStore.RecordKeywords(recordId,
+                        parseLegacyKeywords((String) row[1]),
+                        parseLegacyKeywords((String) row[2]),
+                        parseLegacyKeywords((String) row[3])));
             } catch (Exception e) {
-                System.err.println("分析学习记录失败: " + e.getMessage());
+                System.err.println("解析学习记录关键词失败: " + recordId + ", " + e.getMessage());
             }
         }
-        
-        // 保存更新的权重
-        keywordWeightRepository.saveAll(keywordWeightMap.values());
+        keywordStore.save(records);
+        learningRecordRepository.clearLegacyKeywords(recordIds);
+        return rows.size();
+    }
+    
+    private List<String> parseLegacyKeywords(String json) throws IOException {
+        if (json == null || json.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return objectMapper.readValue(json, new TypeReference<List<String>>() {});
     }
     
     /**
@@ -164,6 +358,8 @@ public class MatchingLearningService {
      */
     @Transactional
     public void discoverSynonyms() {
+        migrateLegacyKeywords();
+        
         // 获取手动修改的记录（这些是"正确答案"）
         List<MatchingLearningRecord> manualRecords = learningRecordRepository
             .findByMatchTypeOrderByCreateTimeDesc(2);
@@ -172,6 +368,10 @@ public class MatchingLearningService {
             return;
         }
         
+        // 所有手动修改记录的清单关键词一次查询
+        Map<Long, List<String>> itemKeywordsByRecord = keywordStore.keywordsByMatchType(
+                2, LearningKeywordStore.ROLE_ITEM);
+        
         // 按定额分组，找出匹配到相同定额的不同项目
         Map<String, List<MatchingLearningRecord>> quotaGroups = new HashMap<>();
         
@@ -185,7 +385,7 @@ public class MatchingLearningService {
             List<MatchingLearningRecord> group = entry.getValue();
             if (group.size() >= 2) {
                 // 提取项目名称中的关键词，找出相似的部分
-                analyzeGroupForSynonyms(group);
+                analyzeGroupForSynonyms(group, itemKeywordsByRecord);
             }
         }
     }
@@ -193,16 +393,14 @@ public class MatchingLearningService {
     /**
      * 分析一组记录，发现同义词
      */
-    private void analyzeGroupForSynonyms(List<MatchingLearningRecord> group) {
+    private void analyzeGroupForSynonyms(List<MatchingLearningRecord> group,
+                                         Map<Long, List<String>> itemKeywordsByRecord) {
         try {
             // 提取所有项目名称的关键词
             Map<String, Set<String>> keywordMap = new HashMap<>();
             
             for (MatchingLearningRecord record : group) {
-                List<String> keywords = objectMapper.readValue(
-                    record.getItemKeywords(),
-                    new TypeReference<List<String>>() {}
-                );
+                List<String> keywords = itemKeywordsByRecord.getOrDefault(record.getId(), Collections.emptyList());
                 
                 for (String keyword : keywords) {
                     keywordMap.computeIfAbsent(keyword, k -> new HashSet<>()).add(record.getItemName());
@@ -276,6 +474,31 @@ public class MatchingLearningService {
         return synonymMap;
     }
     
+    /**
+     * 获取学习到的同义词对（源词、目标词），用于合并到同义词表
+     */
+    public List<List<String>> getLearnedSynonymPairs() {
+        return synonymPairsOf(matchingRuleRepository
+            .findByRuleTypeAndConfidenceGreaterThanOrderByConfidenceDesc("synonym", 0.7));
+    }
+    
+    /**
+     * 从同义词规则中取出真正的同义词对：只使用源词与目标词不同的规则
+     * discoverSynonyms 生成的规则源词与目标词相同，规则值是出现该关键词的清单名称而不是同义词，
+     * 不能并入同义词表（否则同一清单名称中的不同关键词会被传递合并为同义词）
+     */
+    static List<List<String>> synonymPairsOf(List<MatchingRule> rules) {
+        List<List<String>> pairs = new ArrayList<>();
+        for (MatchingRule rule : rules) {
+            String source = rule.getSourceText() != null ? rule.getSourceText().trim() : "";
+            String target = rule.getTargetText() != null ? rule.getTargetText().trim() : "";
+            if (!source.isEmpty() && !target.isEmpty() && !source.equals(target)) {
+                pairs.add(Arrays.asList(source, target));
+            }
+        }
+        return pairs;
+    }
+    
     /**
      * 批量收集所有匹配数据（用于初始化）
      */
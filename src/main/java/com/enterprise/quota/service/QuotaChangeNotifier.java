@@ -0,0 +1,73 @@
+package com.enterprise.quota.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 企业定额变更通知
+ * 由JPA实体监听器调用，同一事务内的多次变更按版本合并，在事务结束后发布一次 QuotaDataChangedEvent，
+ * 保证监听方（如预编译索引）重建时读到的是已提交的数据
+ */
+@Component
+public class QuotaChangeNotifier {
+    
+    private static final Object PENDING_KEY = QuotaChangeNotifier.class.getName() + ".PENDING";
+    
+    private static volatile QuotaChangeNotifier instance;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @PostConstruct
+    public void register() {
+        instance = this;
+    }
+    
+    /**
+     * 通知指定版本的定额数据已变更
+     * @param versionId 定额版本ID（可为null）
+     */
+    @SuppressWarnings("unchecked")
+    public static void notifyChanged(Long versionId) {
+        QuotaChangeNotifier notifier = instance;
+        if (notifier == null) {
+            return;
+        }
+        
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifier.publish(Collections.singleton(versionId));
+            return;
+        }
+        
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            Set<Long> versionIds = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, versionIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+                    notifier.publish(versionIds);
+                }
+            });
+            pending = versionIds;
+        }
+        pending.add(versionId);
+    }
+    
+    private void publish(Set<Long> versionIds) {
+        try {
+            eventPublisher.publishEvent(new QuotaDataChangedEvent(new HashSet<>(versionIds)));
+        } catch (Exception e) {
+            System.err.println("发布定额变更事件失败: " + e.getMessage());
+        }
+    }
+}
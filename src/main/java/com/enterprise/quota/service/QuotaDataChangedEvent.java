@@ -0,0 +1,19 @@
+package com.enterprise.quota.service;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 企业定额数据变更事件（事务提交后发布）
+ * versionIds 中的 null 表示未指定版本的定额
+ */
+public class QuotaDataChangedEvent {
+    
+    private final Set<Long> versionIds;
+    
+    public QuotaDataChangedEvent(Set<Long> versionIds) {
+        this.versionIds = Collections.unmodifiableSet(versionIds);
+    }
+    
+    public Set<Long> getVersionIds() { return versionIds; }
+}
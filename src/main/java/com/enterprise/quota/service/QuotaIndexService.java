@@ -0,0 +1,401 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.repository.EnterpriseQuotaRepository;
+import com.enterprise.quota.util.CompiledQuotaIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预编译定额索引服务
+ * 每个定额版本一个索引文件，导入定额时编译，匹配时优先使用内存中的索引，其次读取索引文件，
+ * 只有文件不存在或与数据库中的定额不一致时才重新编译；定额写入后对应版本的索引文件被标记为失效（删除）
+ *
+ * 定额列表和预编译索引按版本缓存在内存中（读穿透，同一版本的并发匹配共用一份），
+ * 总占用按估算值限制在配置的预算内，超出时淘汰最久未使用的版本；定额变更事件到达后对应版本立即失效
+ */
+@Service
+public class QuotaIndexService implements MeterBinder {
+
+    // 未指定版本（全部定额）使用的索引键
+    private static final long ALL_VERSIONS = -1L;
+
+    private static final int MAX_RECENT_SNAPSHOTS = 32;
+
+    @Autowired
+    private EnterpriseQuotaRepository quotaRepository;
+
+    @Value("${quota.index.dir:./quota-index}")
+    private String indexDir;
+
+    // 定额缓存内存预算（MB）
+    @Value("${quota.cache.max-mb:256}")
+    private long cacheMaxMb;
+
+    // 版本键 -> 缓存的定额列表和预编译索引（按访问顺序排列，最久未使用的在前），由自身加锁
+    private final LinkedHashMap<Long, CachedVersion> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // 版本键 -> 失效次数：加载期间版本被失效时，加载结果不放入缓存
+    private final Map<Long, Long> generations = new HashMap<>();
+
+    private long cachedBytes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+
+    // 最近使用过的索引修订号 -> 定额指纹快照（增量匹配时用于找出变化的定额），只保留最近的若干个
+    private final Map<Long, CompiledQuotaIndex.Snapshot> recentSnapshots = Collections.synchronizedMap(
+            new LinkedHashMap<Long, CompiledQuotaIndex.Snapshot>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CompiledQuotaIndex.Snapshot> eldest) {
+                    return size() > MAX_RECENT_SNAPSHOTS;
+                }
+            });
+
+    /**
+     * 加载定额（按ID升序，与索引slot顺序一致），优先使用缓存
+     * 返回的列表不可修改，其中的定额实体由所有调用方共用，不能修改
+     * @param versionId 定额版本ID，为null时加载全部定额
+     */
+    public List<EnterpriseQuota> loadQuotas(Long versionId) {
+        long key = keyOf(versionId);
+        CachedVersion cached = getCached(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.quotas;
+        }
+
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            cached = getCached(key);
+            if (cached != null) {
+                hits.increment();
+                return cached.quotas;
+            }
+            misses.increment();
+            long generation = generationOf(key);
+            List<EnterpriseQuota> quotas = readQuotas(versionId);
+            putCached(key, generation, new CachedVersion(quotas));
+            return quotas;
+        }
+    }
+
+    /**
+     * 按ID查找定额，优先从已缓存的版本中查找
+     */
+    public Optional<EnterpriseQuota> findQuota(Long quotaId) {
+        EnterpriseQuota quota = getCachedQuota(quotaId);
+        return quota != null ? Optional.of(quota) : quotaRepository.findById(quotaId);
+    }
+
+    /**
+     * 从已缓存的版本中查找定额，未缓存时返回null
+     */
+    public EnterpriseQuota getCachedQuota(Long quotaId) {
+        if (quotaId == null) {
+            return null;
+        }
+        synchronized (cache) {
+            for (CachedVersion cached : cache.values()) {
+                EnterpriseQuota quota = cached.find(quotaId);
+                if (quota != null) {
+                    return quota;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取与给定定额列表一致的预编译索引
+     * @param versionId 定额版本ID（可为null）
+     * @param quotas 通过 loadQuotas 加载的定额列表
+     */
+    public CompiledQuotaIndex getIndex(Long versionId, List<EnterpriseQuota> quotas) {
+        CompiledQuotaIndex index = findIndex(versionId, quotas);
+        recentSnapshots.computeIfAbsent(index.getRevision(), revision -> index.snapshot());
+        return index;
+    }
+
+    /**
+     * 最近使用过的索引快照（按最近使用顺序，最早的在前）
+     */
+    public List<CompiledQuotaIndex.Snapshot> getRecentSnapshots() {
+        synchronized (recentSnapshots) {
+            return new ArrayList<>(recentSnapshots.values());
+        }
+    }
+
+    private CompiledQuotaIndex findIndex(Long versionId, List<EnterpriseQuota> quotas) {
+        long key = keyOf(versionId);
+        // 缓存中的定额列表随定额变更失效，同一列表上编译的索引无需再逐条比对指纹
+        CompiledQuotaIndex index = cachedIndex(key, quotas);
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            index = cachedIndex(key, quotas);
+            if (index != null) {
+                return index;
+            }
+
+            Path file = indexFile(key);
+            if (Files.exists(file)) {
+                long start = System.currentTimeMillis();
+                try {
+                    index = CompiledQuotaIndex.readFrom(file);
+                } catch (IOException e) {
+                    System.err.println("读取定额索引文件失败: " + file + ", 错误: " + e.getMessage());
+                    index = null;
+                }
+                if (index != null && index.matches(quotas)) {
+                    attachIndex(key, quotas, index);
+                    System.out.println("已加载定额索引文件: " + file + ", 定额数量: " + index.size()
+                            + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+                    return index;
+                }
+            }
+
+            return compileAndStore(key, versionId, quotas);
+        }
+    }
+
+    /**
+     * 重新编译指定版本的索引（导入定额后调用）
+     */
+    public CompiledQuotaIndex rebuild(Long versionId) {
+        long key = keyOf(versionId);
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            invalidate(key);
+            return compileAndStore(key, versionId, loadQuotas(versionId));
+        }
+    }
+
+    /**
+     * 标记指定版本的索引失效（同时移出缓存）
+     */
+    public void markStale(Long versionId) {
+        long key = keyOf(versionId);
+        invalidate(key);
+        try {
+            Files.deleteIfExists(indexFile(key));
+        } catch (IOException e) {
+            System.err.println("删除定额索引文件失败: " + indexFile(key) + ", 错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 定额数据变更后，使对应版本以及全部定额的索引失效
+     */
+    @EventListener
+    public void onQuotaDataChanged(QuotaDataChangedEvent event) {
+        for (Long versionId : event.getVersionIds()) {
+            if (versionId != null) {
+                markStale(versionId);
+            }
+        }
+        markStale(null);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("quota.cache.hits", hits, LongAdder::sum)
+                .description("定额缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("quota.cache.misses", misses, LongAdder::sum)
+                .description("定额缓存未命中次数")
+                .register(registry);
+        Gauge.builder("quota.cache.versions", this, service -> service.cacheStats()[0])
+                .description("已缓存的定额版本数")
+                .register(registry);
+        Gauge.builder("quota.cache.bytes", this, service -> service.cacheStats()[1])
+                .description("定额缓存估算占用（字节）")
+                .register(registry);
+    }
+
+    private long[] cacheStats() {
+        synchronized (cache) {
+            return new long[] {cache.size(), cachedBytes};
+        }
+    }
+
+    private List<EnterpriseQuota> readQuotas(Long versionId) {
+        List<EnterpriseQuota> quotas = new ArrayList<>(versionId != null
+                ? quotaRepository.findByVersionId(versionId)
+                : quotaRepository.findAll());
+        quotas.sort(Comparator.comparing(EnterpriseQuota::getId));
+        return Collections.unmodifiableList(quotas);
+    }
+
+    private CachedVersion getCached(long key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private CompiledQuotaIndex cachedIndex(long key, List<EnterpriseQuota> quotas) {
+        synchronized (cache) {
+            CachedVersion cached = cache.get(key);
+            if (cached != null && cached.quotas == quotas && cached.index != null && cached.index.isCurrentRules()) {
+                return cached.index;
+            }
+            return null;
+        }
+    }
+
+    private void attachIndex(long key, List<EnterpriseQuota> quotas, CompiledQuotaIndex index) {
+        synchronized (cache) {
+            CachedVersion cached = cache.get(key);
+            if (cached != null && cached.quotas == quotas) {
+                cached.index = index;
+            }
+        }
+    }
+
+    private long generationOf(long key) {
+        synchronized (cache) {
+            return generations.getOrDefault(key, 0L);
+        }
+    }
+
+    private void putCached(long key, long generation, CachedVersion entry) {
+        long maxBytes = cacheMaxMb * 1024 * 1024;
+        synchronized (cache) {
+            if (generation != generations.getOrDefault(key, 0L)) {
+                return;
+            }
+            if (entry.bytes > maxBytes) {
+                System.out.println("定额版本 " + (key == ALL_VERSIONS ? "全部" : String.valueOf(key))
+                        + " 估算占用 " + entry.bytes / (1024 * 1024) + "MB，超出缓存预算 " + cacheMaxMb + "MB，不缓存");
+                return;
+            }
+            CachedVersion previous = cache.put(key, entry);
+            if (previous != null) {
+                cachedBytes -= previous.bytes;
+            }
+            cachedBytes += entry.bytes;
+
+            Iterator<Map.Entry<Long, CachedVersion>> it = cache.entrySet().iterator();
+            while (cachedBytes > maxBytes && it.hasNext()) {
+                Map.Entry<Long, CachedVersion> eldest = it.next();
+                if (eldest.getValue() == entry) {
+                    continue;
+                }
+                it.remove();
+                cachedBytes -= eldest.getValue().bytes;
+                System.out.println("定额缓存超出预算，移出版本: "
+                        + (eldest.getKey() == ALL_VERSIONS ? "全部" : String.valueOf(eldest.getKey())));
+            }
+        }
+    }
+
+    private void invalidate(long key) {
+        synchronized (cache) {
+            generations.merge(key, 1L, Long::sum);
+            CachedVersion removed = cache.remove(key);
+            if (removed != null) {
+                cachedBytes -= removed.bytes;
+            }
+        }
+    }
+
+    private CompiledQuotaIndex compileAndStore(long key, Long versionId, List<EnterpriseQuota> quotas) {
+        long start = System.currentTimeMillis();
+        CompiledQuotaIndex index = CompiledQuotaIndex.compile(versionId, quotas);
+        attachIndex(key, quotas, index);
+
+        Path file = indexFile(key);
+        try {
+            index.writeTo(file);
+        } catch (IOException e) {
+            // 写文件失败不影响本次匹配，下次重新编译
+            System.err.println("写入定额索引文件失败: " + file + ", 错误: " + e.getMessage());
+        }
+        System.out.println("定额索引编译完成，版本: " + (versionId != null ? versionId : "全部")
+                + ", 定额数量: " + index.size() + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+        return index;
+    }
+
+    private Path indexFile(long key) {
+        String fileName = key == ALL_VERSIONS ? "all.qidx" : "version-" + key + ".qidx";
+        return Paths.get(indexDir, fileName);
+    }
+
+    private static long keyOf(Long versionId) {
+        return versionId != null ? versionId : ALL_VERSIONS;
+    }
+
+    /**
+     * 一个版本的缓存：按ID升序的定额列表，以及在该列表上编译的索引（首次匹配时生成）
+     */
+    private static class CachedVersion {
+        private final List<EnterpriseQuota> quotas;
+        private final long bytes;
+        private CompiledQuotaIndex index;
+
+        CachedVersion(List<EnterpriseQuota> quotas) {
+            this.quotas = quotas;
+            this.bytes = estimateBytes(quotas);
+        }
+
+        EnterpriseQuota find(Long quotaId) {
+            int low = 0;
+            int high = quotas.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = quotas.get(mid).getId();
+                if (id < quotaId) {
+                    low = mid + 1;
+                } else if (id > quotaId) {
+                    high = mid - 1;
+                } else {
+                    return quotas.get(mid);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 估算定额列表和预编译索引的内存占用：实体及数值字段按固定开销计；名称、特征值除实体中的字符串外，
+         * 索引中还有清理后的文本和关键词，按4份、每字符2字节计
+         */
+        private static long estimateBytes(List<EnterpriseQuota> quotas) {
+            long bytes = 0;
+            for (EnterpriseQuota quota : quotas) {
+                bytes += 400;
+                bytes += 8L * (length(quota.getQuotaName()) + length(quota.getFeatureValue()));
+                bytes += 2L * (length(quota.getQuotaCode()) + length(quota.getUnit()) + length(quota.getRemark()));
+            }
+            return bytes;
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+}
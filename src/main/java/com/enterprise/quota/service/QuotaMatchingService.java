@@ -3,29 +3,32 @@ package com.enterprise.quota.service;
 import com.enterprise.quota.entity.EnterpriseQuota;
 import com.enterprise.quota.entity.ProjectItem;
 import com.enterprise.quota.entity.ProjectItemQuota;
-import com.enterprise.quota.repository.EnterpriseQuotaRepository;
 import com.enterprise.quota.repository.ProjectItemRepository;
 import com.enterprise.quota.repository.ProjectItemQuotaRepository;
+import com.enterprise.quota.util.CompiledQuotaIndex;
+import com.enterprise.quota.util.Fingerprints;
+import com.enterprise.quota.util.KeywordDictionary;
 import com.enterprise.quota.util.KeywordExtractor;
+import com.enterprise.quota.util.PreparedText;
+import com.enterprise.quota.util.QuotaKeywordIndex;
+import com.enterprise.quota.util.ScoringModel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
 public class QuotaMatchingService {
     
-    @Autowired
-    private EnterpriseQuotaRepository quotaRepository;
-    
     @Autowired
     private ProjectItemRepository itemRepository;
     
@@ -36,8 +39,17 @@ public class QuotaMatchingService {
     private MatchingLearningService learningService;
     
     @Autowired
-    @Qualifier("matchingTaskExecutor")
-    private Executor matchingTaskExecutor;
+    private QuotaIndexService quotaIndexService;
+    
+    @Autowired
+    private LearningEventSink learningEventSink;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    @Qualifier("matchingForkJoinPool")
+    private ForkJoinPool matchingPool;
     
     @Value("${quota.matching.batch-size:200}")
     private int matchingBatchSize;
@@ -45,6 +57,48 @@ public class QuotaMatchingService {
     @Value("${quota.matching.save-batch-size:100}")
     private int saveBatchSize;
     
+    // 流水线匹配：按页读取清单、并行匹配、每页单独提交事务
+    @Value("${quota.matching.pipeline.enabled:true}")
+    private boolean pipelineEnabled;
+    
+    @Value("${quota.matching.pipeline.page-size:1000}")
+    private int pipelinePageSize;
+    
+    // 每页提交事务的超时时间（秒）
+    @Value("${quota.matching.pipeline.commit-timeout-seconds:60}")
+    private int pipelineCommitTimeoutSeconds;
+    
+    // 是否使用关键词倒排索引筛选候选定额（关闭后回退为全量扫描）
+    @Value("${quota.matching.inverted-index.enabled:true}")
+    private boolean invertedIndexEnabled;
+    
+    // 校验模式：同时执行全量扫描并比对结果，不一致时以全量扫描为准并输出日志
+    @Value("${quota.matching.inverted-index.verify:false}")
+    private boolean invertedIndexVerify;
+    
+    // 自动匹配的最低得分
+    private static final double MATCH_THRESHOLD = 0.3;
+    
+    // 剪枝时被跳过的定额得分
+    private static final double PRUNED_SCORE = -1.0;
+    
+    // 得分上界比较时容忍的浮点误差
+    private static final double BOUND_EPSILON = 1e-9;
+    
+    // 批量查询时每个 IN 条件的最大参数个数
+    private static final int IN_QUERY_BATCH_SIZE = 1000;
+    
+    // 并行匹配时每个工作线程平均分到的子任务数（子任务越多，窃取越均衡）
+    private static final int LEAVES_PER_WORKER = 8;
+    
+    // 单条清单的固定匹配开销（按字符数计），清单开销 = 固定开销 + 名称和特征值长度
+    private static final int ITEM_BASE_COST = 64;
+    
+    // 堆顶为最差的候选：得分低者更差，得分相同时定额ID大者更差
+    private static final Comparator<MatchScore> WORST_FIRST = Comparator
+            .comparingDouble((MatchScore m) -> m.score)
+            .thenComparing(m -> m.quota.getId(), Comparator.reverseOrder());
+    
     /**
      * 多线程并行匹配（优化版本，充分利用多核CPU）
      */
@@ -72,6 +126,7 @@ public class QuotaMatchingService {
                 .collect(Collectors.toList());
         for (ProjectItem item : itemsWithoutUnit) {
             item.setMatchStatus(0);
+            item.setMatchRevision(null);
         }
         
         if (itemsToMatch.isEmpty()) {
@@ -82,18 +137,14 @@ public class QuotaMatchingService {
             return 0;
         }
         
-        // 获取所有定额（如果指定了版本，则只获取该版本的定额）
-        List<EnterpriseQuota> allQuotas;
-        if (versionId != null) {
-            allQuotas = quotaRepository.findByVersionId(versionId);
-        } else {
-            allQuotas = quotaRepository.findAll();
-        }
+        // 获取所有定额（如果指定了版本，则只获取该版本的定额），按ID排序与预编译索引对齐
+        List<EnterpriseQuota> allQuotas = quotaIndexService.loadQuotas(versionId);
         
         if (allQuotas.isEmpty()) {
             // 如果没有定额，标记所有项目为未匹配
             for (ProjectItem item : itemsToMatch) {
                 item.setMatchStatus(0);
+                item.setMatchRevision(null);
             }
             itemRepository.saveAll(itemsToMatch);
             if (!itemsWithoutUnit.isEmpty()) {
@@ -102,70 +153,23 @@ public class QuotaMatchingService {
             return 0;
         }
         
-        // 性能优化：预提取所有定额的关键词并缓存（只执行一次）
-        Map<Long, List<String>> quotaKeywordsCache = new ConcurrentHashMap<>();
-        Map<Long, String> quotaNameCache = new ConcurrentHashMap<>();
-        Map<Long, String> quotaFeatureCache = new ConcurrentHashMap<>();
+        // 性能优化：使用预编译的定额索引（关键词、清理后的名称/特征），只在定额变化后重新编译
+        CompiledQuotaIndex quotaIndex = quotaIndexService.getIndex(versionId, allQuotas);
         
-        System.out.println("开始预提取定额关键词，定额数量: " + allQuotas.size());
-        for (EnterpriseQuota quota : allQuotas) {
-            List<String> keywords = new ArrayList<>();
-            if (quota.getQuotaName() != null && !quota.getQuotaName().trim().isEmpty()) {
-                keywords.addAll(KeywordExtractor.extractKeywords(quota.getQuotaName()));
-                quotaNameCache.put(quota.getId(), quota.getQuotaName());
-            }
-            if (quota.getFeatureValue() != null && !quota.getFeatureValue().trim().isEmpty()) {
-                keywords.addAll(KeywordExtractor.extractKeywords(quota.getFeatureValue()));
-                quotaFeatureCache.put(quota.getId(), quota.getFeatureValue());
-            }
-            quotaKeywordsCache.put(quota.getId(), keywords);
-        }
-        System.out.println("定额关键词预提取完成");
+        // 关键词倒排索引随预编译索引一起构建，所有批次共享
+        QuotaKeywordIndex keywordIndex = invertedIndexEnabled ? quotaIndex.getKeywordIndex() : null;
+        RematchContext rematch = newRematchContext(quotaIndex, false);
         
-        // 将项目清单分割成多个批次，用于并行处理
+        // 在工作窃取线程池中按估算开销拆分并行匹配
         int totalItems = itemsToMatch.size();
-        int batchCount = Math.max(1, (totalItems + matchingBatchSize - 1) / matchingBatchSize);
-        System.out.println("开始并行匹配，总项目数: " + totalItems + ", 批次数量: " + batchCount);
-        
-        // 使用线程安全的集合收集结果
-        List<ProjectItem> allMatchedItems = Collections.synchronizedList(new ArrayList<>());
-        AtomicInteger matchedCount = new AtomicInteger(0);
-        CountDownLatch latch = new CountDownLatch(batchCount);
-        
-        // 提交并行匹配任务
-        for (int i = 0; i < batchCount; i++) {
-            final int batchIndex = i;
-            final int start = i * matchingBatchSize;
-            final int end = Math.min(start + matchingBatchSize, totalItems);
-            final List<ProjectItem> batchItems = itemsToMatch.subList(start, end);
-            
-            matchingTaskExecutor.execute(() -> {
-                try {
-                    int batchMatched = processBatch(batchItems, allQuotas, quotaKeywordsCache, 
-                            quotaNameCache, quotaFeatureCache, allMatchedItems);
-                    matchedCount.addAndGet(batchMatched);
-                } catch (Exception e) {
-                    System.err.println("批次 " + batchIndex + " 处理失败: " + e.getMessage());
-                    e.printStackTrace();
-                } finally {
-                    latch.countDown();
-                }
-            });
-        }
-        
-        // 等待所有批次完成
-        try {
-            boolean finished = latch.await(30, TimeUnit.MINUTES);
-            if (!finished) {
-                System.err.println("警告: 匹配任务超时，部分批次可能未完成");
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("匹配任务被中断");
-        }
+        System.out.println("开始并行匹配，总项目数: " + totalItems + ", 并行度: " + matchingPool.getParallelism());
+        long matchStart = System.nanoTime();
+        MatchRun run = prepareRun(itemsToMatch, allQuotas, quotaIndex, keywordIndex, rematch, MatchProgressListener.NONE);
+        MatchResult result = matchingPool.invoke(new MatchTask(run, 0, run.groups.size())).forRun(run);
+        System.out.println("并行匹配" + result.describe(System.nanoTime() - matchStart, matchingPool.getParallelism()));
         
         // 合并所有结果
-        List<ProjectItem> allItemsToSave = new ArrayList<>(allMatchedItems);
+        List<ProjectItem> allItemsToSave = result.items();
         allItemsToSave.addAll(itemsWithoutUnit);
         
         // 批量保存所有结果
@@ -173,7 +177,7 @@ public class QuotaMatchingService {
         saveItemsInBatches(allItemsToSave, saveBatchSize);
         
         long endTime = System.currentTimeMillis();
-        int finalMatchedCount = matchedCount.get();
+        int finalMatchedCount = result.matchedCount;
         System.out.println("匹配完成，共匹配 " + finalMatchedCount + " 条，耗时: " + (endTime - startTime) + "ms");
         
         return finalMatchedCount;
@@ -184,7 +188,7 @@ public class QuotaMatchingService {
      * 按用户ID过滤项目清单
      */
     @Transactional(timeout = 3600) // 增加事务超时时间到1小时
-    public int batchMatchQuotasForUser(Long userId, Long versionId) {
+    public int batchMatchQuotasForUser(Long userId, Long versionId, boolean force) {
         long startTime = System.currentTimeMillis();
         
         // 获取指定用户的所有需要匹配的项目清单
@@ -207,6 +211,7 @@ public class QuotaMatchingService {
                 .collect(Collectors.toList());
         for (ProjectItem item : itemsWithoutUnit) {
             item.setMatchStatus(0);
+            item.setMatchRevision(null);
         }
         
         if (itemsToMatch.isEmpty()) {
@@ -217,18 +222,14 @@ public class QuotaMatchingService {
             return 0;
         }
         
-        // 获取所有定额（如果指定了版本，则只获取该版本的定额）
-        List<EnterpriseQuota> allQuotas;
-        if (versionId != null) {
-            allQuotas = quotaRepository.findByVersionId(versionId);
-        } else {
-            allQuotas = quotaRepository.findAll();
-        }
+        // 获取所有定额（如果指定了版本，则只获取该版本的定额），按ID排序与预编译索引对齐
+        List<EnterpriseQuota> allQuotas = quotaIndexService.loadQuotas(versionId);
         
         if (allQuotas.isEmpty()) {
             // 如果没有定额，标记所有项目为未匹配
             for (ProjectItem item : itemsToMatch) {
                 item.setMatchStatus(0);
+                item.setMatchRevision(null);
             }
             itemRepository.saveAll(itemsToMatch);
             if (!itemsWithoutUnit.isEmpty()) {
@@ -237,70 +238,23 @@ public class QuotaMatchingService {
             return 0;
         }
         
-        // 性能优化：预提取所有定额的关键词并缓存（只执行一次）
-        Map<Long, List<String>> quotaKeywordsCache = new ConcurrentHashMap<>();
-        Map<Long, String> quotaNameCache = new ConcurrentHashMap<>();
-        Map<Long, String> quotaFeatureCache = new ConcurrentHashMap<>();
+        // 性能优化：使用预编译的定额索引（关键词、清理后的名称/特征），只在定额变化后重新编译
+        CompiledQuotaIndex quotaIndex = quotaIndexService.getIndex(versionId, allQuotas);
         
-        System.out.println("开始预提取定额关键词，定额数量: " + allQuotas.size());
-        for (EnterpriseQuota quota : allQuotas) {
-            List<String> keywords = new ArrayList<>();
-            if (quota.getQuotaName() != null && !quota.getQuotaName().trim().isEmpty()) {
-                keywords.addAll(KeywordExtractor.extractKeywords(quota.getQuotaName()));
-                quotaNameCache.put(quota.getId(), quota.getQuotaName());
-            }
-            if (quota.getFeatureValue() != null && !quota.getFeatureValue().trim().isEmpty()) {
-                keywords.addAll(KeywordExtractor.extractKeywords(quota.getFeatureValue()));
-                quotaFeatureCache.put(quota.getId(), quota.getFeatureValue());
-            }
-            quotaKeywordsCache.put(quota.getId(), keywords);
-        }
-        System.out.println("定额关键词预提取完成");
+        // 关键词倒排索引随预编译索引一起构建，所有批次共享
+        QuotaKeywordIndex keywordIndex = invertedIndexEnabled ? quotaIndex.getKeywordIndex() : null;
+        RematchContext rematch = newRematchContext(quotaIndex, force);
         
-        // 将项目清单分割成多个批次，用于并行处理
+        // 在工作窃取线程池中按估算开销拆分并行匹配
         int totalItems = itemsToMatch.size();
-        int batchCount = Math.max(1, (totalItems + matchingBatchSize - 1) / matchingBatchSize);
-        System.out.println("开始并行匹配，总项目数: " + totalItems + ", 批次数量: " + batchCount);
-        
-        // 使用线程安全的集合收集结果
-        List<ProjectItem> allMatchedItems = Collections.synchronizedList(new ArrayList<>());
-        AtomicInteger matchedCount = new AtomicInteger(0);
-        CountDownLatch latch = new CountDownLatch(batchCount);
-        
-        // 提交并行匹配任务
-        for (int i = 0; i < batchCount; i++) {
-            final int batchIndex = i;
-            final int start = i * matchingBatchSize;
-            final int end = Math.min(start + matchingBatchSize, totalItems);
-            final List<ProjectItem> batchItems = itemsToMatch.subList(start, end);
-            
-            matchingTaskExecutor.execute(() -> {
-                try {
-                    int batchMatched = processBatch(batchItems, allQuotas, quotaKeywordsCache, 
-                            quotaNameCache, quotaFeatureCache, allMatchedItems);
-                    matchedCount.addAndGet(batchMatched);
-                } catch (Exception e) {
-                    System.err.println("批次 " + batchIndex + " 处理失败: " + e.getMessage());
-                    e.printStackTrace();
-                } finally {
-                    latch.countDown();
-                }
-            });
-        }
-        
-        // 等待所有批次完成
-        try {
-            boolean finished = latch.await(30, TimeUnit.MINUTES);
-            if (!finished) {
-                System.err.println("警告: 匹配任务超时，部分批次可能未完成");
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("匹配任务被中断");
-        }
+        System.out.println("开始并行匹配，总项目数: " + totalItems + ", 并行度: " + matchingPool.getParallelism());
+        long matchStart = System.nanoTime();
+        MatchRun run = prepareRun(itemsToMatch, allQuotas, quotaIndex, keywordIndex, rematch, MatchProgressListener.NONE);
+        MatchResult result = matchingPool.invoke(new MatchTask(run, 0, run.groups.size())).forRun(run);
+        System.out.println("并行匹配" + result.describe(System.nanoTime() - matchStart, matchingPool.getParallelism()));
         
         // 合并所有结果
-        List<ProjectItem> allItemsToSave = new ArrayList<>(allMatchedItems);
+        List<ProjectItem> allItemsToSave = result.items();
         allItemsToSave.addAll(itemsWithoutUnit);
         
         // 批量保存所有结果
@@ -308,96 +262,503 @@ public class QuotaMatchingService {
         saveItemsInBatches(allItemsToSave, saveBatchSize);
         
         long endTime = System.currentTimeMillis();
-        int finalMatchedCount = matchedCount.get();
+        int finalMatchedCount = result.matchedCount;
         System.out.println("匹配完成，共匹配 " + finalMatchedCount + " 条，耗时: " + (endTime - startTime) + "ms");
         
         return finalMatchedCount;
     }
     
     /**
-     * 处理一个批次的匹配任务
+     * 是否启用流水线匹配
      */
-    private int processBatch(List<ProjectItem> batchItems, List<EnterpriseQuota> allQuotas,
-                            Map<Long, List<String>> quotaKeywordsCache,
-                            Map<Long, String> quotaNameCache,
-                            Map<Long, String> quotaFeatureCache,
-                            List<ProjectItem> resultList) {
-        int matchedCount = 0;
-        List<ProjectItem> batchResults = new ArrayList<>();
+    public boolean isPipelineEnabled() {
+        return pipelineEnabled;
+    }
+    
+    /**
+     * 流水线匹配（按用户ID过滤项目清单）
+     * 按ID游标逐页读取清单，每页拆分成批次提交到匹配线程池，匹配完成的页在独立的短事务中提交；
+     * 当前页匹配的同时提交上一页并读取下一页。内存中最多保留两页清单，不长时间占用数据库连接，
+     * 中途失败时已提交的页保持已提交状态
+     */
+    public int batchMatchQuotasForUserPipelined(Long userId, Long versionId, boolean force) {
+        return batchMatchQuotasForUserPipelined(userId, versionId, force, MatchProgressListener.NONE);
+    }
+    
+    /**
+     * 流水线匹配，并向监听器报告进度；取消请求在页、批次边界生效，已开始的批次执行完并提交
+     * @param force 为true时忽略增量匹配记录，全部重新匹配
+     */
+    public int batchMatchQuotasForUserPipelined(Long userId, Long versionId, boolean force,
+                                                MatchProgressListener progress) {
+        long startTime = System.currentTimeMillis();
+        progress.onStart(itemRepository.countByUserId(userId));
         
-        for (ProjectItem item : batchItems) {
-            // 提取项目清单的关键词（只提取一次）
-            List<String> itemKeywords = new ArrayList<>();
-            String itemName = item.getItemName() != null ? item.getItemName().trim() : "";
-            String itemFeature = item.getFeatureValue() != null ? item.getFeatureValue().trim() : "";
+        // 获取所有定额（如果指定了版本，则只获取该版本的定额），按ID排序与预编译索引对齐
+        List<EnterpriseQuota> allQuotas = quotaIndexService.loadQuotas(versionId);
+        CompiledQuotaIndex quotaIndex = allQuotas.isEmpty() ? null : quotaIndexService.getIndex(versionId, allQuotas);
+        QuotaKeywordIndex keywordIndex = quotaIndex != null && invertedIndexEnabled ? quotaIndex.getKeywordIndex() : null;
+        RematchContext rematch = quotaIndex != null ? newRematchContext(quotaIndex, force) : null;
+        
+        TransactionTemplate commitTemplate = new TransactionTemplate(transactionManager);
+        commitTemplate.setTimeout(pipelineCommitTimeoutSeconds);
+        
+        int pageSize = Math.max(1, pipelinePageSize);
+        int matchedCount = 0;
+        int pageCount = 0;
+        int totalItems = 0;
+        
+        long cpuNanos = 0;
+        int distinctCount = 0;
+        ForkJoinTask<PageResult> inFlight = null;
+        List<ProjectItem> page = itemRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                userId, 0L, PageRequest.of(0, pageSize));
+        while (!page.isEmpty() && !progress.isCancelled()) {
+            Long lastId = page.get(page.size() - 1).getId();
+            totalItems += page.size();
+            pageCount++;
             
-            if (!itemName.isEmpty()) {
-                itemKeywords.addAll(KeywordExtractor.extractKeywords(itemName));
-            }
-            if (!itemFeature.isEmpty()) {
-                itemKeywords.addAll(KeywordExtractor.extractKeywords(itemFeature));
+            ForkJoinTask<PageResult> current = matchPageAsync(page, allQuotas, quotaIndex, keywordIndex, rematch, progress);
+            if (inFlight != null) {
+                PageResult result = inFlight.join();
+                cpuNanos += result.cpuNanos;
+                distinctCount += result.distinctCount;
+                matchedCount += commitPage(result, commitTemplate);
             }
+            inFlight = current;
             
-            if (itemKeywords.isEmpty()) {
-                item.setMatchStatus(0);
-                batchResults.add(item);
+            page = page.size() < pageSize ? Collections.emptyList()
+                    : itemRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, lastId, PageRequest.of(0, pageSize));
+        }
+        if (inFlight != null) {
+            PageResult result = inFlight.join();
+            cpuNanos += result.cpuNanos;
+            distinctCount += result.distinctCount;
+            matchedCount += commitPage(result, commitTemplate);
+        }
+        
+        long elapsedMs = System.currentTimeMillis() - startTime;
+        System.out.println("流水线匹配完成，项目数: " + totalItems + ", 去重后匹配: " + distinctCount + ", 页数: " + pageCount
+                + ", 共匹配 " + matchedCount + " 条，耗时: " + elapsedMs + "ms"
+                + ", " + MatchResult.describeCpu(cpuNanos, elapsedMs * 1_000_000L, matchingPool.getParallelism())
+                + ", 关键词缓存命中率: " + String.format("%.1f%%", KeywordExtractor.getPreparedTextCache().getHitRate() * 100));
+        return matchedCount;
+    }
+    
+    /**
+     * 异步匹配一页清单：需要匹配的清单提交到工作窃取线程池并行匹配，没有单位的清单直接标记为未匹配
+     */
+    private ForkJoinTask<PageResult> matchPageAsync(List<ProjectItem> page, List<EnterpriseQuota> allQuotas,
+                                                          CompiledQuotaIndex quotaIndex,
+                                                          QuotaKeywordIndex keywordIndex,
+                                                          RematchContext rematch,
+                                                          MatchProgressListener progress) {
+        List<ProjectItem> itemsToMatch = new ArrayList<>();
+        List<ProjectItem> itemsToSave = new ArrayList<>();
+        for (ProjectItem item : page) {
+            // 跳过手动修改（单定额）和多定额匹配的项目
+            if (item.getMatchStatus() != null && (item.getMatchStatus() == 2 || item.getMatchStatus() == 3)) {
                 continue;
             }
-            
-            // 使用优化的双向匹配算法找到最佳匹配
-            EnterpriseQuota matchedQuota = findBestMatchOptimized(item, allQuotas, 
-                    quotaKeywordsCache, quotaNameCache, quotaFeatureCache);
-            
-            if (matchedQuota != null) {
-                item.setMatchedQuotaId(matchedQuota.getId());
-                item.setMatchedQuotaCode(matchedQuota.getQuotaCode());
-                item.setMatchedQuotaName(matchedQuota.getQuotaName());
-                item.setMatchedQuotaFeatureValue(matchedQuota.getFeatureValue());
-                item.setMatchedUnitPrice(matchedQuota.getUnitPrice());
-                item.setMatchStatus(1);
-                
-                if (item.getQuantity() != null && matchedQuota.getUnitPrice() != null) {
-                    item.setTotalPrice(item.getQuantity().multiply(matchedQuota.getUnitPrice()));
+            // 只有单位列有数据才进行匹配
+            if (item.getUnit() == null || item.getUnit().trim().isEmpty() || quotaIndex == null) {
+                // 已经是未匹配状态的清单无需重复写入
+                if (item.getMatchStatus() == null || item.getMatchStatus() != 0 || item.getMatchRevision() != null) {
+                    item.setMatchStatus(0);
+                    item.setMatchRevision(null);
+                    itemsToSave.add(item);
                 }
-                
-                // 异步收集学习数据（不阻塞主流程）
-                collectLearningDataAsync(item, matchedQuota, itemKeywords, itemName, itemFeature,
-                        quotaKeywordsCache.get(matchedQuota.getId()),
-                        quotaNameCache.get(matchedQuota.getId()),
-                        quotaFeatureCache.get(matchedQuota.getId()));
-                
-                matchedCount++;
             } else {
-                item.setMatchStatus(0);
+                itemsToMatch.add(item);
             }
-            
-            batchResults.add(item);
+        }
+        progress.onBatchFinished(page.size() - itemsToMatch.size(), 0);
+        
+        return matchingPool.submit(() -> {
+            MatchRun run = prepareRun(itemsToMatch, allQuotas, quotaIndex, keywordIndex, rematch, progress);
+            MatchResult result = new MatchTask(run, 0, run.groups.size()).invoke().forRun(run);
+            List<ProjectItem> items = result.items();
+            items.addAll(itemsToSave);
+            return new PageResult(items, result.matchedCount, result.distinctCount, result.cpuNanos);
+        });
+    }
+    
+    /**
+     * 在独立的短事务中提交一页匹配结果
+     * 先按ID一次性加载该页清单，只把匹配结果字段写回；期间被手动修改为单定额/多定额的清单不覆盖
+     */
+    private int commitPage(PageResult result, TransactionTemplate commitTemplate) {
+        if (result.items.isEmpty()) {
+            return result.matchedCount;
+        }
+        Map<Long, ProjectItem> matchedById = new HashMap<>();
+        for (ProjectItem item : result.items) {
+            matchedById.put(item.getId(), item);
         }
         
-        // 将批次结果添加到总结果列表
-        resultList.addAll(batchResults);
+        commitTemplate.executeWithoutResult(status -> {
+            List<ProjectItem> managedItems = itemRepository.findAllById(matchedById.keySet());
+            for (ProjectItem managed : managedItems) {
+                if (managed.getMatchStatus() != null && (managed.getMatchStatus() == 2 || managed.getMatchStatus() == 3)) {
+                    continue;
+                }
+                ProjectItem matched = matchedById.get(managed.getId());
+                managed.setMatchedQuotaId(matched.getMatchedQuotaId());
+                managed.setMatchedQuotaCode(matched.getMatchedQuotaCode());
+                managed.setMatchedQuotaName(matched.getMatchedQuotaName());
+                managed.setMatchedQuotaFeatureValue(matched.getMatchedQuotaFeatureValue());
+                managed.setMatchedUnitPrice(matched.getMatchedUnitPrice());
+                managed.setTotalPrice(matched.getTotalPrice());
+                managed.setMatchStatus(matched.getMatchStatus());
+                managed.setMatchFingerprint(matched.getMatchFingerprint());
+                managed.setMatchRevision(matched.getMatchRevision());
+            }
+        });
+        return result.matchedCount;
+    }
+    
+    /**
+     * 一页清单的匹配结果
+     */
+    private static class PageResult {
+        final List<ProjectItem> items;
+        final int matchedCount;
+        final int distinctCount;
+        final long cpuNanos;
+        
+        PageResult(List<ProjectItem> items, int matchedCount, int distinctCount, long cpuNanos) {
+            this.items = items;
+            this.matchedCount = matchedCount;
+            this.distinctCount = distinctCount;
+            this.cpuNanos = cpuNanos;
+        }
+    }
+    
+    /**
+     * 准备一次并行匹配：跳过输入和定额都未变化的清单，其余清单按文本分组（同组只匹配一次），
+     * 并按每组的估算开销计算前缀和
+     */
+    private MatchRun prepareRun(List<ProjectItem> items, List<EnterpriseQuota> allQuotas,
+                                CompiledQuotaIndex quotaIndex, QuotaKeywordIndex keywordIndex,
+                                RematchContext rematch, MatchProgressListener progress) {
+        Map<String, MatchGroup> groupsByKey = new HashMap<>();
+        List<MatchGroup> groups = new ArrayList<>();
+        int unchanged = 0;
+        int unchangedMatched = 0;
+        for (ProjectItem item : items) {
+            int[] rematchSlots = rematch.candidateSlots(item, itemFingerprint(item));
+            if (rematchSlots == RematchContext.UNCHANGED) {
+                unchanged++;
+                if (item.getMatchStatus() != null && item.getMatchStatus() == 1) {
+                    unchangedMatched++;
+                }
+                continue;
+            }
+            String key = groupKey(item, rematchSlots);
+            MatchGroup group = groupsByKey.get(key);
+            if (group == null) {
+                group = new MatchGroup(rematchSlots);
+                groupsByKey.put(key, group);
+                groups.add(group);
+            }
+            group.items.add(item);
+        }
+        if (unchanged > 0) {
+            progress.onBatchFinished(unchanged, unchangedMatched);
+        }
         
-        return matchedCount;
+        long[] costPrefix = new long[groups.size() + 1];
+        for (int i = 0; i < groups.size(); i++) {
+            ProjectItem item = groups.get(i).items.get(0);
+            costPrefix[i + 1] = costPrefix[i] + ITEM_BASE_COST + length(item.getItemName()) + length(item.getFeatureValue());
+        }
+        long leafCost = Math.max(ITEM_BASE_COST,
+                costPrefix[groups.size()] / ((long) matchingPool.getParallelism() * LEAVES_PER_WORKER));
+        return new MatchRun(groups, items.size(), unchangedMatched, costPrefix, leafCost,
+                allQuotas, quotaIndex, keywordIndex, rematch, progress);
     }
     
     /**
-     * 异步收集学习数据
+     * 清单分组键：匹配只读取去掉首尾空白的名称和特征值，文本相同的清单匹配结果相同；
+     * 增量匹配时打分范围还取决于上次的匹配修订号、匹配状态和最佳定额，一并计入
      */
-    @Async("asyncTaskExecutor")
-    public void collectLearningDataAsync(ProjectItem item, EnterpriseQuota matchedQuota,
-                                        List<String> itemKeywords, String itemName, String itemFeature,
-                                        List<String> quotaKeywords, String quotaName, String quotaFeature) {
-        try {
-            double matchScore = calculateBidirectionalMatchScoreOptimized(
-                item, matchedQuota, 
-                itemKeywords, itemName, itemFeature,
-                quotaKeywords, quotaName, quotaFeature
-            );
-            learningService.collectMatchData(item, matchedQuota, matchScore, 1);
-        } catch (Exception e) {
-            // 学习失败不影响匹配
-            System.err.println("收集学习数据失败 for item " + item.getId() + ": " + e.getMessage());
+    static String groupKey(ProjectItem item, int[] rematchSlots) {
+        StringBuilder key = new StringBuilder()
+                .append(trimmed(item.getItemName())).append('\u0001')
+                .append(trimmed(item.getFeatureValue())).append('\u0001')
+                .append(trimmed(item.getUnit()));
+        if (rematchSlots != null) {
+            key.append('\u0002').append(item.getMatchRevision())
+                    .append('\u0001').append(item.getMatchStatus())
+                    .append('\u0001').append(item.getMatchStatus() == 1 ? item.getMatchedQuotaId() : null);
+        }
+        return key.toString();
+    }
+    
+    private static String trimmed(String value) {
+        return value != null ? value.trim() : "";
+    }
+    
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+    
+    /**
+     * 文本相同的一组清单（按原顺序），只对第一条匹配，结果复制到其余清单
+     */
+    private static class MatchGroup {
+        final List<ProjectItem> items = new ArrayList<>(1);
+        final int[] rematchSlots;
+        
+        MatchGroup(int[] rematchSlots) {
+            this.rematchSlots = rematchSlots;
+        }
+    }
+    
+    /**
+     * 一次并行匹配的共享输入：待匹配的清单分组、分组开销前缀和、子任务开销阈值
+     */
+    private static class MatchRun {
+        final List<MatchGroup> groups;
+        final int itemCount;
+        final int unchangedMatched;
+        final long[] costPrefix;
+        final long leafCost;
+        final List<EnterpriseQuota> allQuotas;
+        final CompiledQuotaIndex quotaIndex;
+        final QuotaKeywordIndex keywordIndex;
+        final RematchContext rematch;
+        final MatchProgressListener progress;
+        
+        MatchRun(List<MatchGroup> groups, int itemCount, int unchangedMatched, long[] costPrefix, long leafCost,
+                 List<EnterpriseQuota> allQuotas, CompiledQuotaIndex quotaIndex, QuotaKeywordIndex keywordIndex,
+                 RematchContext rematch, MatchProgressListener progress) {
+            this.groups = groups;
+            this.itemCount = itemCount;
+            this.unchangedMatched = unchangedMatched;
+            this.costPrefix = costPrefix;
+            this.leafCost = leafCost;
+            this.allQuotas = allQuotas;
+            this.quotaIndex = quotaIndex;
+            this.keywordIndex = keywordIndex;
+            this.rematch = rematch;
+            this.progress = progress;
+        }
+        
+        long cost(int from, int to) {
+            return costPrefix[to] - costPrefix[from];
+        }
+        
+        /**
+         * 区间内开销大致对半的拆分点（from < 返回值 < to）
+         */
+        int splitPoint(int from, int to) {
+            long target = (costPrefix[from] + costPrefix[to]) / 2;
+            int low = from + 1;
+            int high = to - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (costPrefix[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+    
+    /**
+     * 工作窃取匹配任务：按估算开销把清单分组区间对半拆分，开销不超过阈值（且不超过批次大小）的区间直接匹配；
+     * 空闲线程从其他线程的队列中窃取未开始的子区间，个别特征值很长的清单不会让其余线程空等。
+     * 每个子任务把结果写入自己的列表，合并时按区间顺序拼接，不需要加锁
+     */
+    private class MatchTask extends RecursiveTask<MatchResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final MatchRun run;
+        private final int from;
+        private final int to;
+        
+        MatchTask(MatchRun run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected MatchResult compute() {
+            if (to - from <= 1 || (to - from <= matchingBatchSize && run.cost(from, to) <= run.leafCost)) {
+                return matchRange();
+            }
+            int mid = run.splitPoint(from, to);
+            MatchTask left = new MatchTask(run, from, mid);
+            left.fork();
+            MatchResult right = new MatchTask(run, mid, to).compute();
+            return left.join().merge(right);
+        }
+        
+        private MatchResult matchRange() {
+            // 已取消时未开始的区间直接跳过，这些清单保持原状态
+            if (from == to || run.progress.isCancelled()) {
+                return new MatchResult();
+            }
+            List<MatchGroup> batchGroups = run.groups.subList(from, to);
+            int itemCount = 0;
+            for (MatchGroup group : batchGroups) {
+                itemCount += group.items.size();
+            }
+            List<ProjectItem> results = new ArrayList<>(itemCount);
+            long cpuStart = MatchResult.threadCpuNanos();
+            int matched = 0;
+            try {
+                matched = processBatch(batchGroups, run.allQuotas, run.quotaIndex, run.keywordIndex, run.rematch, results);
+            } catch (Exception e) {
+                System.err.println("匹配子任务处理失败（分组 " + from + "-" + to + "）: " + e.getMessage());
+                e.printStackTrace();
+                results.clear();
+                matched = 0;
+            }
+            run.progress.onBatchFinished(itemCount, matched);
+            return new MatchResult(results, matched, MatchResult.threadCpuNanos() - cpuStart);
+        }
+    }
+    
+    /**
+     * 并行匹配结果：各子任务的结果列表（按清单顺序）、匹配数量、子任务数和CPU时间
+     */
+    private static class MatchResult {
+        private static final java.lang.management.ThreadMXBean THREADS =
+                java.lang.management.ManagementFactory.getThreadMXBean();
+        
+        private final List<List<ProjectItem>> chunks = new ArrayList<>();
+        int matchedCount;
+        int leafCount;
+        int itemCount;
+        int distinctCount;
+        long cpuNanos;
+        
+        MatchResult() {
+        }
+        
+        MatchResult(List<ProjectItem> items, int matchedCount, long cpuNanos) {
+            chunks.add(items);
+            this.matchedCount = matchedCount;
+            this.leafCount = 1;
+            this.cpuNanos = cpuNanos;
+        }
+        
+        MatchResult merge(MatchResult next) {
+            chunks.addAll(next.chunks);
+            matchedCount += next.matchedCount;
+            leafCount += next.leafCount;
+            cpuNanos += next.cpuNanos;
+            return this;
+        }
+        
+        /**
+         * 计入跳过的清单和分组统计
+         */
+        MatchResult forRun(MatchRun run) {
+            matchedCount += run.unchangedMatched;
+            itemCount = run.itemCount;
+            distinctCount = run.groups.size();
+            return this;
+        }
+        
+        /**
+         * 需要保存的清单（新列表，可继续添加）
+         */
+        List<ProjectItem> items() {
+            int size = 0;
+            for (List<ProjectItem> chunk : chunks) {
+                size += chunk.size();
+            }
+            List<ProjectItem> items = new ArrayList<>(size);
+            for (List<ProjectItem> chunk : chunks) {
+                items.addAll(chunk);
+            }
+            return items;
+        }
+        
+        String describe(long wallNanos, int parallelism) {
+            return "完成，清单数: " + itemCount + ", 去重后匹配: " + distinctCount
+                    + ", 子任务数: " + leafCount + ", 耗时: " + wallNanos / 1_000_000 + "ms, "
+                    + describeCpu(cpuNanos, wallNanos, parallelism);
+        }
+        
+        /**
+         * CPU时间和CPU利用率（匹配线程CPU时间 / (墙钟时间 × 并行度)）
+         */
+        static String describeCpu(long cpuNanos, long wallNanos, int parallelism) {
+            if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+                return "CPU利用率: 不支持统计";
+            }
+            double utilization = wallNanos > 0 ? (double) cpuNanos / ((double) wallNanos * parallelism) : 0;
+            return "CPU时间: " + cpuNanos / 1_000_000 + "ms, CPU利用率: " + String.format("%.1f%%", utilization * 100);
+        }
+        
+        static long threadCpuNanos() {
+            return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0L;
+        }
+    }
+    
+    /**
+     * 匹配一批清单分组：每组只提取一次关键词、匹配一次，结果写入组内所有清单（合价按各自的工程量计算）
+     */
+    private int processBatch(List<MatchGroup> batchGroups, List<EnterpriseQuota> allQuotas,
+                            CompiledQuotaIndex quotaIndex,
+                            QuotaKeywordIndex keywordIndex,
+                            RematchContext rematch,
+                            List<ProjectItem> resultList) {
+        int matchedCount = 0;
+        List<ProjectItem> batchResults = new ArrayList<>();
+        
+        for (MatchGroup group : batchGroups) {
+            ProjectItem first = group.items.get(0);
+            
+            // 预处理项目清单文本（关键词只提取一次）
+            ItemText itemText = new ItemText(first);
+            
+            // 使用优化的双向匹配算法找到最佳匹配；增量匹配时只对变化的定额和上次的最佳定额打分
+            MatchScore bestMatch = null;
+            if (!itemText.keywords.isEmpty()) {
+                bestMatch = group.rematchSlots != null
+                        ? findBestMatchIncremental(itemText, allQuotas, quotaIndex, keywordIndex, group.rematchSlots)
+                        : findBestMatch(first, itemText, allQuotas, quotaIndex, keywordIndex);
+            }
+            EnterpriseQuota matchedQuota = bestMatch != null ? bestMatch.quota : null;
+            
+            for (ProjectItem item : group.items) {
+                item.setMatchFingerprint(itemFingerprint(item));
+                item.setMatchRevision(rematch.matchRevision);
+                
+                if (matchedQuota != null) {
+                    item.setMatchedQuotaId(matchedQuota.getId());
+                    item.setMatchedQuotaCode(matchedQuota.getQuotaCode());
+                    item.setMatchedQuotaName(matchedQuota.getQuotaName());
+                    item.setMatchedQuotaFeatureValue(matchedQuota.getFeatureValue());
+                    item.setMatchedUnitPrice(matchedQuota.getUnitPrice());
+                    item.setMatchStatus(1);
+                    
+                    if (item.getQuantity() != null && matchedQuota.getUnitPrice() != null) {
+                        item.setTotalPrice(item.getQuantity().multiply(matchedQuota.getUnitPrice()));
+                    }
+                    matchedCount++;
+                    
+                    // 学习数据放入写入队列，由后台线程批量写入（不阻塞匹配，得分使用选择时已算出的得分）
+                    learningEventSink.publish(new LearningEvent(item, matchedQuota, bestMatch.score, 1));
+                } else {
+                    item.setMatchStatus(0);
+                }
+                batchResults.add(item);
+            }
         }
+        
+        // 将批次结果添加到总结果列表
+        resultList.addAll(batchResults);
+        
+        return matchedCount;
     }
     
     /**
@@ -426,60 +787,172 @@ public class QuotaMatchingService {
     
     /**
      * 使用优化的双向匹配算法找到最佳匹配
-     * 优化点：使用缓存的关键词，早期退出机制
+     * 优化点：使用预编译的定额关键词，倒排索引筛选候选定额，按得分上界剪枝
      */
-    private EnterpriseQuota findBestMatchOptimized(ProjectItem item, List<EnterpriseQuota> quotas,
-                                                    Map<Long, List<String>> quotaKeywordsCache,
-                                                    Map<Long, String> quotaNameCache,
-                                                    Map<Long, String> quotaFeatureCache) {
-        if (quotas.isEmpty()) {
+    EnterpriseQuota findBestMatchOptimized(ProjectItem item, ItemText itemText,
+                                            List<EnterpriseQuota> quotas,
+                                            CompiledQuotaIndex quotaIndex,
+                                            QuotaKeywordIndex keywordIndex) {
+        MatchScore bestMatch = findBestMatch(item, itemText, quotas, quotaIndex, keywordIndex);
+        return bestMatch != null ? bestMatch.quota : null;
+    }
+    
+    /**
+     * 找到最佳匹配的定额及其得分
+     */
+    private MatchScore findBestMatch(ProjectItem item, ItemText itemText, List<EnterpriseQuota> quotas,
+                                     CompiledQuotaIndex quotaIndex, QuotaKeywordIndex keywordIndex) {
+        if (quotas.isEmpty() || itemText.keywords.isEmpty()) {
             return null;
         }
         
-        // 提取项目清单的关键词（只提取一次）
-        List<String> itemKeywords = new ArrayList<>();
-        String itemName = item.getItemName() != null ? item.getItemName().trim() : "";
-        String itemFeature = item.getFeatureValue() != null ? item.getFeatureValue().trim() : "";
+        if (keywordIndex == null) {
+            return selectBestMatch(itemText, quotas, quotaIndex, null);
+        }
         
-        if (!itemName.isEmpty()) {
-            itemKeywords.addAll(KeywordExtractor.extractKeywords(itemName));
+        // 只对可能得分大于0的候选定额打分（共享、包含关键词或同义词，或名称/特征文本有包含关系）
+        int[] candidates = candidatesOf(keywordIndex, itemText);
+        MatchScore bestMatch = selectBestMatch(itemText, quotas, quotaIndex, candidates);
+        
+        if (invertedIndexVerify) {
+            MatchScore fullScanMatch = selectBestMatch(itemText, quotas, quotaIndex, null);
+            Long indexedId = bestMatch != null ? bestMatch.quota.getId() : null;
+            Long fullScanId = fullScanMatch != null ? fullScanMatch.quota.getId() : null;
+            if (!Objects.equals(indexedId, fullScanId)) {
+                System.err.println("倒排索引校验不一致: 清单 " + item.getId() + ", 索引结果 " + indexedId
+                        + ", 全量扫描结果 " + fullScanId + "（候选数 " + candidates.length + "）");
+                return fullScanMatch;
+            }
+        }
+        
+        return bestMatch;
+    }
+    
+    /**
+     * 增量匹配：只在给定的slot（变化的定额 + 上次的最佳定额）中选择最佳匹配
+     * 其余定额未变化且上次得分不高于上次的最佳定额，因此结果与全量匹配一致
+     */
+    private MatchScore findBestMatchIncremental(ItemText itemText, List<EnterpriseQuota> quotas,
+                                                CompiledQuotaIndex quotaIndex, QuotaKeywordIndex keywordIndex,
+                                                int[] slots) {
+        int[] candidates = slots;
+        if (keywordIndex != null) {
+            // 与全量匹配保持一致：只考虑候选定额
+            candidates = intersectSorted(slots, candidatesOf(keywordIndex, itemText));
         }
-        if (!itemFeature.isEmpty()) {
-            itemKeywords.addAll(KeywordExtractor.extractKeywords(itemFeature));
+        return selectBestMatch(itemText, quotas, quotaIndex, candidates);
+    }
+    
+    private static int[] candidatesOf(QuotaKeywordIndex keywordIndex, ItemText itemText) {
+        return keywordIndex.candidates(itemText.keywords, itemText.name, itemText.feature);
+    }
+    
+    private static int[] intersectSorted(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[count++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
         }
+        return Arrays.copyOf(result, count);
+    }
+    
+    /**
+     * 项目清单输入指纹（名称、特征、单位、数量）
+     */
+    private static long itemFingerprint(ProjectItem item) {
+        return Fingerprints.of(item.getItemName(), item.getFeatureValue(), item.getUnit(),
+                Fingerprints.text(item.getQuantity()));
+    }
+    
+    private RematchContext newRematchContext(CompiledQuotaIndex quotaIndex, boolean force) {
+        return new RematchContext(quotaIndex, force, invertedIndexEnabled, quotaIndexService.getRecentSnapshots());
+    }
+    
+    /**
+     * 在候选定额中选出得分最高的定额（得分相同时取ID较小的定额，结果与遍历顺序无关）
+     * @param candidates 候选定额在列表中的位置（升序），为null时扫描全部定额
+     */
+    private MatchScore selectBestMatch(ItemText itemText, List<EnterpriseQuota> quotas,
+                                       CompiledQuotaIndex quotaIndex, int[] candidates) {
+        List<MatchScore> top = selectTopMatches(itemText, quotas, quotaIndex, candidates, 1, MATCH_THRESHOLD);
+        return top.isEmpty() ? null : top.get(0);
+    }
+    
+    /**
+     * 获取项目清单的候选定额建议（按得分从高到低，得分相同按定额ID升序）
+     * @param itemId 项目清单ID
+     * @param versionId 定额版本ID（可为null）
+     * @param limit 返回的候选数量
+     */
+    public List<QuotaSuggestion> suggestQuotas(Long itemId, Long versionId, int limit) {
+        ProjectItem item = itemRepository.findById(itemId)
+                .orElseThrow(() -> new RuntimeException("项目清单不存在"));
         
-        if (itemKeywords.isEmpty()) {
-            return null;
+        List<QuotaSuggestion> suggestions = new ArrayList<>();
+        ItemText itemText = new ItemText(item);
+        if (itemText.keywords.isEmpty()) {
+            return suggestions;
         }
         
-        // 计算每个定额的匹配得分，使用早期退出机制
-        MatchScore bestMatch = null;
-        double highScoreThreshold = 0.8; // 高匹配度阈值，达到此值可提前退出
+        List<EnterpriseQuota> quotas = quotaIndexService.loadQuotas(versionId);
+        if (quotas.isEmpty()) {
+            return suggestions;
+        }
+        CompiledQuotaIndex quotaIndex = quotaIndexService.getIndex(versionId, quotas);
+        int[] candidates = invertedIndexEnabled ? candidatesOf(quotaIndex.getKeywordIndex(), itemText) : null;
         
-        for (EnterpriseQuota quota : quotas) {
-            double score = calculateBidirectionalMatchScoreOptimized(
-                item, quota, itemKeywords, itemName, itemFeature,
-                quotaKeywordsCache.get(quota.getId()),
-                quotaNameCache.get(quota.getId()),
-                quotaFeatureCache.get(quota.getId())
-            );
+        // 建议列表不设匹配阈值，只要求得分大于0
+        for (MatchScore match : selectTopMatches(itemText, quotas, quotaIndex, candidates, limit, 0.0)) {
+            suggestions.add(new QuotaSuggestion(match.quota, match.score));
+        }
+        return suggestions;
+    }
+    
+    /**
+     * Top-K 候选定额选择
+     * 使用容量为K的最小堆保存当前最好的K个定额；打分前先用得分上界与堆顶（第K名）比较，
+     * 上界达不到堆顶得分或最低得分的定额直接跳过，不再计算名称/特征文本得分
+     * @param candidates 候选定额在列表中的位置，为null时扫描全部定额
+     * @param k 返回数量
+     * @param minScore 最低得分（得分还必须大于0）
+     * @return 按得分从高到低排列的定额，得分相同时定额ID小的在前
+     */
+    private List<MatchScore> selectTopMatches(ItemText itemText, List<EnterpriseQuota> quotas,
+                                              CompiledQuotaIndex quotaIndex, int[] candidates,
+                                              int k, double minScore) {
+        PriorityQueue<MatchScore> heap = new PriorityQueue<>(k + 1, WORST_FIRST);
+        int count = candidates != null ? candidates.length : quotas.size();
+        
+        for (int i = 0; i < count; i++) {
+            int slot = candidates != null ? candidates[i] : i;
+            double floor = heap.size() < k ? minScore : Math.max(minScore, heap.peek().score);
+            double score = calculateBidirectionalMatchScoreOptimized(itemText, quotaIndex, slot, floor);
+            if (score <= 0 || score < minScore) {
+                continue;
+            }
             
-            if (score > 0 && (bestMatch == null || score > bestMatch.score)) {
-                bestMatch = new MatchScore(quota, score);
-                
-                // 早期退出：如果找到高匹配度的结果，提前结束
-                if (score >= highScoreThreshold) {
-                    break;
-                }
+            MatchScore candidate = new MatchScore(quotas.get(slot), score);
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (WORST_FIRST.compare(candidate, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(candidate);
             }
         }
         
-        // 只返回得分大于阈值的匹配
-        if (bestMatch != null && bestMatch.score >= 0.3) {
-            return bestMatch.quota;
-        }
-        
-        return null;
+        List<MatchScore> result = new ArrayList<>(heap);
+        result.sort(WORST_FIRST.reversed());
+        return result;
     }
     
     /**
@@ -531,109 +1004,53 @@ public class QuotaMatchingService {
     }
     
     /**
-     * 计算双向匹配得分（优化版本，使用缓存和学习结果）
-     */
-    private double calculateBidirectionalMatchScoreWithLearning(ProjectItem item, EnterpriseQuota quota,
-                                                                 List<String> itemKeywords, String itemName, String itemFeature,
-                                                                 List<String> quotaKeywords, String quotaName, String quotaFeature,
-                                                                 Map<String, Double> learnedWeights) {
-        double score = 0.0;
-        double totalWeight = 0.0;
-        
-        // 方向1：从项目清单匹配到定额（权重0.7）
-        if (!itemName.isEmpty() && quotaName != null && !quotaName.isEmpty()) {
-            double nameScore = KeywordExtractor.calculateTextMatchScore(itemName, quotaName);
-            score += nameScore * 0.4;
-            totalWeight += 0.4;
-        }
-        
-        if (!itemFeature.isEmpty() && quotaFeature != null && !quotaFeature.isEmpty()) {
-            double featureScore = KeywordExtractor.calculateTextMatchScore(itemFeature, quotaFeature);
-            score += featureScore * 0.3;
-            totalWeight += 0.3;
-        }
-        
-        // 方向2：从定额匹配到项目清单（权重0.3，使用缓存的关键词和学习到的权重）
-        if (quotaKeywords != null && !quotaKeywords.isEmpty()) {
-            double keywordScore = calculateSimilarityWithLearning(itemKeywords, quotaKeywords, learnedWeights);
-            score += keywordScore * 0.3;
-            totalWeight += 0.3;
-        }
-        
-        // 归一化得分
-        if (totalWeight > 0) {
-            score = score / totalWeight;
-        }
-        
-        return score;
-    }
-    
-    /**
-     * 计算相似度（使用学习到的权重）
+     * 计算双向匹配得分，得分上界低于 floor 时提前返回 PRUNED_SCORE
+     * 关键词向量得分计算最快，先计算；名称/特征文本得分未计算前按满分1.0估计上界
      */
-    private double calculateSimilarityWithLearning(List<String> keywords1, List<String> keywords2, 
-                                                    Map<String, Double> learnedWeights) {
-        if (keywords1.isEmpty() || keywords2.isEmpty()) {
-            return 0.0;
-        }
+    private double calculateBidirectionalMatchScoreOptimized(ItemText itemText, CompiledQuotaIndex quotaIndex,
+                                                             int slot, double floor) {
+        PreparedText quotaName = quotaIndex.getName(slot);
+        PreparedText quotaFeature = quotaIndex.getFeature(slot);
+        int[] quotaKeywordVector = quotaIndex.getKeywordVector(slot);
+        ItemVectors itemVectors = itemText.vectorsFor(quotaIndex.getDictionary());
         
-        Set<String> set1 = new HashSet<>(keywords1);
-        Set<String> set2 = new HashSet<>(keywords2);
+        boolean hasName = itemText.name != null && quotaName != null;
+        boolean hasFeature = itemText.feature != null && quotaFeature != null;
+        boolean hasKeywords = quotaKeywordVector.length > 0;
         
-        double intersection = 0.0;
         double totalWeight = 0.0;
-        
-        for (String k : set1) {
-            double weight = learnedWeights.getOrDefault(k, 1.0);
-            totalWeight += weight;
-            
-            if (set2.contains(k)) {
-                intersection += weight;
-            }
-        }
-        
+        if (hasName) totalWeight += 0.4;
+        if (hasFeature) totalWeight += 0.3;
+        if (hasKeywords) totalWeight += 0.3;
         if (totalWeight == 0) {
             return 0.0;
         }
         
-        return intersection / totalWeight;
-    }
-    
-    /**
-     * 计算双向匹配得分（优化版本，使用缓存）
-     */
-    private double calculateBidirectionalMatchScoreOptimized(ProjectItem item, EnterpriseQuota quota,
-                                                             List<String> itemKeywords, String itemName, String itemFeature,
-                                                             List<String> quotaKeywords, String quotaName, String quotaFeature) {
-        double score = 0.0;
-        double totalWeight = 0.0;
-        
-        // 方向1：从项目清单匹配到定额（权重0.7）
-        if (!itemName.isEmpty() && quotaName != null && !quotaName.isEmpty()) {
-            double nameScore = KeywordExtractor.calculateTextMatchScore(itemName, quotaName);
-            score += nameScore * 0.4;
-            totalWeight += 0.4;
-        }
-        
-        if (!itemFeature.isEmpty() && quotaFeature != null && !quotaFeature.isEmpty()) {
-            double featureScore = KeywordExtractor.calculateTextMatchScore(itemFeature, quotaFeature);
-            score += featureScore * 0.3;
-            totalWeight += 0.3;
+        // 方向2：从定额匹配到项目清单（权重0.3，使用预编译的关键词向量）
+        double keywordScore = hasKeywords
+                ? itemVectors.dictionary.similarity(itemVectors.keywords, quotaKeywordVector) : 0.0;
+        double bound = ((hasName ? 0.4 : 0.0) + (hasFeature ? 0.3 : 0.0) + keywordScore * 0.3) / totalWeight;
+        if (bound < floor - BOUND_EPSILON) {
+            return PRUNED_SCORE;
         }
         
-        // 方向2：从定额匹配到项目清单（权重0.3，使用缓存的关键词）
-        if (quotaKeywords != null && !quotaKeywords.isEmpty()) {
-            double keywordScore = KeywordExtractor.calculateSimilarity(itemKeywords, quotaKeywords);
-            score += keywordScore * 0.3;
-            totalWeight += 0.3;
+        // 方向1：从项目清单匹配到定额（权重0.7）
+        double nameScore = hasName ? KeywordExtractor.calculateTextMatchScore(itemText.name, itemVectors.name,
+                quotaName, quotaIndex.getNameVector(slot), itemVectors.dictionary) : 0.0;
+        bound = (nameScore * 0.4 + (hasFeature ? 0.3 : 0.0) + keywordScore * 0.3) / totalWeight;
+        if (bound < floor - BOUND_EPSILON) {
+            return PRUNED_SCORE;
         }
         
-        // 归一化得分
-        if (totalWeight > 0) {
-            score = score / totalWeight;
-        }
+        double featureScore = hasFeature ? KeywordExtractor.calculateTextMatchScore(itemText.feature, itemVectors.feature,
+                quotaFeature, quotaIndex.getFeatureVector(slot), itemVectors.dictionary) : 0.0;
         
-        return score;
+        // 按名称、特征、关键词的顺序累加后归一化
+        double score = 0.0;
+        if (hasName) score += nameScore * 0.4;
+        if (hasFeature) score += featureScore * 0.3;
+        if (hasKeywords) score += keywordScore * 0.3;
+        return score / totalWeight;
     }
     
     /**
@@ -693,6 +1110,150 @@ public class QuotaMatchingService {
         }
     }
     
+    /**
+     * 增量匹配上下文
+     * 清单上次匹配时记录了输入指纹和匹配修订号：输入未变化且修订号与当前一致时跳过；
+     * 修订号不同但仍保留当时的定额快照时，只对新增/修改的定额和上次的最佳定额打分；
+     * 上次的最佳定额被修改或删除、快照已不存在（如服务重启）、关键词规则变化时全量匹配
+     */
+    static class RematchContext {
+        
+        // 匹配规则版本：评分或选择规则变化时递增，使之前记录的匹配修订号全部失效
+        private static final String MATCHING_RULES_VERSION = "4";
+        
+        // 跳过匹配（保持原结果）
+        static final int[] UNCHANGED = new int[0];
+        
+        // 无法增量匹配（缓存中的标记，对外返回null）
+        private static final int[] FULL = new int[0];
+        
+        final CompiledQuotaIndex quotaIndex;
+        final long matchRevision;
+        private final boolean force;
+        private final Map<Long, CompiledQuotaIndex.Snapshot> snapshotsByMatchRevision = new HashMap<>();
+        private final Map<Long, int[]> changedSlotsByMatchRevision = new ConcurrentHashMap<>();
+        
+        RematchContext(CompiledQuotaIndex quotaIndex, boolean force, boolean invertedIndex,
+                       List<CompiledQuotaIndex.Snapshot> snapshots) {
+            this.quotaIndex = quotaIndex;
+            this.force = force;
+            // 打分模型（学习结果）更新后，之前的匹配结果全部需要重新打分
+            long modelVersion = ScoringModel.current().getVersion();
+            this.matchRevision = matchRevisionOf(quotaIndex.getRevision(), modelVersion, invertedIndex);
+            for (CompiledQuotaIndex.Snapshot snapshot : snapshots) {
+                snapshotsByMatchRevision.put(matchRevisionOf(snapshot.getRevision(), modelVersion, invertedIndex),
+                        snapshot);
+            }
+        }
+        
+        private static long matchRevisionOf(long indexRevision, long modelVersion, boolean invertedIndex) {
+            return Fingerprints.of(Long.toString(indexRevision), MATCHING_RULES_VERSION, invertedIndex ? "1" : "0",
+                    Long.toString(modelVersion));
+        }
+        
+        /**
+         * 判断清单需要如何重新匹配
+         * @return UNCHANGED 表示跳过；null 表示全量匹配；否则为需要打分的slot（升序）
+         */
+        int[] candidateSlots(ProjectItem item, long fingerprint) {
+            if (force || item.getMatchRevision() == null || item.getMatchFingerprint() == null
+                    || item.getMatchFingerprint() != fingerprint) {
+                return null;
+            }
+            Integer status = item.getMatchStatus();
+            if (status == null || (status != 0 && status != 1)) {
+                return null;
+            }
+            long previousRevision = item.getMatchRevision();
+            if (previousRevision == matchRevision) {
+                return UNCHANGED;
+            }
+            
+            int[] changed = changedSlotsByMatchRevision.computeIfAbsent(previousRevision, revision -> {
+                CompiledQuotaIndex.Snapshot snapshot = snapshotsByMatchRevision.get(revision);
+                int[] slots = snapshot != null ? quotaIndex.changedSlotsSince(snapshot) : null;
+                return slots != null ? slots : FULL;
+            });
+            if (changed == FULL) {
+                return null;
+            }
+            if (status == 0) {
+                return changed;
+            }
+            
+            // 上次的最佳定额被删除或修改时全量匹配
+            int bestSlot = quotaIndex.slotOf(item.getMatchedQuotaId());
+            if (bestSlot < 0) {
+                return null;
+            }
+            int position = Arrays.binarySearch(changed, bestSlot);
+            if (position >= 0) {
+                return null;
+            }
+            int insertAt = -position - 1;
+            int[] slots = new int[changed.length + 1];
+            System.arraycopy(changed, 0, slots, 0, insertAt);
+            slots[insertAt] = bestSlot;
+            System.arraycopy(changed, insertAt, slots, insertAt + 1, changed.length - insertAt);
+            return slots;
+        }
+    }
+    
+    /**
+     * 预处理后的项目清单文本（每个清单只处理一次）
+     */
+    static class ItemText {
+        final List<String> keywords = new ArrayList<>();
+        final PreparedText name;
+        final PreparedText feature;
+        
+        // 最近一次使用的定额索引关键词字典对应的查询向量
+        private volatile ItemVectors vectors;
+        
+        ItemText(ProjectItem item) {
+            String itemName = item.getItemName() != null ? item.getItemName().trim() : "";
+            String itemFeature = item.getFeatureValue() != null ? item.getFeatureValue().trim() : "";
+            
+            if (!itemName.isEmpty()) {
+                keywords.addAll(KeywordExtractor.extractKeywords(itemName));
+            }
+            if (!itemFeature.isEmpty()) {
+                keywords.addAll(KeywordExtractor.extractKeywords(itemFeature));
+            }
+            name = PreparedText.of(itemName);
+            feature = PreparedText.of(itemFeature);
+        }
+        
+        /**
+         * 清单关键词在定额索引关键词字典中的查询向量（只查询不注册，同一字典只生成一次）
+         */
+        ItemVectors vectorsFor(KeywordDictionary dictionary) {
+            ItemVectors current = vectors;
+            if (current == null || current.dictionary != dictionary) {
+                current = new ItemVectors(dictionary, this);
+                vectors = current;
+            }
+            return current;
+        }
+    }
+    
+    /**
+     * 清单文本在某个关键词字典中的查询向量
+     */
+    static class ItemVectors {
+        final KeywordDictionary dictionary;
+        final KeywordDictionary.KeywordVector keywords;
+        final KeywordDictionary.KeywordVector name;
+        final KeywordDictionary.KeywordVector feature;
+        
+        ItemVectors(KeywordDictionary dictionary, ItemText itemText) {
+            this.dictionary = dictionary;
+            this.keywords = dictionary.queryOf(itemText.keywords);
+            this.name = itemText.name != null ? dictionary.queryOf(itemText.name.getKeywords()) : null;
+            this.feature = itemText.feature != null ? dictionary.queryOf(itemText.feature.getKeywords()) : null;
+        }
+    }
+    
     /**
      * 兼容旧版本的匹配方法（不使用版本ID）
      */
@@ -706,7 +1267,7 @@ public class QuotaMatchingService {
         ProjectItem item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("项目清单不存在"));
         
-        EnterpriseQuota quota = quotaRepository.findById(quotaId)
+        EnterpriseQuota quota = quotaIndexService.findQuota(quotaId)
                 .orElseThrow(() -> new RuntimeException("企业定额不存在"));
         
         // 清除多定额关联（如果存在）
@@ -759,7 +1320,7 @@ public class QuotaMatchingService {
         ProjectItem item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("项目清单不存在"));
         
-        EnterpriseQuota quota = quotaRepository.findById(quotaId)
+        EnterpriseQuota quota = quotaIndexService.findQuota(quotaId)
                 .orElseThrow(() -> new RuntimeException("企业定额不存在"));
         
         // 检查是否已存在
@@ -809,6 +1370,43 @@ public class QuotaMatchingService {
         return itemQuotaRepository.findByProjectItemIdOrderBySortOrderAsc(itemId);
     }
     
+    /**
+     * 批量获取多个清单项的定额（每批最多 IN_QUERY_BATCH_SIZE 个清单项一次查询，避免逐条查询）
+     * @return 清单项ID -> 按排序号排列的定额列表（没有定额的清单项不在结果中）
+     */
+    public Map<Long, List<ProjectItemQuota>> getItemQuotas(Collection<Long> itemIds) {
+        Map<Long, List<ProjectItemQuota>> result = new HashMap<>();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(itemIds));
+        for (int start = 0; start < ids.size(); start += IN_QUERY_BATCH_SIZE) {
+            List<Long> batch = ids.subList(start, Math.min(ids.size(), start + IN_QUERY_BATCH_SIZE));
+            for (ProjectItemQuota itemQuota : itemQuotaRepository.findByProjectItemIdInOrderByProjectItemIdAscSortOrderAsc(batch)) {
+                result.computeIfAbsent(itemQuota.getProjectItemId(), k -> new ArrayList<>()).add(itemQuota);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 为多定额匹配（状态3）的清单批量填充定额明细
+     */
+    public void fillItemQuotas(List<ProjectItem> items) {
+        List<Long> multiQuotaItemIds = new ArrayList<>();
+        for (ProjectItem item : items) {
+            if (item.getMatchStatus() != null && item.getMatchStatus() == 3) {
+                multiQuotaItemIds.add(item.getId());
+            }
+        }
+        if (multiQuotaItemIds.isEmpty()) {
+            return;
+        }
+        Map<Long, List<ProjectItemQuota>> quotasByItem = getItemQuotas(multiQuotaItemIds);
+        for (ProjectItem item : items) {
+            if (item.getMatchStatus() != null && item.getMatchStatus() == 3) {
+                item.setQuotas(quotasByItem.getOrDefault(item.getId(), new ArrayList<>()));
+            }
+        }
+    }
+    
     /**
      * 清空清单项的所有定额关联
      */
@@ -818,6 +1416,7 @@ public class QuotaMatchingService {
         ProjectItem item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("项目清单不存在"));
         item.setMatchStatus(0);
+        item.setMatchRevision(null);
         item.setMatchedUnitPrice(null);
         item.setTotalPrice(null);
         itemRepository.save(item);
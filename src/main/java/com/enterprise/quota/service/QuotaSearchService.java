@@ -0,0 +1,302 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.repository.EnterpriseQuotaRepository;
+import com.enterprise.quota.util.LikePatterns;
+import com.enterprise.quota.util.QuotaSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 企业定额全文检索服务
+ * 手动匹配时的定额搜索使用 Lucene 索引（按相关度排序、分页），代替 LIKE %keyword% 对 LONGTEXT 列的全表扫描；
+ * 定额变更事件到达后，对应版本在后台整体重建（导入时连续的变更合并为一次重建），
+ * 版本重建完成之前、或索引不可用时，该版本的搜索回退到数据库查询。
+ * 索引中字母、数字只能整词命中，含字母数字的关键词（如规格 "DN2"）使用数据库查询，保证部分匹配仍能查到
+ */
+@Service
+public class QuotaSearchService {
+
+    // 重建索引时每次从数据库读取的定额数
+    private static final int PAGE_SIZE = 1000;
+
+    @Autowired
+    private EnterpriseQuotaRepository quotaRepository;
+
+    @Autowired
+    private QuotaIndexService quotaIndexService;
+
+    @Value("${quota.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quota.search.dir:./quota-search}")
+    private String searchDir;
+
+    // 最后一次定额变更后等待多久再重建（毫秒）
+    @Value("${quota.search.refresh-delay-ms:2000}")
+    private long refreshDelayMs;
+
+    // 超过此耗时（毫秒）的检索输出日志
+    @Value("${quota.search.slow-query-ms:200}")
+    private long slowQueryMs;
+
+    private volatile QuotaSearchIndex index;
+
+    // 启动校验完成之前不使用索引
+    private volatile boolean ready;
+
+    // 索引与数据库不一致、等待重建的版本键
+    private final Set<String> staleVersions = ConcurrentHashMap.newKeySet();
+
+    // 正在重建的版本键
+    private final Set<String> rebuildingVersions = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    private volatile long lastChangeTime;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "quota-search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            index = new QuotaSearchIndex(Paths.get(searchDir));
+        } catch (IOException e) {
+            System.err.println("打开定额检索索引失败，搜索将使用数据库查询: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        QuotaSearchIndex current = index;
+        index = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                System.err.println("关闭定额检索索引失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 启动后在后台比对各版本的索引文档数与数据库定额数，不一致的版本重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        if (index != null) {
+            executor.execute(this::verify);
+        }
+    }
+
+    /**
+     * 定额数据变更后，标记对应版本待重建
+     */
+    @EventListener
+    public void onQuotaDataChanged(QuotaDataChangedEvent event) {
+        if (index == null) {
+            return;
+        }
+        for (Long versionId : event.getVersionIds()) {
+            staleVersions.add(QuotaSearchIndex.versionKey(versionId));
+        }
+        lastChangeTime = System.currentTimeMillis();
+        if (refreshScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::refreshStale, refreshDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 按关键词搜索定额，按相关度排序
+     * @param versionId 定额版本ID，为null时搜索全部定额
+     */
+    public Page<EnterpriseQuota> search(Long versionId, String keyword, Pageable pageable) {
+        QuotaSearchIndex current = index;
+        if (current != null && QuotaSearchIndex.supports(keyword) && isCurrent(versionId)) {
+            try {
+                long start = System.nanoTime();
+                QuotaSearchIndex.Hits hits = current.search(
+                        versionId != null ? QuotaSearchIndex.versionKey(versionId) : null,
+                        keyword, (int) pageable.getOffset(), pageable.getPageSize());
+                List<EnterpriseQuota> quotas = loadInOrder(hits.getIds());
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                if (elapsedMs >= slowQueryMs) {
+                    System.out.println("定额检索较慢: " + keyword + ", 命中: " + hits.getTotal()
+                            + ", 耗时: " + elapsedMs + "ms");
+                }
+                return new PageImpl<>(quotas, pageable, hits.getTotal());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("定额检索失败，改用数据库查询: " + e.getMessage());
+            }
+        }
+        return quotaRepository.searchByKeyword(versionId, LikePatterns.escape(keyword), pageable);
+    }
+
+    private boolean isCurrent(Long versionId) {
+        if (!ready) {
+            return false;
+        }
+        if (versionId == null) {
+            return staleVersions.isEmpty() && rebuildingVersions.isEmpty();
+        }
+        String key = QuotaSearchIndex.versionKey(versionId);
+        return !staleVersions.contains(key) && !rebuildingVersions.contains(key);
+    }
+
+    private List<EnterpriseQuota> loadInOrder(List<Long> ids) {
+        // 已缓存版本中的定额直接使用，其余的一次查询
+        Map<Long, EnterpriseQuota> byId = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            EnterpriseQuota quota = quotaIndexService.getCachedQuota(id);
+            if (quota != null) {
+                byId.put(id, quota);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (EnterpriseQuota quota : quotaRepository.findAllById(missing)) {
+                byId.put(quota.getId(), quota);
+            }
+        }
+        List<EnterpriseQuota> quotas = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            EnterpriseQuota quota = byId.get(id);
+            // 索引重建之前被删除的定额不返回
+            if (quota != null) {
+                quotas.add(quota);
+            }
+        }
+        return quotas;
+    }
+
+    private void verify() {
+        QuotaSearchIndex current = index;
+        if (current == null) {
+            return;
+        }
+        try {
+            // 数据库中各版本在索引里的文档数之和
+            long indexed = 0;
+            for (Object[] row : quotaRepository.countGroupByVersionId()) {
+                String key = QuotaSearchIndex.versionKey((Long) row[0]);
+                int count = current.count(key);
+                indexed += count;
+                if (count != (Long) row[1]) {
+                    staleVersions.add(key);
+                }
+            }
+            // 索引中有数据库里已不存在的版本时全部重建
+            if (current.size() != indexed) {
+                rebuildAll(current);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("校验定额检索索引失败，搜索将使用数据库查询: " + e.getMessage());
+            return;
+        }
+        ready = true;
+        refreshStale();
+    }
+
+    private void rebuildAll(QuotaSearchIndex current) throws IOException {
+        long start = System.currentTimeMillis();
+        staleVersions.clear();
+        current.deleteAll();
+        int count = 0;
+        long lastId = 0L;
+        List<EnterpriseQuota> quotas;
+        do {
+            quotas = quotaRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, PAGE_SIZE));
+            for (EnterpriseQuota quota : quotas) {
+                current.add(quota);
+                lastId = quota.getId();
+            }
+            count += quotas.size();
+        } while (quotas.size() == PAGE_SIZE);
+        current.commit();
+        System.out.println("定额检索索引全部重建完成，定额数量: " + count
+                + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private void refreshStale() {
+        long quiet = System.currentTimeMillis() - lastChangeTime;
+        if (quiet < refreshDelayMs) {
+            // 仍有定额在写入（如分块导入），推迟到写入停止后再重建
+            executor.schedule(this::refreshStale, refreshDelayMs - quiet, TimeUnit.MILLISECONDS);
+            return;
+        }
+        refreshScheduled.set(false);
+
+        QuotaSearchIndex current = index;
+        if (current == null || !ready) {
+            return;
+        }
+        for (String key : new ArrayList<>(staleVersions)) {
+            rebuildingVersions.add(key);
+            // 先移除标记，重建期间到达的变更会重新标记
+            staleVersions.remove(key);
+            try {
+                rebuildVersion(current, key);
+            } catch (IOException | RuntimeException e) {
+                staleVersions.add(key);
+                System.err.println("重建定额检索索引失败，版本: " + key + ", 错误: " + e.getMessage());
+            } finally {
+                rebuildingVersions.remove(key);
+            }
+        }
+    }
+
+    private void rebuildVersion(QuotaSearchIndex current, String key) throws IOException {
+        long start = System.currentTimeMillis();
+        Long versionId = QuotaSearchIndex.versionId(key);
+        current.deleteVersion(key);
+        int count = 0;
+        long lastId = 0L;
+        List<EnterpriseQuota> quotas;
+        do {
+            Pageable page = PageRequest.of(0, PAGE_SIZE);
+            quotas = versionId != null
+                    ? quotaRepository.findByVersionIdAndIdGreaterThanOrderByIdAsc(versionId, lastId, page)
+                    : quotaRepository.findByVersionIdIsNullAndIdGreaterThanOrderByIdAsc(lastId, page);
+            for (EnterpriseQuota quota : quotas) {
+                current.add(quota);
+                lastId = quota.getId();
+            }
+            count += quotas.size();
+        } while (quotas.size() == PAGE_SIZE);
+        current.commit();
+        System.out.println("定额检索索引重建完成，版本: " + (versionId != null ? versionId : "未指定")
+                + ", 定额数量: " + count + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
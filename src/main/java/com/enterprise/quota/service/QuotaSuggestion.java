@@ -0,0 +1,21 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+
+/**
+ * 候选定额建议（定额及其匹配得分）
+ */
+public class QuotaSuggestion {
+
+    private final EnterpriseQuota quota;
+
+    private final double score;
+
+    public QuotaSuggestion(EnterpriseQuota quota, double score) {
+        this.quota = quota;
+        this.score = score;
+    }
+
+    public EnterpriseQuota getQuota() { return quota; }
+    public double getScore() { return score; }
+}
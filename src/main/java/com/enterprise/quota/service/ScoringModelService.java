@@ -0,0 +1,130 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.util.KeywordExtractor;
+import com.enterprise.quota.util.ScoringModel;
+import com.enterprise.quota.util.SynonymRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 打分模型服务
+ * 从学习到的关键词权重（keyword_weight）构建打分模型快照，从内置同义词文件、外部同义词文件和学习到的同义词对
+ * （matching_rule 中源词与目标词不同的同义词规则）构建同义词表，启动时加载一次，之后每次学习分析完成后重新加载，无需重启即可生效；
+ * 内容未变化时不重新发布（避免预编译索引和所有清单的匹配修订号失效）
+ */
+@Service
+public class ScoringModelService implements MeterBinder {
+
+    private static final String LEARNED_WEIGHTS_SQL = "SELECT keyword, weight FROM keyword_weight "
+            + "WHERE weight IS NOT NULL AND total_count >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MatchingLearningService learningService;
+
+    // 关闭后不使用学习到的权重和同义词规则（内置及外部同义词文件仍然加载）
+    @Value("${quota.scoring.learning.enabled:true}")
+    private boolean enabled;
+
+    // 出现次数少于此值的关键词权重不使用（样本太少，成功率不可靠）
+    @Value("${quota.scoring.learning.min-weight-samples:5}")
+    private int minWeightSamples;
+
+    // 外部同义词文件（每行一组，逗号分隔），与内置同义词合并；为空时不使用
+    @Value("${quota.synonyms.file:}")
+    private String synonymsFile;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * 重新构建打分模型和同义词表，内容变化时发布
+     * 加载失败时继续使用当前模型和同义词表
+     */
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        ScoringModel model;
+        SynonymRegistry registry;
+        try {
+            model = enabled ? buildModel() : ScoringModel.EMPTY;
+            registry = buildSynonyms();
+        } catch (Exception e) {
+            System.err.println("加载打分模型失败，继续使用当前模型: " + e.getMessage());
+            return;
+        }
+        if (KeywordExtractor.configureSynonyms(registry)) {
+            System.out.println("同义词表已更新，同义词组: " + registry.size());
+        }
+        if (model.getVersion() != ScoringModel.current().getVersion()) {
+            ScoringModel.publish(model);
+            System.out.println("打分模型已更新，关键词权重: " + model.getWeightCount());
+        }
+        System.out.println("打分模型加载完成，耗时: " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private ScoringModel buildModel() {
+        ScoringModel.Builder builder = new ScoringModel.Builder();
+        jdbcTemplate.query(LEARNED_WEIGHTS_SQL, rs -> {
+            builder.weight(rs.getString(1), rs.getDouble(2));
+        }, minWeightSamples);
+        return builder.build();
+    }
+
+    private SynonymRegistry buildSynonyms() throws IOException {
+        List<List<String>> learnedPairs = enabled ? learningService.getLearnedSynonymPairs() : Collections.emptyList();
+        return buildSynonyms(synonymsFile, learnedPairs);
+    }
+
+    /**
+     * 合并内置同义词、外部同义词文件和学习到的同义词对
+     * @param synonymsFile 外部同义词文件（为空时不使用）
+     * @param learnedPairs 学习到的同义词对（源词、目标词）
+     */
+    static SynonymRegistry buildSynonyms(String synonymsFile, List<List<String>> learnedPairs) throws IOException {
+        SynonymRegistry.Builder builder = new SynonymRegistry.Builder();
+        // 内置同义词
+        for (Set<String> group : SynonymRegistry.fromClasspath(KeywordExtractor.DEFAULT_SYNONYMS_RESOURCE).getGroups()) {
+            builder.add(group);
+        }
+        if (synonymsFile != null && !synonymsFile.trim().isEmpty()) {
+            Path path = Paths.get(synonymsFile.trim());
+            try (InputStream in = Files.newInputStream(path)) {
+                SynonymRegistry.read(in, builder);
+            }
+        }
+        for (List<String> pair : learnedPairs) {
+            builder.add(pair);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("quota.scoring.model.weights", this, service -> ScoringModel.current().getWeightCount())
+                .description("打分模型中学习到权重的关键词数")
+                .register(registry);
+        Gauge.builder("quota.synonyms.groups", this, service -> KeywordExtractor.getSynonymRegistry().size())
+                .description("同义词表中的同义词组数")
+                .register(registry);
+    }
+}
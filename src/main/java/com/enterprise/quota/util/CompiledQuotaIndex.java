@@ -0,0 +1,469 @@
+package com.enterprise.quota.util;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * 预编译的定额索引
+ * 保存一个定额版本的全部匹配数据（关键词、清理后的名称/特征、核心概念标记、同义词扩展），
+ * 以紧凑的二进制文件形式落盘，匹配和重启时一次读取即可使用，无需重新提取关键词
+ *
+ * 定额按ID升序排列，位置（slot）与匹配时使用的定额列表一一对应
+ */
+public class CompiledQuotaIndex {
+
+    private static final int MAGIC = 0x51494458; // "QIDX"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Long versionId;
+
+    // 索引内容修订号（由全部定额指纹和关键词规则计算），定额数据变化后修订号随之变化
+    private final long revision;
+
+    private final long rulesSignature;
+
+    // 以下数组按slot对齐
+    private final long[] quotaIds;
+    private final long[] fingerprints;
+    private final List<List<String>> keywords;
+    private final PreparedText[] names;
+    private final PreparedText[] features;
+
+    // 关键词字典（编号与关键词表一致）及关键词向量，不写入文件，加载时重新生成
+    private final KeywordDictionary dictionary;
+    private final int[][] keywordVectors;
+    private final int[][] nameVectors;
+    private final int[][] featureVectors;
+
+    // 关键词表：核心概念标记与同义词扩展
+    private final String[] terms;
+    private final boolean[] coreFlags;
+    private final int[][] synonymIds;
+
+    private final Map<Long, Integer> slotById;
+    private final QuotaKeywordIndex keywordIndex;
+
+    private CompiledQuotaIndex(Long versionId, long revision, long rulesSignature,
+                               long[] quotaIds, long[] fingerprints, List<List<String>> keywords,
+                               PreparedText[] names, PreparedText[] features,
+                               String[] terms, boolean[] coreFlags, int[][] synonymIds) {
+        this.versionId = versionId;
+        this.revision = revision;
+        this.rulesSignature = rulesSignature;
+        this.quotaIds = quotaIds;
+        this.fingerprints = fingerprints;
+        this.keywords = keywords;
+        this.names = names;
+        this.features = features;
+        this.terms = terms;
+        this.coreFlags = coreFlags;
+        this.synonymIds = synonymIds;
+
+        this.dictionary = KeywordDictionary.of(terms);
+        this.keywordVectors = new int[quotaIds.length][];
+        this.nameVectors = new int[quotaIds.length][];
+        this.featureVectors = new int[quotaIds.length][];
+        this.slotById = new HashMap<>(quotaIds.length * 2);
+        for (int slot = 0; slot < quotaIds.length; slot++) {
+            keywordVectors[slot] = dictionary.vectorOf(keywords.get(slot));
+            nameVectors[slot] = names[slot] != null ? dictionary.vectorOf(names[slot].getKeywords()) : null;
+            featureVectors[slot] = features[slot] != null ? dictionary.vectorOf(features[slot].getKeywords()) : null;
+            slotById.put(quotaIds[slot], slot);
+        }
+        this.keywordIndex = QuotaKeywordIndex.build(keywords, Arrays.asList(names), Arrays.asList(features));
+    }
+
+    /**
+     * 编译定额索引
+     * @param versionId 定额版本ID（null表示全部定额）
+     * @param quotas 定额列表，必须已按ID升序排列
+     */
+    public static CompiledQuotaIndex compile(Long versionId, List<EnterpriseQuota> quotas) {
+        int size = quotas.size();
+        long[] quotaIds = new long[size];
+        long[] fingerprints = new long[size];
+        List<List<String>> keywords = new ArrayList<>(size);
+        PreparedText[] names = new PreparedText[size];
+        PreparedText[] features = new PreparedText[size];
+        TermTable termTable = new TermTable();
+
+        for (int slot = 0; slot < size; slot++) {
+            EnterpriseQuota quota = quotas.get(slot);
+            quotaIds[slot] = quota.getId();
+            fingerprints[slot] = fingerprint(quota);
+
+            // 与匹配服务一致：名称关键词 + 特征关键词（基于原始文本）
+            List<String> quotaKeywords = new ArrayList<>();
+            if (quota.getQuotaName() != null && !quota.getQuotaName().trim().isEmpty()) {
+                quotaKeywords.addAll(KeywordExtractor.extractKeywords(quota.getQuotaName()));
+            }
+            if (quota.getFeatureValue() != null && !quota.getFeatureValue().trim().isEmpty()) {
+                quotaKeywords.addAll(KeywordExtractor.extractKeywords(quota.getFeatureValue()));
+            }
+            keywords.add(termTable.internAll(quotaKeywords));
+            names[slot] = internPrepared(PreparedText.of(quota.getQuotaName()), termTable);
+            features[slot] = internPrepared(PreparedText.of(quota.getFeatureValue()), termTable);
+        }
+
+        long rulesSignature = KeywordExtractor.rulesSignature();
+        String[] terms = termTable.toArray();
+        boolean[] coreFlags = new boolean[terms.length];
+        int[][] synonymIds = new int[terms.length][];
+        for (int id = 0; id < terms.length; id++) {
+            coreFlags[id] = KeywordExtractor.isCoreConcept(terms[id]);
+        }
+        // 同义词扩展只记录已出现在关键词表中的词
+        for (int id = 0; id < terms.length; id++) {
+            synonymIds[id] = termTable.idsOf(KeywordExtractor.getSynonyms(terms[id]), id);
+        }
+
+        return new CompiledQuotaIndex(versionId, computeRevision(fingerprints, rulesSignature), rulesSignature,
+                quotaIds, fingerprints, keywords, names, features, terms, coreFlags, synonymIds);
+    }
+
+    private static PreparedText internPrepared(PreparedText text, TermTable termTable) {
+        if (text == null) {
+            return null;
+        }
+        return new PreparedText(text.getCleaned(), termTable.internAll(text.getKeywords()));
+    }
+
+    /**
+     * 定额内容指纹（影响匹配或匹配结果展示的字段）
+     */
+    public static long fingerprint(EnterpriseQuota quota) {
+        return Fingerprints.of(Fingerprints.text(quota.getId()), quota.getQuotaCode(), quota.getQuotaName(),
+                quota.getFeatureValue(), quota.getUnit(), Fingerprints.text(quota.getUnitPrice()));
+    }
+
+    private static long computeRevision(long[] fingerprints, long rulesSignature) {
+        long hash = rulesSignature;
+        for (long fingerprint : fingerprints) {
+            hash = (hash ^ fingerprint) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+        return hash;
+    }
+
+    /**
+     * 判断索引是否与当前定额数据一致（定额集合、内容指纹、关键词规则均未变化）
+     * @param quotas 按ID升序排列的定额列表
+     */
+    public boolean matches(List<EnterpriseQuota> quotas) {
+        if (rulesSignature != KeywordExtractor.rulesSignature() || quotas.size() != quotaIds.length) {
+            return false;
+        }
+        for (int slot = 0; slot < quotaIds.length; slot++) {
+            EnterpriseQuota quota = quotas.get(slot);
+            if (quota.getId() == null || quota.getId() != quotaIds[slot]
+                    || fingerprint(quota) != fingerprints[slot]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 编译索引时使用的关键词规则是否仍然有效
+     */
+    public boolean isCurrentRules() {
+        return rulesSignature == KeywordExtractor.rulesSignature();
+    }
+
+    /**
+     * 当前修订版本的定额指纹快照（只包含定额ID和指纹），用于之后计算定额变化
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(revision, rulesSignature, quotaIds, fingerprints);
+    }
+
+    /**
+     * 与之前的修订版本相比新增或内容发生变化的slot
+     * @param previous 之前修订版本的快照
+     * @return 升序排列的slot；关键词规则发生变化时返回null（全部定额都需要重新打分）
+     */
+    public int[] changedSlotsSince(Snapshot previous) {
+        if (previous.rulesSignature != rulesSignature) {
+            return null;
+        }
+        int[] changed = new int[quotaIds.length];
+        int count = 0;
+        for (int slot = 0; slot < quotaIds.length; slot++) {
+            int index = Arrays.binarySearch(previous.quotaIds, quotaIds[slot]);
+            if (index < 0 || previous.fingerprints[index] != fingerprints[slot]) {
+                changed[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    /**
+     * 定额指纹快照（定额ID升序）
+     */
+    public static final class Snapshot {
+        private final long revision;
+        private final long rulesSignature;
+        private final long[] quotaIds;
+        private final long[] fingerprints;
+
+        private Snapshot(long revision, long rulesSignature, long[] quotaIds, long[] fingerprints) {
+            this.revision = revision;
+            this.rulesSignature = rulesSignature;
+            this.quotaIds = quotaIds;
+            this.fingerprints = fingerprints;
+        }
+
+        public long getRevision() { return revision; }
+    }
+
+    // ==================== 二进制读写 ====================
+
+    /**
+     * 写入索引文件（先写临时文件再原子替换，避免读到写了一半的文件）
+     */
+    public void writeTo(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(versionId != null ? versionId : -1L);
+            out.writeLong(revision);
+            out.writeLong(rulesSignature);
+
+            out.writeInt(terms.length);
+            for (int id = 0; id < terms.length; id++) {
+                writeString(out, terms[id]);
+                out.writeBoolean(coreFlags[id]);
+                writeIds(out, synonymIds[id]);
+            }
+
+            Map<String, Integer> termIds = new HashMap<>(terms.length * 2);
+            for (int id = 0; id < terms.length; id++) {
+                termIds.put(terms[id], id);
+            }
+
+            out.writeInt(quotaIds.length);
+            for (int slot = 0; slot < quotaIds.length; slot++) {
+                out.writeLong(quotaIds[slot]);
+                out.writeLong(fingerprints[slot]);
+                writeIds(out, toIds(keywords.get(slot), termIds));
+                writePrepared(out, names[slot], termIds);
+                writePrepared(out, features[slot], termIds);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取索引文件
+     * @return 索引，文件格式不兼容时返回null
+     */
+    public static CompiledQuotaIndex readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long storedVersionId = in.readLong();
+            long revision = in.readLong();
+            long rulesSignature = in.readLong();
+
+            int termCount = in.readInt();
+            String[] terms = new String[termCount];
+            boolean[] coreFlags = new boolean[termCount];
+            int[][] synonymIds = new int[termCount][];
+            for (int id = 0; id < termCount; id++) {
+                terms[id] = readString(in);
+                coreFlags[id] = in.readBoolean();
+                synonymIds[id] = readIds(in);
+            }
+
+            int size = in.readInt();
+            long[] quotaIds = new long[size];
+            long[] fingerprints = new long[size];
+            List<List<String>> keywords = new ArrayList<>(size);
+            PreparedText[] names = new PreparedText[size];
+            PreparedText[] features = new PreparedText[size];
+            for (int slot = 0; slot < size; slot++) {
+                quotaIds[slot] = in.readLong();
+                fingerprints[slot] = in.readLong();
+                keywords.add(toTerms(readIds(in), terms));
+                names[slot] = readPrepared(in, terms);
+                features[slot] = readPrepared(in, terms);
+            }
+
+            return new CompiledQuotaIndex(storedVersionId >= 0 ? storedVersionId : null, revision, rulesSignature,
+                    quotaIds, fingerprints, keywords, names, features, terms, coreFlags, synonymIds);
+        }
+    }
+
+    private static void writePrepared(DataOutputStream out, PreparedText text, Map<String, Integer> termIds)
+            throws IOException {
+        out.writeBoolean(text != null);
+        if (text != null) {
+            writeString(out, text.getCleaned());
+            writeIds(out, toIds(text.getKeywords(), termIds));
+        }
+    }
+
+    private static PreparedText readPrepared(DataInputStream in, String[] terms) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        String cleaned = readString(in);
+        return new PreparedText(cleaned, toTerms(readIds(in), terms));
+    }
+
+    // 长文本（LONGTEXT）可能超过 writeUTF 的64KB限制，这里使用 长度 + UTF-8 字节 的格式
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static int[] readIds(DataInputStream in) throws IOException {
+        int[] ids = new int[in.readInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.readInt();
+        }
+        return ids;
+    }
+
+    private static int[] toIds(List<String> values, Map<String, Integer> termIds) {
+        int[] ids = new int[values.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = termIds.get(values.get(i));
+        }
+        return ids;
+    }
+
+    private static List<String> toTerms(int[] ids, String[] terms) {
+        String[] values = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = terms[ids[i]];
+        }
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    // ==================== 访问方法 ====================
+
+    public Long getVersionId() { return versionId; }
+    public long getRevision() { return revision; }
+    public int size() { return quotaIds.length; }
+    public long getQuotaId(int slot) { return quotaIds[slot]; }
+    public long getFingerprint(int slot) { return fingerprints[slot]; }
+
+    /**
+     * 定额关键词（名称关键词 + 特征关键词）
+     */
+    public List<String> getKeywords(int slot) { return keywords.get(slot); }
+
+    /**
+     * 定额关键词向量（升序、去重的关键词字典编号）
+     */
+    public int[] getKeywordVector(int slot) { return keywordVectors[slot]; }
+
+    /**
+     * 定额名称的关键词向量，名称为空时为null
+     */
+    public int[] getNameVector(int slot) { return nameVectors[slot]; }
+
+    /**
+     * 定额特征值的关键词向量，特征值为空时为null
+     */
+    public int[] getFeatureVector(int slot) { return featureVectors[slot]; }
+
+    /**
+     * 定额关键词字典（清单关键词通过 queryOf 查询，不注册）
+     */
+    public KeywordDictionary getDictionary() { return dictionary; }
+
+    /**
+     * 预处理后的定额名称，名称为空时为null
+     */
+    public PreparedText getName(int slot) { return names[slot]; }
+
+    /**
+     * 预处理后的定额特征值，特征值为空时为null
+     */
+    public PreparedText getFeature(int slot) { return features[slot]; }
+
+    public QuotaKeywordIndex getKeywordIndex() { return keywordIndex; }
+
+    /**
+     * 按定额ID查找slot，不存在时返回-1
+     */
+    public int slotOf(Long quotaId) {
+        Integer slot = quotaId != null ? slotById.get(quotaId) : null;
+        return slot != null ? slot : -1;
+    }
+
+    public int termCount() { return terms.length; }
+    public String getTerm(int termId) { return terms[termId]; }
+    public boolean isCoreTerm(int termId) { return coreFlags[termId]; }
+    public int[] getSynonymIds(int termId) { return synonymIds[termId]; }
+
+    /**
+     * 编译时使用的关键词表，相同关键词只保存一个String实例
+     */
+    private static class TermTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+
+        List<String> internAll(List<String> values) {
+            String[] interned = new String[values.size()];
+            for (int i = 0; i < interned.length; i++) {
+                String value = values.get(i);
+                Integer id = ids.get(value);
+                if (id == null) {
+                    id = terms.size();
+                    ids.put(value, id);
+                    terms.add(value);
+                }
+                interned[i] = terms.get(id);
+            }
+            return Collections.unmodifiableList(Arrays.asList(interned));
+        }
+
+        int[] idsOf(Set<String> values, int selfId) {
+            List<Integer> found = new ArrayList<>();
+            for (String value : values) {
+                Integer id = ids.get(value);
+                if (id != null && id != selfId) {
+                    found.add(id);
+                }
+            }
+            int[] result = new int[found.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = found.get(i);
+            }
+            Arrays.sort(result);
+            return result;
+        }
+
+        String[] toArray() {
+            return terms.toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.enterprise.quota.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 流式读取 xlsx 文件的第一个工作表（基于 POI 事件模型 + SAX）
+ * 逐行回调，不构建整个工作簿，内存占用与行数无关（共享字符串表除外）；
+ * 单元格取值规则与原 XSSFWorkbook 方式的导入保持一致
+ */
+public final class ExcelSheetReader {
+
+    private ExcelSheetReader() {
+    }
+
+    /**
+     * 行处理回调
+     */
+    public interface RowHandler {
+        void handleRow(SheetRow row);
+    }
+
+    /**
+     * 读取文件中第一个工作表的所有行（包括表头行）
+     */
+    public static void readFirstSheet(File file, RowHandler handler) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("无法读取Excel文件：" + e.getMessage(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(sharedStrings, styles, handler));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("解析Excel文件失败：" + e.getMessage(), e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private enum CellKind {
+        BLANK, STRING, NUMERIC, BOOLEAN, ERROR
+    }
+
+    /**
+     * 当前行（每行复用，回调结束后内容失效）
+     */
+    public static final class SheetRow {
+        private int rowNum;
+        private int lastCellNum;
+        private CellKind[] kinds = new CellKind[16];
+        private String[] values = new String[16];
+        private boolean[] formulas = new boolean[16];
+        private boolean[] dates = new boolean[16];
+
+        /**
+         * 行号（从0开始）
+         */
+        public int getRowNum() { return rowNum; }
+
+        /**
+         * 最后一个单元格的列号 + 1，没有单元格时为 -1（与 Row.getLastCellNum 一致）
+         */
+        public int getLastCellNum() { return lastCellNum; }
+
+        /**
+         * 单元格文本：字符串去除首尾空格，整数不带小数，公式取缓存结果，空单元格返回""
+         */
+        public String getString(int column) {
+            if (column >= kinds.length || kinds[column] == null) {
+                return "";
+            }
+            String value = values[column];
+            switch (kinds[column]) {
+                case STRING:
+                    return value.trim();
+                case NUMERIC:
+                    return formatNumber(value, dates[column]);
+                case BOOLEAN:
+                    return String.valueOf("1".equals(value) || "true".equalsIgnoreCase(value));
+                case ERROR:
+                    // 公式计算出错时返回公式本身
+                    return formulas[column] && value != null ? value : "";
+                default:
+                    return "";
+            }
+        }
+
+        /**
+         * 单元格数值：数字单元格直接取值，文本单元格尝试解析，其余（包括公式）返回0
+         */
+        public BigDecimal getNumber(int column) {
+            if (column >= kinds.length || kinds[column] == null || formulas[column]) {
+                return BigDecimal.ZERO;
+            }
+            try {
+                switch (kinds[column]) {
+                    case NUMERIC:
+                        return BigDecimal.valueOf(Double.parseDouble(values[column]));
+                    case STRING:
+                        return new BigDecimal(values[column].trim());
+                    default:
+                        return BigDecimal.ZERO;
+                }
+            } catch (NumberFormatException e) {
+                return BigDecimal.ZERO;
+            }
+        }
+
+        private void reset(int rowNum) {
+            this.rowNum = rowNum;
+            this.lastCellNum = -1;
+            Arrays.fill(kinds, null);
+            Arrays.fill(values, null);
+            Arrays.fill(formulas, false);
+            Arrays.fill(dates, false);
+        }
+
+        private void set(int column, CellKind kind, String value, boolean formula, boolean date) {
+            if (column >= kinds.length) {
+                int size = Math.max(column + 1, kinds.length * 2);
+                kinds = Arrays.copyOf(kinds, size);
+                values = Arrays.copyOf(values, size);
+                formulas = Arrays.copyOf(formulas, size);
+                dates = Arrays.copyOf(dates, size);
+            }
+            kinds[column] = kind;
+            values[column] = value;
+            formulas[column] = formula;
+            dates[column] = date;
+            lastCellNum = Math.max(lastCellNum, column + 1);
+        }
+
+        private static String formatNumber(String raw, boolean date) {
+            if (raw == null || raw.isEmpty()) {
+                return "0";
+            }
+            double numericValue;
+            try {
+                numericValue = Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                return "";
+            }
+            if (date && DateUtil.isValidExcelDate(numericValue)) {
+                return DateUtil.getJavaDate(numericValue).toString();
+            }
+            if (numericValue == (long) numericValue) {
+                return String.valueOf((long) numericValue);
+            }
+            return String.valueOf(numericValue);
+        }
+    }
+
+    /**
+     * 工作表 XML 的 SAX 处理器，只解析 row / c / v / f / is 元素
+     */
+    private static final class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final StylesTable styles;
+        private final RowHandler handler;
+        private final SheetRow row = new SheetRow();
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder formula = new StringBuilder();
+        // 日期格式判断结果（按样式序号缓存）
+        private final List<Boolean> dateStyles = new ArrayList<>();
+
+        private boolean inRow;
+        private int nextRowNum;
+        private int nextColumn;
+
+        // 当前单元格
+        private int column;
+        private String type;
+        private int styleIndex;
+        private boolean hasFormula;
+        private boolean hasValue;
+        private boolean inValue;
+        private boolean inFormula;
+        private boolean inInlineString;
+        private boolean inPhonetic;
+
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, StylesTable styles, RowHandler handler) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            String name = localName(localName, qName);
+            switch (name) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    int rowNum = r != null ? Integer.parseInt(r) - 1 : nextRowNum;
+                    row.reset(rowNum);
+                    nextRowNum = rowNum + 1;
+                    nextColumn = 0;
+                    inRow = true;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnOf(ref) : nextColumn;
+                    nextColumn = column + 1;
+                    type = attributes.getValue("t");
+                    String s = attributes.getValue("s");
+                    styleIndex = s != null ? Integer.parseInt(s) : -1;
+                    hasFormula = false;
+                    hasValue = false;
+                    text.setLength(0);
+                    formula.setLength(0);
+                    break;
+                case "v":
+                    inValue = true;
+                    hasValue = true;
+                    break;
+                case "f":
+                    inFormula = true;
+                    hasFormula = true;
+                    break;
+                case "is":
+                    inInlineString = true;
+                    hasValue = true;
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            String name = localName(localName, qName);
+            switch (name) {
+                case "row":
+                    if (inRow) {
+                        handler.handleRow(row);
+                    }
+                    inRow = false;
+                    break;
+                case "c":
+                    if (inRow) {
+                        endCell();
+                    }
+                    break;
+                case "v":
+                    inValue = false;
+                    break;
+                case "f":
+                    inFormula = false;
+                    break;
+                case "is":
+                    inInlineString = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inFormula) {
+                formula.append(ch, start, length);
+            } else if (inValue || (inInlineString && !inPhonetic)) {
+                text.append(ch, start, length);
+            }
+        }
+
+        private void endCell() {
+            if (!hasValue && !hasFormula) {
+                // 只有样式的空单元格
+                row.set(column, CellKind.BLANK, null, false, false);
+                return;
+            }
+            String value = text.toString();
+            if ("s".equals(type)) {
+                String shared = hasValue ? sharedStrings.getItemAt(Integer.parseInt(value.trim())).getString() : "";
+                row.set(column, CellKind.STRING, shared, hasFormula, false);
+            } else if ("inlineStr".equals(type) || "str".equals(type) || "d".equals(type)) {
+                row.set(column, CellKind.STRING, value, hasFormula, false);
+            } else if ("b".equals(type)) {
+                row.set(column, CellKind.BOOLEAN, value.trim(), hasFormula, false);
+            } else if ("e".equals(type)) {
+                row.set(column, CellKind.ERROR, hasFormula ? formula.toString() : null, hasFormula, false);
+            } else if (hasValue || hasFormula) {
+                row.set(column, CellKind.NUMERIC, value.trim(), hasFormula, isDateStyle(styleIndex));
+            }
+        }
+
+        private boolean isDateStyle(int index) {
+            if (index < 0 || styles == null) {
+                return false;
+            }
+            while (dateStyles.size() <= index) {
+                dateStyles.add(null);
+            }
+            Boolean date = dateStyles.get(index);
+            if (date == null) {
+                XSSFCellStyle style = index < styles.getNumCellStyles() ? styles.getStyleAt(index) : null;
+                date = style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+                dateStyles.set(index, date);
+            }
+            return date;
+        }
+
+        private static String localName(String localName, String qName) {
+            if (localName != null && !localName.isEmpty()) {
+                return localName;
+            }
+            int colon = qName.indexOf(':');
+            return colon >= 0 ? qName.substring(colon + 1) : qName;
+        }
+
+        /**
+         * 单元格引用（如"AB12"）转换为列号（从0开始）
+         */
+        private static int columnOf(String ref) {
+            int result = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                result = result * 26 + (c - 'A' + 1);
+            }
+            return result - 1;
+        }
+    }
+}
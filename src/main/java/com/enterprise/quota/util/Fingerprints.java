@@ -0,0 +1,54 @@
+package com.enterprise.quota.util;
+
+import java.math.BigDecimal;
+
+/**
+ * 内容指纹工具类
+ * 对若干字段计算64位FNV-1a指纹，用于判断定额、项目清单的内容是否发生变化
+ */
+public final class Fingerprints {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private Fingerprints() {
+    }
+
+    /**
+     * 计算字段指纹（null 与空字符串区分）
+     */
+    public static long of(String... values) {
+        long hash = OFFSET_BASIS;
+        for (String value : values) {
+            hash = mix(hash, value);
+        }
+        return hash;
+    }
+
+    /**
+     * 数值的规范文本（忽略末尾的0，如 1.50 与 1.5 相同）
+     */
+    public static String text(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : null;
+    }
+
+    /**
+     * 长整数的文本
+     */
+    public static String text(Long value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            hash ^= 0xfe;
+            return hash * PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= PRIME;
+        }
+        hash ^= 0xff;
+        return hash * PRIME;
+    }
+}
@@ -0,0 +1,352 @@
+package com.enterprise.quota.util;
+
+import java.util.*;
+
+/**
+ * 定额关键词字典
+ * 属于一个预编译的定额索引（CompiledQuotaIndex），为索引中的每个定额关键词分配一个int编号，
+ * 并以基本类型数组保存打分所需的属性（核心概念标记、完全匹配/同义词匹配权重、忽略大小写的归类编号），
+ * 使关键词相似度可以直接在排好序的 int[] 关键词向量上计算
+ *
+ * 字典随索引一起构建、一起丢弃，内存占用只与定额关键词数量有关。
+ * 清单关键词只查询不注册（vectorOf(KeywordVector)）：字典中没有的清单关键词不可能与定额关键词完全匹配，
+ * 只需保留同义词、忽略大小写和部分包含匹配所需的信息
+ *
+ * 同义词组编号和学习到的权重随同义词表、打分模型变化，按当前的同义词表和模型快照缓存，变化后重新计算
+ */
+public final class KeywordDictionary {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<String, Integer> ids;
+
+    // 以下数组按关键词编号对齐
+    private final String[] terms;
+    private final boolean[] coreFlags;
+    private final double[] exactWeights;
+    private final double[] synonymWeights;
+    private final int[] foldIds;
+
+    // 忽略大小写的归类（小写形式 -> 归类编号）
+    private final Map<String, Integer> foldIdsByLowerCase;
+
+    // 每个忽略大小写归类中的关键词数量（按归类编号）
+    private final int[] foldSizes;
+
+    private volatile Attributes attributes;
+
+    private KeywordDictionary(String[] terms) {
+        int size = terms.length;
+        this.terms = terms;
+        this.ids = new HashMap<>(size * 2);
+        this.coreFlags = new boolean[size];
+        this.exactWeights = new double[size];
+        this.synonymWeights = new double[size];
+        this.foldIds = new int[size];
+        this.foldIdsByLowerCase = new HashMap<>(size * 2);
+        for (int id = 0; id < size; id++) {
+            String term = terms[id];
+            ids.put(term, id);
+            boolean core = KeywordExtractor.isCoreConcept(term);
+            coreFlags[id] = core;
+            exactWeights[id] = core ? 2.0 : 1.0;
+            synonymWeights[id] = core ? 1.5 : 0.8;
+            Integer foldId = foldIdsByLowerCase.get(fold(term));
+            if (foldId == null) {
+                foldId = foldIdsByLowerCase.size();
+                foldIdsByLowerCase.put(fold(term), foldId);
+            }
+            foldIds[id] = foldId;
+        }
+        this.foldSizes = new int[foldIdsByLowerCase.size()];
+        for (int id = 0; id < size; id++) {
+            foldSizes[foldIds[id]]++;
+        }
+    }
+
+    /**
+     * 构建字典
+     * @param terms 定额关键词（不重复），下标即关键词编号
+     */
+    public static KeywordDictionary of(String[] terms) {
+        return new KeywordDictionary(terms.clone());
+    }
+
+    /**
+     * 关键词编号，字典中没有时返回-1
+     */
+    public int idOf(String keyword) {
+        Integer id = ids.get(keyword);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * 将定额关键词列表转换为关键词向量（升序、去重的关键词编号），字典中没有的关键词忽略
+     */
+    public int[] vectorOf(List<String> keywords) {
+        if (keywords == null || keywords.isEmpty()) {
+            return EMPTY;
+        }
+        int[] vector = new int[keywords.size()];
+        int length = 0;
+        for (String keyword : keywords) {
+            int id = idOf(keyword);
+            if (id >= 0) {
+                vector[length++] = id;
+            }
+        }
+        return sortedUnique(vector, length);
+    }
+
+    /**
+     * 将清单关键词列表转换为查询向量（只查询，不注册新词）
+     */
+    public KeywordVector queryOf(List<String> keywords) {
+        Attributes a = attributes();
+        if (keywords == null || keywords.isEmpty()) {
+            return new KeywordVector(a, EMPTY, new String[0], EMPTY, EMPTY, new double[0], new float[0]);
+        }
+        int[] known = new int[keywords.size()];
+        int knownLength = 0;
+        Set<String> unknown = new LinkedHashSet<>();
+        for (String keyword : keywords) {
+            int id = idOf(keyword);
+            if (id >= 0) {
+                known[knownLength++] = id;
+            } else {
+                unknown.add(keyword);
+            }
+        }
+
+        String[] unknownTerms = unknown.toArray(new String[0]);
+        int[] unknownGroups = new int[unknownTerms.length];
+        int[] unknownFolds = new int[unknownTerms.length];
+        double[] unknownSynonymWeights = new double[unknownTerms.length];
+        float[] unknownWeights = new float[unknownTerms.length];
+        for (int i = 0; i < unknownTerms.length; i++) {
+            String term = unknownTerms[i];
+            unknownGroups[i] = a.registry.groupOf(term);
+            Integer foldId = foldIdsByLowerCase.get(fold(term));
+            unknownFolds[i] = foldId != null ? foldId : -1;
+            unknownSynonymWeights[i] = KeywordExtractor.isCoreConcept(term) ? 1.5 : 0.8;
+            unknownWeights[i] = a.model.weight(term);
+        }
+        return new KeywordVector(a, sortedUnique(known, knownLength), unknownTerms, unknownGroups, unknownFolds,
+                unknownSynonymWeights, unknownWeights);
+    }
+
+    /**
+     * 计算清单查询向量与定额关键词向量的相似度
+     * 计分规则与 KeywordExtractor.calculateSimilarity(List, List) 相同：完全匹配、同义词匹配、部分包含匹配，
+     * 分母为两侧关键词数量之和，核心概念词完全匹配时得分提高30%。
+     * 完全匹配和核心概念词的得分与原方法完全一致；同义词匹配（0.8）的累加顺序不同，可能存在浮点末位差异。
+     * 打分模型（ScoringModel）中有学习到的权重时，每个关键词的得分和分母中的计数都乘以该关键词的权重，
+     * 结果不超过1.0。
+     * 比较过程不创建任何对象
+     * @param query 清单查询向量（queryOf 生成）
+     * @param vector 定额关键词向量（vectorOf 生成）
+     * @return 相似度得分（0-1之间）
+     */
+    public double similarity(KeywordVector query, int[] vector) {
+        if (query.size() == 0 || vector.length == 0) {
+            return 0.0;
+        }
+
+        Attributes a = query.attributes;
+        boolean weighted = a.weights != null;
+        double intersection = 0.0;
+        double total = weighted ? 0.0 : query.size() + vector.length;
+        boolean hasCoreMatch = false;
+
+        int[] known = query.known;
+        int j = 0;
+        for (int i = 0; i < known.length; i++) {
+            int id = known[i];
+            double weight = weighted ? a.weights[id] : 1.0;
+            if (weighted) {
+                total += weight;
+            }
+            while (j < vector.length && vector[j] < id) {
+                j++;
+            }
+
+            // 完全匹配（有序数组归并求交）
+            if (j < vector.length && vector[j] == id) {
+                intersection += exactWeights[id] * weight;
+                if (coreFlags[id]) {
+                    hasCoreMatch = true;
+                }
+                continue;
+            }
+
+            // 同义词匹配（含忽略大小写相同）
+            int group = a.groups[id];
+            int foldId = foldIds[id];
+            // 既不属于同义词组，也没有大小写不同的同形词时无需扫描
+            if ((group >= 0 || foldSizes[foldId] > 1) && hasSynonym(a, group, foldId, vector)) {
+                intersection += synonymWeights[id] * weight;
+                continue;
+            }
+
+            // 部分匹配（包含关系）
+            if (hasContainment(terms[id], vector)) {
+                intersection += 0.5 * weight;
+            }
+        }
+
+        // 字典中没有的清单关键词：不可能完全匹配
+        for (int i = 0; i < query.unknownTerms.length; i++) {
+            double weight = weighted ? query.unknownWeights[i] : 1.0;
+            if (weighted) {
+                total += weight;
+            }
+            int group = query.unknownGroups[i];
+            int foldId = query.unknownFolds[i];
+            if ((group >= 0 || foldId >= 0) && hasSynonym(a, group, foldId, vector)) {
+                intersection += query.unknownSynonymWeights[i] * weight;
+            } else if (hasContainment(query.unknownTerms[i], vector)) {
+                intersection += 0.5 * weight;
+            }
+        }
+        if (weighted) {
+            for (int id : vector) {
+                total += a.weights[id];
+            }
+        }
+
+        double similarity = Math.min(1.0, intersection / total);
+
+        // 如果核心概念词匹配，提高得分
+        if (hasCoreMatch) {
+            similarity = Math.min(1.0, similarity * 1.3);
+        }
+
+        return similarity;
+    }
+
+    private boolean hasSynonym(Attributes a, int group, int foldId, int[] vector) {
+        for (int other : vector) {
+            if (foldIds[other] == foldId || (group >= 0 && a.groups[other] == group)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasContainment(String term, int[] vector) {
+        for (int other : vector) {
+            String otherTerm = terms[other];
+            if (term.contains(otherTerm) || otherTerm.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 关键词编号对应的关键词
+     */
+    public String termOf(int id) {
+        return terms[id];
+    }
+
+    /**
+     * 是否为核心概念词
+     */
+    public boolean isCore(int id) {
+        return coreFlags[id];
+    }
+
+    /**
+     * 字典中的关键词数量
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    // 当前同义词表和打分模型对应的属性，变化后重新计算
+    private Attributes attributes() {
+        SynonymRegistry registry = KeywordExtractor.getSynonymRegistry();
+        ScoringModel model = ScoringModel.current();
+        Attributes a = attributes;
+        if (a == null || a.registry != registry || a.model != model) {
+            a = new Attributes(registry, model, terms);
+            attributes = a;
+        }
+        return a;
+    }
+
+    private static String fold(String term) {
+        return term.toLowerCase(Locale.ROOT);
+    }
+
+    private static int[] sortedUnique(int[] ids, int length) {
+        Arrays.sort(ids, 0, length);
+        int unique = 0;
+        for (int i = 0; i < length; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return unique == ids.length ? ids : Arrays.copyOf(ids, unique);
+    }
+
+    /**
+     * 按同义词表和打分模型快照计算的关键词属性
+     */
+    private static final class Attributes {
+        final SynonymRegistry registry;
+        final ScoringModel model;
+        // 同义词组编号，-1 表示不属于任何组
+        final int[] groups;
+        // 学习到的权重，模型没有权重时为null
+        final float[] weights;
+
+        Attributes(SynonymRegistry registry, ScoringModel model, String[] terms) {
+            this.registry = registry;
+            this.model = model;
+            this.groups = new int[terms.length];
+            this.weights = model.hasWeights() ? new float[terms.length] : null;
+            for (int id = 0; id < terms.length; id++) {
+                groups[id] = registry.groupOf(terms[id]);
+                if (weights != null) {
+                    weights[id] = model.weight(terms[id]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 清单查询向量：字典中已有的关键词保存编号，其余关键词保存同义词、忽略大小写和部分包含匹配所需的信息
+     * 创建时的同义词表和打分模型快照随向量保存，同一清单的打分使用同一快照
+     */
+    public static final class KeywordVector {
+        private final Attributes attributes;
+        // 字典中已有的关键词编号（升序、去重）
+        private final int[] known;
+        // 字典中没有的关键词（去重）及其属性
+        private final String[] unknownTerms;
+        private final int[] unknownGroups;
+        private final int[] unknownFolds;
+        private final double[] unknownSynonymWeights;
+        private final float[] unknownWeights;
+
+        private KeywordVector(Attributes attributes, int[] known, String[] unknownTerms, int[] unknownGroups,
+                              int[] unknownFolds, double[] unknownSynonymWeights, float[] unknownWeights) {
+            this.attributes = attributes;
+            this.known = known;
+            this.unknownTerms = unknownTerms;
+            this.unknownGroups = unknownGroups;
+            this.unknownFolds = unknownFolds;
+            this.unknownSynonymWeights = unknownSynonymWeights;
+            this.unknownWeights = unknownWeights;
+        }
+
+        /**
+         * 关键词数量（去重后）
+         */
+        public int size() {
+            return known.length + unknownTerms.length;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.enterprise.quota.util;
 
 import java.util.*;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -20,21 +19,11 @@ public class KeywordExtractor {
         "含", "包括", "包含", "配", "件", "块", "个", "套", "台", "路", "T", "G", "M"
     ));
     
-    // 同义词映射表（用于识别相同概念的不同表达）
-    private static final Map<String, Set<String>> SYNONYMS = new HashMap<>();
-    static {
-        // 录像机相关
-        SYNONYMS.put("NVR", new HashSet<>(Arrays.asList("NVR", "网络硬盘录像机", "硬盘录像机", "录像机")));
-        SYNONYMS.put("网络硬盘录像机", new HashSet<>(Arrays.asList("NVR", "网络硬盘录像机", "硬盘录像机", "录像机")));
-        SYNONYMS.put("硬盘录像机", new HashSet<>(Arrays.asList("NVR", "网络硬盘录像机", "硬盘录像机", "录像机")));
-        SYNONYMS.put("录像机", new HashSet<>(Arrays.asList("NVR", "网络硬盘录像机", "硬盘录像机", "录像机")));
-        
-        // 摄像机相关
-        SYNONYMS.put("摄像机", new HashSet<>(Arrays.asList("摄像机", "摄像头", "监控摄像头", "监控摄像机")));
-        SYNONYMS.put("摄像头", new HashSet<>(Arrays.asList("摄像机", "摄像头", "监控摄像头", "监控摄像机")));
-        SYNONYMS.put("监控摄像头", new HashSet<>(Arrays.asList("摄像机", "摄像头", "监控摄像头", "监控摄像机")));
-        SYNONYMS.put("监控摄像机", new HashSet<>(Arrays.asList("摄像机", "摄像头", "监控摄像头", "监控摄像机")));
-    }
+    // 内置同义词文件（类路径）
+    public static final String DEFAULT_SYNONYMS_RESOURCE = "synonyms.txt";
+    
+    // 同义词表（用于识别相同概念的不同表达）：每个词映射到一个同义词组编号，变化时整体替换
+    private static volatile SynonymRegistry synonyms = SynonymRegistry.fromClasspath(DEFAULT_SYNONYMS_RESOURCE);
     
     // 核心概念词（设备类型关键词，权重更高）
     private static final Set<String> CORE_CONCEPTS = new HashSet<>(Arrays.asList(
@@ -42,32 +31,96 @@ public class KeywordExtractor {
         "监控", "设备", "系统", "装置", "机", "器", "仪", "表"
     ));
     
-    // 分隔符模式：中英文标点、空格、数字等
-    private static final Pattern SPLIT_PATTERN = Pattern.compile("[\\s\\p{Punct}\\d]+");
+    // 缓存默认容量（条目数）
+    private static final int DEFAULT_CACHE_SIZE = 50000;
+    
+    // 超过此长度的文本很少重复出现，不放入缓存
+    private static final int MAX_CACHED_TEXT_LENGTH = 1000;
+    
+    // 关键词提取结果缓存：原始文本 -> 关键词列表（不可修改）
+    private static volatile LruCache<String, List<String>> keywordCache = new LruCache<>(DEFAULT_CACHE_SIZE);
+    
+    // 文本预处理结果缓存：原始文本 -> 去除括号内容后的文本及其关键词
+    private static volatile LruCache<String, PreparedText> preparedTextCache = new LruCache<>(DEFAULT_CACHE_SIZE);
+    
+    // 关键词规则签名缓存，规则变化时清空
+    private static volatile Long cachedRulesSignature;
     
     /**
-     * 从文本中提取关键词
+     * 从文本中提取关键词（结果缓存，相同文本只提取一次）
      * @param text 输入文本
-     * @return 关键词列表（去重、去停用词）
+     * @return 关键词列表（去重、去停用词，不可修改）
      */
     public static List<String> extractKeywords(String text) {
         if (text == null || text.trim().isEmpty()) {
             return new ArrayList<>();
         }
-        
+        if (text.length() > MAX_CACHED_TEXT_LENGTH) {
+            return doExtractKeywords(text);
+        }
+        return keywordCache.computeIfAbsent(text, KeywordExtractor::doExtractKeywords);
+    }
+    
+    /**
+     * 预处理文本：去除括号内容并提取关键词（结果缓存，供 calculateTextMatchScore 使用）
+     * @param text 原始文本
+     * @return 预处理结果，文本为空时返回null
+     */
+    public static PreparedText prepareText(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        if (text.length() > MAX_CACHED_TEXT_LENGTH) {
+            return doPrepareText(text);
+        }
+        return preparedTextCache.computeIfAbsent(text, KeywordExtractor::doPrepareText);
+    }
+    
+    private static PreparedText doPrepareText(String text) {
+        String cleaned = stripParentheses(text);
+        return new PreparedText(cleaned, extractKeywords(cleaned));
+    }
+    
+    /**
+     * 重新设置缓存容量（原有缓存内容丢弃）
+     */
+    public static synchronized void configureCaches(int maxSize) {
+        keywordCache = new LruCache<>(maxSize);
+        preparedTextCache = new LruCache<>(maxSize);
+    }
+    
+    /**
+     * 停用词、同义词或核心概念词变化后调用，使基于旧规则的缓存结果失效
+     */
+    public static void invalidateCaches() {
+        cachedRulesSignature = null;
+        keywordCache.invalidate();
+        preparedTextCache.invalidate();
+    }
+    
+    /**
+     * 关键词提取缓存（用于统计命中率）
+     */
+    public static LruCache<String, List<String>> getKeywordCache() {
+        return keywordCache;
+    }
+    
+    /**
+     * 文本预处理缓存（用于统计命中率）
+     */
+    public static LruCache<String, PreparedText> getPreparedTextCache() {
+        return preparedTextCache;
+    }
+    
+    private static List<String> doExtractKeywords(String text) {
         // 清理文本：去除多余空格、数字、规格和特殊字符
-        String cleaned = text.trim()
-                .replaceAll("[\\s\\p{Z}]+", " ")  // 多个空格合并为一个
-                .replaceAll("[（）()【】\\[\\]《》<>]", "")  // 去除括号
-                .replaceAll("\\d+[路块个套台TGMK]+", "")  // 去除数字+单位（如"16路"、"8T"、"16块"）
-                .replaceAll("\\d+", "");  // 去除纯数字
+        String cleaned = cleanText(text.trim());
         
         // 提取中文词汇（2-6个字符）
         List<String> keywords = new ArrayList<>();
         
-        // 方法1：按分隔符分割，提取有意义的部分
-        String[] parts = SPLIT_PATTERN.split(cleaned);
-        for (String part : parts) {
+        // 方法1：按分隔符（空白、标点、数字）分割，提取有意义的部分
+        for (String part : splitParts(cleaned)) {
             if (part.length() >= 2 && part.length() <= 20) {
                 // 提取连续的中文字符和英文
                 String chinesePart = extractChineseAndEnglishWords(part);
@@ -84,7 +137,7 @@ public class KeywordExtractor {
         extractCoreConcepts(text, keywords);
         
         // 去重、去停用词、按重要性排序
-        return keywords.stream()
+        return Collections.unmodifiableList(keywords.stream()
                 .filter(k -> k.length() >= 2)
                 .filter(k -> !STOP_WORDS.contains(k))
                 .distinct()
@@ -99,7 +152,7 @@ public class KeywordExtractor {
                     if (lenCompare != 0) return lenCompare;
                     return a.compareTo(b);
                 })
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
     
     /**
@@ -134,7 +187,7 @@ public class KeywordExtractor {
     /**
      * 判断是否为核心概念词
      */
-    private static boolean isCoreConcept(String keyword) {
+    public static boolean isCoreConcept(String keyword) {
         return CORE_CONCEPTS.contains(keyword) || keyword.equalsIgnoreCase("NVR");
     }
     
@@ -187,16 +240,26 @@ public class KeywordExtractor {
         double intersection = 0.0;
         Set<String> matched = new HashSet<>();
         
+        // 列表2中每个词的同义词组编号只查一次，同义词判断只比较组编号
+        SynonymRegistry registry = synonyms;
+        String[] terms2 = set2.toArray(new String[0]);
+        int[] groups2 = new int[terms2.length];
+        for (int i = 0; i < terms2.length; i++) {
+            groups2[i] = registry.groupOf(terms2[i]);
+        }
+        
         for (String k : set1) {
             // 完全匹配
             if (set2.contains(k)) {
                 intersection += isCoreConcept(k) ? 2.0 : 1.0;  // 核心概念词权重更高
                 matched.add(k);
             } else {
-                // 检查同义词匹配
+                // 检查同义词匹配（忽略大小写相同，或属于同一同义词组）
+                int group = registry.groupOf(k);
                 boolean synonymMatched = false;
-                for (String k2 : set2) {
-                    if (areSynonyms(k, k2)) {
+                for (int i = 0; i < terms2.length; i++) {
+                    String k2 = terms2[i];
+                    if ((group >= 0 && groups2[i] == group) || k.equalsIgnoreCase(k2)) {
                         intersection += isCoreConcept(k) ? 1.5 : 0.8;  // 同义词匹配得分稍低
                         matched.add(k2);
                         synonymMatched = true;
@@ -206,7 +269,7 @@ public class KeywordExtractor {
                 
                 // 如果同义词未匹配，检查部分匹配（包含关系）
                 if (!synonymMatched) {
-                    for (String k2 : set2) {
+                    for (String k2 : terms2) {
                         if (k.contains(k2) || k2.contains(k)) {
                             intersection += 0.5;
                             break;
@@ -239,23 +302,39 @@ public class KeywordExtractor {
     }
     
     /**
-     * 判断两个词是否为同义词
+     * 获取关键词的同义词组（含关键词本身；不含同义词时返回空集合）
      */
-    private static boolean areSynonyms(String word1, String word2) {
-        if (word1.equalsIgnoreCase(word2)) {
-            return true;
-        }
-        
-        for (Map.Entry<String, Set<String>> entry : SYNONYMS.entrySet()) {
-            Set<String> synonyms = entry.getValue();
-            if (synonyms.contains(word1) && synonyms.contains(word2)) {
-                return true;
-            }
+    public static Set<String> getSynonyms(String word) {
+        return synonyms.synonymsOf(word);
+    }
+
+    /**
+     * 获取全部同义词组（按组编号排列）
+     */
+    public static List<Set<String>> getSynonymGroups() {
+        return synonyms.getGroups();
+    }
+
+    /**
+     * 当前同义词表
+     */
+    public static SynonymRegistry getSynonymRegistry() {
+        return synonyms;
+    }
+
+    /**
+     * 替换同义词表（关键词字典在下次打分时按新表重新计算同义词组编号），并使基于旧规则的缓存和预编译索引失效
+     * @return 同义词表内容有变化时返回true
+     */
+    public static synchronized boolean configureSynonyms(SynonymRegistry registry) {
+        if (registry.getGroups().equals(synonyms.getGroups())) {
+            return false;
         }
-        
-        return false;
+        synonyms = registry;
+        invalidateCaches();
+        return true;
     }
-    
+
     /**
      * 计算两个文本的匹配度得分
      * @param text1 文本1
@@ -263,16 +342,40 @@ public class KeywordExtractor {
      * @return 匹配度得分（0-1之间）
      */
     public static double calculateTextMatchScore(String text1, String text2) {
-        if (text1 == null || text2 == null || text1.trim().isEmpty() || text2.trim().isEmpty()) {
+        return calculateTextMatchScore(PreparedText.of(text1), PreparedText.of(text2));
+    }
+    
+    /**
+     * 计算两个预处理文本的匹配度得分（与 calculateTextMatchScore(String, String) 结果一致）
+     * 定额侧的预处理结果可以预先编译并复用，避免每次比较都重新清理文本和提取关键词
+     * @param text1 预处理文本1（原文本为空时为null）
+     * @param text2 预处理文本2（原文本为空时为null）
+     * @return 匹配度得分（0-1之间）
+     */
+    public static double calculateTextMatchScore(PreparedText text1, PreparedText text2) {
+        return calculateTextMatchScore(text1, null, text2, null, null);
+    }
+    
+    /**
+     * 计算清单文本与定额文本的匹配度得分，关键词相似度使用定额索引的关键词字典计算（计分规则与上面的方法一致）
+     * @param text1 清单预处理文本（原文本为空时为null）
+     * @param vector1 清单文本关键词的查询向量（dictionary.queryOf 生成）
+     * @param text2 定额预处理文本（原文本为空时为null）
+     * @param vector2 定额文本的关键词向量（dictionary.vectorOf 生成）
+     * @param dictionary 定额索引的关键词字典，为null时按关键词列表计算
+     * @return 匹配度得分（0-1之间）
+     */
+    public static double calculateTextMatchScore(PreparedText text1, KeywordDictionary.KeywordVector vector1,
+                                                 PreparedText text2, int[] vector2, KeywordDictionary dictionary) {
+        if (text1 == null || text2 == null) {
             return 0.0;
         }
         
-        // 去除括号内容后再比较（括号内通常是配件、规格等次要信息）
-        String cleanText1 = text1.replaceAll("[（(].*?[）)]", "").trim();
-        String cleanText2 = text2.replaceAll("[（(].*?[）)]", "").trim();
+        String cleanText1 = text1.getCleaned();
+        String cleanText2 = text2.getCleaned();
         
-        List<String> keywords1 = extractKeywords(cleanText1);
-        List<String> keywords2 = extractKeywords(cleanText2);
+        List<String> keywords1 = text1.getKeywords();
+        List<String> keywords2 = text2.getKeywords();
         
         if (keywords1.isEmpty() || keywords2.isEmpty()) {
             // 如果关键词提取失败，使用简单的包含匹配
@@ -287,8 +390,9 @@ public class KeywordExtractor {
             return 0.0;
         }
         
-        // 计算相似度
-        double similarity = calculateSimilarity(keywords1, keywords2);
+        // 计算相似度（关键词向量与 calculateSimilarity 计分规则一致）
+        double similarity = dictionary != null
+                ? dictionary.similarity(vector1, vector2) : calculateSimilarity(keywords1, keywords2);
         
         // 如果完全匹配，得分更高
         if (cleanText1.equals(cleanText2)) {
@@ -303,6 +407,192 @@ public class KeywordExtractor {
         return similarity;
     }
     
+    /**
+     * 去除括号内容（括号内通常是配件、规格等次要信息）并去除首尾空格
+     */
+    public static String stripParentheses(String text) {
+        int length = text.length();
+        StringBuilder sb = null;
+        int copied = 0;
+        // 从该位置到下一个换行（或结尾）之间没有右括号，其间的左括号都无法配对
+        int unmatchedUntil = -1;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if ((c != '（' && c != '(') || i < unmatchedUntil) {
+                i++;
+                continue;
+            }
+            // 匹配到最近的右括号，不跨行
+            int j = i + 1;
+            while (j < length && !isCloseParenthesis(text.charAt(j)) && !isLineTerminator(text.charAt(j))) {
+                j++;
+            }
+            if (j == length || isLineTerminator(text.charAt(j))) {
+                unmatchedUntil = j;
+                i++;
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(length);
+            }
+            sb.append(text, copied, i);
+            copied = j + 1;
+            i = j + 1;
+        }
+        if (sb == null) {
+            return text.trim();
+        }
+        sb.append(text, copied, length);
+        return sb.toString().trim();
+    }
+    
+    /**
+     * 单次扫描清理文本，等价于依次执行：
+     * 空白（含全角空格等分隔符）合并为一个空格、去除括号、去除数字+单位（如"16路"、"8T"、"16块"）、去除纯数字
+     */
+    static String cleanText(String text) {
+        int length = text.length();
+        StringBuilder sb = new StringBuilder(length);
+        boolean inSpace = false;
+        // 前一个有效字符（括号已去除）是数字或数字后的单位
+        boolean afterDigit = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                if (!inSpace) {
+                    sb.append(' ');
+                    inSpace = true;
+                }
+                afterDigit = false;
+                continue;
+            }
+            inSpace = false;
+            if (isBracket(c)) {
+                // 括号先于数字规则去除，数字和单位之间的括号不影响"16（路）"这类匹配
+                continue;
+            }
+            if (c >= '0' && c <= '9') {
+                afterDigit = true;
+                continue;
+            }
+            if (afterDigit && isUnit(c)) {
+                continue;
+            }
+            afterDigit = false;
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 按空白、ASCII标点、数字分割文本，忽略空片段
+     */
+    private static List<String> splitParts(String text) {
+        List<String> parts = new ArrayList<>();
+        int start = -1;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (isSplitChar(text.charAt(i))) {
+                if (start >= 0) {
+                    parts.add(text.substring(start, i));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            parts.add(text.substring(start));
+        }
+        return parts;
+    }
+    
+    private static boolean isSpace(char c) {
+        switch (c) {
+            case ' ': case '\t': case '\n': case '\u000B': case '\f': case '\r':
+                return true;
+            default:
+                return Character.isSpaceChar(c);
+        }
+    }
+    
+    private static boolean isBracket(char c) {
+        switch (c) {
+            case '（': case '）': case '(': case ')': case '【': case '】':
+            case '[': case ']': case '《': case '》': case '<': case '>':
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static boolean isUnit(char c) {
+        switch (c) {
+            case '路': case '块': case '个': case '套': case '台':
+            case 'T': case 'G': case 'M': case 'K':
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static boolean isSplitChar(char c) {
+        if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+            return true;
+        }
+        if (c >= '0' && c <= '9') {
+            return true;
+        }
+        // ASCII标点：!"#$%&'()*+,-./:;<=>?@[\]^_`{|}~
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+    
+    private static boolean isCloseParenthesis(char c) {
+        return c == '）' || c == ')';
+    }
+    
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+    
+    /**
+     * 关键词提取规则签名（停用词、同义词、核心概念词）
+     * 规则变化后，基于旧规则预编译的关键词数据应视为失效
+     */
+    public static long rulesSignature() {
+        Long signature = cachedRulesSignature;
+        if (signature == null) {
+            signature = computeRulesSignature();
+            cachedRulesSignature = signature;
+        }
+        return signature;
+    }
+    
+    private static long computeRulesSignature() {
+        long hash = 0xcbf29ce484222325L;
+        hash = hashStrings(hash, new TreeSet<>(STOP_WORDS));
+        for (Set<String> group : synonyms.getGroups()) {
+            hash = hashStrings(hash, group);
+            // 组分隔（同义词中没有空字符串）
+            hash = hashStrings(hash, Collections.singleton(""));
+        }
+        hash = hashStrings(hash, new TreeSet<>(CORE_CONCEPTS));
+        return hash;
+    }
+    
+    private static long hashStrings(long hash, Collection<String> values) {
+        for (String value : values) {
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+    
     /**
      * 检查是否有冲突的类型词
      * 例如："热成像摄像机"和"抓拍摄像机"不应该匹配
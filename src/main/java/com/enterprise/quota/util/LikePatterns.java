@@ -0,0 +1,34 @@
+package com.enterprise.quota.util;
+
+/**
+ * LIKE 查询工具类
+ * 用户输入的关键词按字面匹配：转义其中的通配符 %、_ 和转义符 \（查询中使用 ESCAPE '\\'）
+ */
+public final class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    /**
+     * 转义关键词中的 \、%、_
+     */
+    public static String escape(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (c == '\\' || c == '%' || c == '_') {
+                if (sb == null) {
+                    sb = new StringBuilder(keyword.length() + 8).append(keyword, 0, i);
+                }
+                sb.append('\\');
+            }
+            if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : keyword;
+    }
+}
@@ -0,0 +1,130 @@
+package com.enterprise.quota.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 线程安全的容量受限LRU缓存
+ * 按key的hash分段加锁，每段是一个按访问顺序排列的 LinkedHashMap，超出容量时淘汰最久未使用的条目；
+ * 同时统计命中、未命中次数
+ */
+public class LruCache<K, V> {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment<K, V>[] segments;
+
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    // 失效代数：计算期间缓存被清空时，旧结果不再放入缓存
+    private volatile int generation;
+
+    public LruCache(int maxSize) {
+        this.maxSize = Math.max(SEGMENT_COUNT, maxSize);
+        int segmentCapacity = (this.maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+        this.segments = newSegments(SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+    /**
+     * 获取缓存值，不存在时通过 loader 计算并放入缓存
+     * 计算过程不持有锁，并发计算同一个key时保留先放入的结果
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        int startGeneration = generation;
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+
+        misses.increment();
+        V computed = loader.apply(key);
+        if (computed == null) {
+            return null;
+        }
+        synchronized (segment) {
+            if (startGeneration != generation) {
+                return computed;
+            }
+            V existing = segment.putIfAbsent(key, computed);
+            return existing != null ? existing : computed;
+        }
+    }
+
+    /**
+     * 使缓存失效（清空全部条目，统计数据保留）
+     * 失效前开始、失效后才完成的计算结果不会放入缓存
+     */
+    public synchronized void invalidate() {
+        generation++;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+
+    /**
+     * 命中率（0-1之间，尚无访问时为0）
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    // 泛型数组只能以通配符类型创建
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int count) {
+        return (Segment<K, V>[]) new Segment<?, ?>[count];
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.enterprise.quota.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 预处理后的匹配文本
+ * 保存去除括号内容后的文本及其关键词，供 KeywordExtractor.calculateTextMatchScore 直接使用
+ */
+public final class PreparedText {
+    
+    private final String cleaned;
+    
+    private final List<String> keywords;
+    
+    public PreparedText(String cleaned, List<String> keywords) {
+        this.cleaned = cleaned;
+        this.keywords = Collections.unmodifiableList(keywords);
+    }
+    
+    /**
+     * 预处理文本（结果由 KeywordExtractor 缓存）
+     * @param text 原始文本
+     * @return 预处理结果，文本为空时返回null
+     */
+    public static PreparedText of(String text) {
+        return KeywordExtractor.prepareText(text);
+    }
+    
+    public String getCleaned() { return cleaned; }
+    public List<String> getKeywords() { return keywords; }
+}
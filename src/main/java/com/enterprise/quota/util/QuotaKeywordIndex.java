@@ -0,0 +1,305 @@
+package com.enterprise.quota.util;
+
+import java.util.*;
+
+/**
+ * 定额关键词倒排索引
+ * 关键词 -> 定额位置（定额列表中的下标），用于匹配前快速筛选候选定额。
+ * 候选定额覆盖所有可能得分大于0的定额，与打分规则一一对应：
+ * 关键词完全匹配、忽略大小写相同、同义词匹配、部分包含匹配（一方包含另一方），
+ * 以及清理后的名称/特征文本之间的包含关系（文本匹配得分的包含规则），
+ * 因此在候选定额中选出的最佳定额与全量扫描的结果相同
+ */
+public class QuotaKeywordIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    // 关键词（统一小写，兼容同义词判断中的忽略大小写）-> 升序排列的定额位置
+    private final Map<String, int[]> postings;
+
+    // 关键词原文（包含关系区分大小写，与打分一致）
+    private final TermIndex keywords;
+
+    // 清理后的名称、特征文本
+    private final TermIndex texts;
+
+    // 定额数量
+    private final int size;
+
+    private QuotaKeywordIndex(Map<String, int[]> postings, TermIndex keywords, TermIndex texts, int size) {
+        this.postings = postings;
+        this.keywords = keywords;
+        this.texts = texts;
+        this.size = size;
+    }
+
+    /**
+     * 构建倒排索引
+     * @param keywordsByPosition 按定额列表顺序排列的定额关键词（与定额列表一一对应，可为null）
+     * @param names 按定额列表顺序排列的预处理名称（可为null）
+     * @param features 按定额列表顺序排列的预处理特征（可为null）
+     * @return 倒排索引
+     */
+    public static QuotaKeywordIndex build(List<List<String>> keywordsByPosition,
+                                         List<PreparedText> names, List<PreparedText> features) {
+        Map<String, IntList> building = new HashMap<>();
+        Map<String, IntList> keywordTerms = new HashMap<>();
+        Map<String, IntList> textTerms = new HashMap<>();
+        int size = keywordsByPosition.size();
+        for (int pos = 0; pos < size; pos++) {
+            // 名称、特征的关键词基于去除括号后的文本，可能与定额关键词不同，一并索引
+            addKeywords(keywordsByPosition.get(pos), pos, building, keywordTerms);
+            for (PreparedText text : Arrays.asList(names.get(pos), features.get(pos))) {
+                if (text != null) {
+                    addKeywords(text.getKeywords(), pos, building, keywordTerms);
+                    textTerms.computeIfAbsent(text.getCleaned(), k -> new IntList()).addIfLast(pos);
+                }
+            }
+        }
+
+        Map<String, int[]> postings = new HashMap<>(building.size() * 2);
+        for (Map.Entry<String, IntList> entry : building.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return new QuotaKeywordIndex(postings, TermIndex.build(keywordTerms), TermIndex.build(textTerms), size);
+    }
+
+    private static void addKeywords(List<String> keywords, int pos, Map<String, IntList> building,
+                                    Map<String, IntList> keywordTerms) {
+        if (keywords == null) {
+            return;
+        }
+        for (String keyword : keywords) {
+            building.computeIfAbsent(normalize(keyword), k -> new IntList()).addIfLast(pos);
+            keywordTerms.computeIfAbsent(keyword, k -> new IntList()).addIfLast(pos);
+        }
+    }
+
+    /**
+     * 查找可能与清单得分大于0的候选定额
+     * @param itemKeywords 清单关键词
+     * @param itemName 清单预处理名称（可为null）
+     * @param itemFeature 清单预处理特征（可为null）
+     * @return 升序排列的候选定额位置（保持与全量扫描相同的遍历顺序）
+     */
+    public int[] candidates(Collection<String> itemKeywords, PreparedText itemName, PreparedText itemFeature) {
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        BitSet hits = new BitSet(size);
+        Set<String> seen = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        collectKeywords(itemKeywords, hits, seen, visited);
+        for (PreparedText text : Arrays.asList(itemName, itemFeature)) {
+            if (text != null) {
+                collectKeywords(text.getKeywords(), hits, seen, visited);
+                texts.collectRelated(text.getCleaned(), hits);
+            }
+        }
+
+        int[] result = new int[hits.cardinality()];
+        int i = 0;
+        for (int pos = hits.nextSetBit(0); pos >= 0; pos = hits.nextSetBit(pos + 1)) {
+            result[i++] = pos;
+        }
+        return result;
+    }
+
+    private void collectKeywords(Collection<String> itemKeywords, BitSet hits, Set<String> seen,
+                                 Set<String> visited) {
+        if (itemKeywords == null) {
+            return;
+        }
+        for (String keyword : itemKeywords) {
+            if (!seen.add(keyword)) {
+                continue;
+            }
+            collect(keyword, hits, visited);
+            // 同义词扩展
+            for (String synonym : KeywordExtractor.getSynonyms(keyword)) {
+                collect(synonym, hits, visited);
+            }
+            // 部分包含扩展
+            keywords.collectRelated(keyword, hits);
+        }
+    }
+
+    private void collect(String keyword, BitSet hits, Set<String> visited) {
+        String key = normalize(keyword);
+        if (!visited.add(key)) {
+            return;
+        }
+        int[] positions = postings.get(key);
+        if (positions != null) {
+            for (int pos : positions) {
+                hits.set(pos);
+            }
+        }
+    }
+
+    private static String normalize(String keyword) {
+        return keyword.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 索引中的定额数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 索引中的关键词数量
+     */
+    public int keywordCount() {
+        return postings.size();
+    }
+
+    /**
+     * 包含关系索引：查找包含给定文本、或被给定文本包含的词
+     * 被包含的词按索引中出现过的词长枚举给定文本的子串查找；
+     * 包含给定文本的词一定包含其中每个二元组，只需在最少的二元组列表中逐个验证
+     */
+    private static final class TermIndex {
+
+        // 词 -> 升序排列的定额位置
+        private final Map<String, int[]> positions;
+
+        // 以下数组按词序号对齐
+        private final String[] terms;
+        private final int[][] termPositions;
+
+        // 二元组（两个字符拼成的int）-> 包含该二元组的词序号
+        private final Map<Integer, int[]> bigrams;
+
+        // 索引中出现过的词长（升序）
+        private final int[] lengths;
+
+        private TermIndex(Map<String, int[]> positions, String[] terms, int[][] termPositions,
+                          Map<Integer, int[]> bigrams, int[] lengths) {
+            this.positions = positions;
+            this.terms = terms;
+            this.termPositions = termPositions;
+            this.bigrams = bigrams;
+            this.lengths = lengths;
+        }
+
+        static TermIndex build(Map<String, IntList> building) {
+            int count = building.size();
+            Map<String, int[]> positions = new HashMap<>(count * 2);
+            String[] terms = new String[count];
+            int[][] termPositions = new int[count][];
+            Map<Integer, IntList> bigramLists = new HashMap<>();
+            SortedSet<Integer> lengths = new TreeSet<>();
+            int ordinal = 0;
+            for (Map.Entry<String, IntList> entry : building.entrySet()) {
+                String term = entry.getKey();
+                terms[ordinal] = term;
+                termPositions[ordinal] = entry.getValue().toArray();
+                positions.put(term, termPositions[ordinal]);
+                lengths.add(term.length());
+                for (int i = 0; i + 1 < term.length(); i++) {
+                    bigramLists.computeIfAbsent(bigram(term, i), k -> new IntList()).addIfLast(ordinal);
+                }
+                ordinal++;
+            }
+
+            Map<Integer, int[]> bigrams = new HashMap<>(bigramLists.size() * 2);
+            for (Map.Entry<Integer, IntList> entry : bigramLists.entrySet()) {
+                bigrams.put(entry.getKey(), entry.getValue().toArray());
+            }
+            int[] lengthArray = new int[lengths.size()];
+            int i = 0;
+            for (int length : lengths) {
+                lengthArray[i++] = length;
+            }
+            return new TermIndex(positions, terms, termPositions, bigrams, lengthArray);
+        }
+
+        private static int bigram(String text, int i) {
+            return (text.charAt(i) << 16) | text.charAt(i + 1);
+        }
+
+        /**
+         * 收集与文本有包含关系（含相同）的词所在的定额
+         */
+        void collectRelated(String text, BitSet hits) {
+            collectContainedIn(text, hits);
+            collectContaining(text, hits);
+        }
+
+        // 被文本包含的词
+        private void collectContainedIn(String text, BitSet hits) {
+            int length = text.length();
+            for (int termLength : lengths) {
+                if (termLength > length) {
+                    break;
+                }
+                int last = termLength == 0 ? 0 : length - termLength;
+                for (int i = 0; i <= last; i++) {
+                    set(positions.get(text.substring(i, i + termLength)), hits);
+                }
+            }
+        }
+
+        // 包含文本的词
+        private void collectContaining(String text, BitSet hits) {
+            if (text.length() < 2) {
+                // 单字或空文本没有二元组，逐个检查
+                for (int ordinal = 0; ordinal < terms.length; ordinal++) {
+                    if (terms[ordinal].contains(text)) {
+                        set(termPositions[ordinal], hits);
+                    }
+                }
+                return;
+            }
+            int[] rarest = null;
+            for (int i = 0; i + 1 < text.length(); i++) {
+                int[] ordinals = bigrams.get(bigram(text, i));
+                if (ordinals == null) {
+                    return;
+                }
+                if (rarest == null || ordinals.length < rarest.length) {
+                    rarest = ordinals;
+                }
+            }
+            for (int ordinal : rarest) {
+                if (terms[ordinal].contains(text)) {
+                    set(termPositions[ordinal], hits);
+                }
+            }
+        }
+
+        private static void set(int[] positions, BitSet hits) {
+            if (positions != null) {
+                for (int pos : positions) {
+                    hits.set(pos);
+                }
+            }
+        }
+    }
+
+    /**
+     * 简单的int动态数组，避免构建时装箱
+     */
+    private static class IntList {
+        int[] data = new int[4];
+        int length;
+
+        // 同一定额的重复关键词只记录一次（位置递增添加，只需比较最后一个）
+        void addIfLast(int value) {
+            if (length > 0 && data[length - 1] == value) {
+                return;
+            }
+            if (length == data.length) {
+                data = Arrays.copyOf(data, length * 2);
+            }
+            data[length++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.enterprise.quota.util;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.cjk.CJKWidthFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 企业定额全文检索索引（Lucene）
+ * 定额名称、特征值中的中日韩文字按单字和相邻二字建立倒排索引，其余文字按词切分，
+ * 检索时关键词按二字切分，名称或特征值包含全部切分结果的定额按相关度排序返回；
+ * 字母、数字按整词索引，只能整词命中（如 "DN2" 查不到 "DN20"），含字母数字的关键词由调用方改用 LIKE 查询（见 supports）；
+ * 文档按定额版本分组，同一版本整体删除后重新写入，commit 之后检索才能看到
+ */
+public class QuotaSearchIndex implements Closeable {
+
+    // 未指定版本的定额使用的版本键
+    public static final String NO_VERSION = "none";
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_VERSION = "version";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_FEATURE = "feature";
+
+    // 名称命中比特征值命中更相关，名称中连续出现关键词再加权
+    private static final float NAME_BOOST = 2.0f;
+    private static final float NAME_PHRASE_BOOST = 4.0f;
+
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    // 检索时只切分二字（单独的一个字仍输出单字），与索引中的单字+二字对应
+    private final QueryBuilder queryBuilder = new QueryBuilder(new CjkAnalyzer(false));
+
+    public QuotaSearchIndex(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.directory = FSDirectory.open(dir);
+        IndexWriterConfig config = new IndexWriterConfig(new CjkAnalyzer(true));
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    public static String versionKey(Long versionId) {
+        return versionId != null ? String.valueOf(versionId) : NO_VERSION;
+    }
+
+    public static Long versionId(String versionKey) {
+        return NO_VERSION.equals(versionKey) ? null : Long.valueOf(versionKey);
+    }
+
+    /**
+     * 关键词能否使用索引检索：除标点、空白外只含中日韩文字时，命中范围覆盖 LIKE %keyword%；
+     * 含字母、数字的关键词可能只是整词的一部分（如 "DN2"），索引查不到，应使用 LIKE 查询
+     */
+    public static boolean supports(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); ) {
+            int codePoint = keyword.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint) && !isCjk(codePoint)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+
+    public void add(EnterpriseQuota quota) throws IOException {
+        Document doc = new Document();
+        doc.add(new StoredField(FIELD_ID, quota.getId()));
+        doc.add(new StringField(FIELD_VERSION, versionKey(quota.getVersionId()), Field.Store.NO));
+        if (quota.getQuotaName() != null) {
+            doc.add(new TextField(FIELD_NAME, quota.getQuotaName(), Field.Store.NO));
+        }
+        if (quota.getFeatureValue() != null) {
+            doc.add(new TextField(FIELD_FEATURE, quota.getFeatureValue(), Field.Store.NO));
+        }
+        writer.addDocument(doc);
+    }
+
+    public void deleteVersion(String versionKey) throws IOException {
+        writer.deleteDocuments(new Term(FIELD_VERSION, versionKey));
+    }
+
+    public void deleteAll() throws IOException {
+        writer.deleteAll();
+    }
+
+    /**
+     * 提交之前的写入并刷新检索视图
+     */
+    public void commit() throws IOException {
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    /**
+     * 指定版本已提交的文档数
+     */
+    public int count(String versionKey) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.count(new TermQuery(new Term(FIELD_VERSION, versionKey)));
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 已提交的文档总数
+     */
+    public int size() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 按相关度检索定额
+     * @param versionKey 版本键，为null时不限版本
+     * @param keyword 关键词
+     * @param offset 跳过的结果数
+     * @param limit 返回的结果数
+     */
+    public Hits search(String versionKey, String keyword, int offset, int limit) throws IOException {
+        Query query = buildQuery(keyword);
+        if (query == null) {
+            return new Hits(Collections.emptyList(), 0);
+        }
+        if (versionKey != null) {
+            query = new BooleanQuery.Builder()
+                    .add(query, BooleanClause.Occur.MUST)
+                    .add(new TermQuery(new Term(FIELD_VERSION, versionKey)), BooleanClause.Occur.FILTER)
+                    .build();
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            int total = searcher.count(query);
+            if (offset >= total || limit <= 0) {
+                return new Hits(Collections.emptyList(), total);
+            }
+            TopDocs topDocs = searcher.search(query, Math.min(offset + limit, total));
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            List<Long> ids = new ArrayList<>(Math.max(0, scoreDocs.length - offset));
+            for (int i = offset; i < scoreDocs.length; i++) {
+                Document doc = searcher.doc(scoreDocs[i].doc);
+                ids.add(doc.getField(FIELD_ID).numericValue().longValue());
+            }
+            return new Hits(ids, total);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 名称或特征值包含关键词的全部切分结果
+     * 关键词只含中日韩文字时命中范围覆盖 LIKE %keyword%（二字都出现但不连续的定额也会命中，排在后面）
+     */
+    private Query buildQuery(String keyword) {
+        Query nameQuery = queryBuilder.createBooleanQuery(FIELD_NAME, keyword, BooleanClause.Occur.MUST);
+        Query featureQuery = queryBuilder.createBooleanQuery(FIELD_FEATURE, keyword, BooleanClause.Occur.MUST);
+        if (nameQuery == null || featureQuery == null) {
+            return null;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(new BoostQuery(nameQuery, NAME_BOOST), BooleanClause.Occur.SHOULD)
+                .add(featureQuery, BooleanClause.Occur.SHOULD);
+        Query namePhrase = queryBuilder.createPhraseQuery(FIELD_NAME, keyword);
+        if (namePhrase != null) {
+            builder.add(new BoostQuery(namePhrase, NAME_PHRASE_BOOST), BooleanClause.Occur.SHOULD);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            searcherManager.close();
+            writer.close();
+        } finally {
+            directory.close();
+        }
+    }
+
+    /**
+     * 一页检索结果：按相关度排序的定额ID和命中总数
+     */
+    public static class Hits {
+        private final List<Long> ids;
+        private final int total;
+
+        Hits(List<Long> ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Long> getIds() { return ids; }
+        public int getTotal() { return total; }
+    }
+
+    /**
+     * 中日韩文字切分为单字/二字，全角字母数字转半角，英文转小写
+     */
+    private static class CjkAnalyzer extends Analyzer {
+        private final boolean outputUnigrams;
+
+        CjkAnalyzer(boolean outputUnigrams) {
+            this.outputUnigrams = outputUnigrams;
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new CJKWidthFilter(source);
+            result = new LowerCaseFilter(result);
+            result = new CJKBigramFilter(result, CJKBigramFilter.HAN | CJKBigramFilter.HIRAGANA
+                    | CJKBigramFilter.KATAKANA | CJKBigramFilter.HANGUL, outputUnigrams);
+            return new TokenStreamComponents(source, result);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.enterprise.quota.util;
+
+import java.util.*;
+
+/**
+ * 打分模型快照（学习结果）
+ * 按关键词保存学习到的关键词权重，快照不可修改；
+ * 学习完成后整体构建新快照并通过 volatile 引用一次性发布，打分时无锁读取。
+ * 各定额索引的关键词字典（KeywordDictionary）按关键词编号把权重展开为数组缓存，模型变化后重新展开
+ * （学习到的同义词合并到 KeywordExtractor 的同义词表中，见 SynonymRegistry）
+ */
+public final class ScoringModel {
+
+    // 未学习时的模型：所有权重为1.0，打分结果与不使用学习结果时相同
+    public static final ScoringModel EMPTY = new ScoringModel(0L, Collections.emptyMap());
+
+    private static volatile ScoringModel current = EMPTY;
+
+    // 模型内容签名（权重相同的模型签名相同）
+    private final long version;
+
+    // 关键词 -> 学习到的权重
+    private final Map<String, Float> weights;
+
+    private ScoringModel(long version, Map<String, Float> weights) {
+        this.version = version;
+        this.weights = weights;
+    }
+
+    /**
+     * 当前发布的模型
+     */
+    public static ScoringModel current() {
+        return current;
+    }
+
+    /**
+     * 发布新模型，之后开始的打分使用新模型
+     */
+    public static void publish(ScoringModel model) {
+        current = model;
+    }
+
+    /**
+     * 关键词权重（未学习的关键词为1.0）
+     */
+    public float weight(String keyword) {
+        Float weight = weights.get(keyword);
+        return weight != null ? weight : 1.0f;
+    }
+
+    /**
+     * 是否有学习到的权重（没有时打分可以跳过权重计算）
+     */
+    public boolean hasWeights() {
+        return !weights.isEmpty();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getWeightCount() {
+        return weights.size();
+    }
+
+    /**
+     * 模型构建器
+     */
+    public static final class Builder {
+
+        // 关键词 -> 权重（按关键词排序，签名与添加顺序无关）
+        private final SortedMap<String, Float> weights = new TreeMap<>();
+
+        public Builder weight(String keyword, double weight) {
+            if (keyword != null && !keyword.isEmpty() && weight > 0 && (float) weight != 1.0f) {
+                weights.put(keyword, (float) weight);
+            }
+            return this;
+        }
+
+        public ScoringModel build() {
+            if (weights.isEmpty()) {
+                return EMPTY;
+            }
+            long hash = Fingerprints.of("scoring-model");
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                hash = Fingerprints.of(Long.toString(hash), entry.getKey(), Float.toString(entry.getValue()));
+            }
+            return new ScoringModel(hash, Collections.unmodifiableMap(new HashMap<>(weights)));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.enterprise.quota.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 同义词表
+ * 每个词映射到唯一的同义词组编号，判断两个词是否为同义词只需比较组编号；
+ * 有交集的同义词组合并为一组（A~B、B~C 时 A、B、C 为同一组），组编号按组内最小的词排序分配，与添加顺序无关
+ *
+ * 同义词表不可修改，变化时整体构建新表替换
+ */
+public final class SynonymRegistry {
+
+    public static final SynonymRegistry EMPTY = new Builder().build();
+
+    // 词 -> 组编号
+    private final Map<String, Integer> groupIds;
+
+    // 组编号 -> 组内的词（有序、不可修改）
+    private final List<Set<String>> groups;
+
+    private SynonymRegistry(Map<String, Integer> groupIds, List<Set<String>> groups) {
+        this.groupIds = groupIds;
+        this.groups = groups;
+    }
+
+    /**
+     * 词所在的同义词组编号，不属于任何组时返回-1
+     */
+    public int groupOf(String term) {
+        Integer group = groupIds.get(term);
+        return group != null ? group : -1;
+    }
+
+    /**
+     * 词所在的同义词组（含词本身；不属于任何组时返回空集合）
+     */
+    public Set<String> synonymsOf(String term) {
+        int group = groupOf(term);
+        return group >= 0 ? groups.get(group) : Collections.emptySet();
+    }
+
+    /**
+     * 全部同义词组（按组编号排列）
+     */
+    public List<Set<String>> getGroups() {
+        return groups;
+    }
+
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * 从文本读取同义词组：每行一组，词之间用逗号分隔，# 开头的行为注释
+     */
+    public static Builder read(InputStream in, Builder builder) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            builder.add(Arrays.asList(line.split("[,，]")));
+        }
+        return builder;
+    }
+
+    /**
+     * 读取类路径中的同义词文件，文件不存在或读取失败时返回空表
+     */
+    public static SynonymRegistry fromClasspath(String resource) {
+        try (InputStream in = SynonymRegistry.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                return EMPTY;
+            }
+            return read(in, new Builder()).build();
+        } catch (IOException e) {
+            System.err.println("读取同义词文件失败: " + resource + ", 错误: " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    /**
+     * 同义词表构建器（并查集合并有交集的组）
+     */
+    public static final class Builder {
+
+        // 词 -> 并查集节点编号
+        private final Map<String, Integer> nodes = new HashMap<>();
+
+        private final List<String> terms = new ArrayList<>();
+
+        private int[] parents = new int[16];
+
+        /**
+         * 添加一组同义词（去除首尾空白，忽略空词；少于两个词的组不生效）
+         */
+        public Builder add(Collection<String> group) {
+            int first = -1;
+            for (String raw : group) {
+                if (raw == null) {
+                    continue;
+                }
+                String term = raw.trim();
+                if (term.isEmpty()) {
+                    continue;
+                }
+                int node = nodeOf(term);
+                if (first < 0) {
+                    first = node;
+                } else {
+                    union(first, node);
+                }
+            }
+            return this;
+        }
+
+        private int nodeOf(String term) {
+            Integer node = nodes.get(term);
+            if (node != null) {
+                return node;
+            }
+            int id = terms.size();
+            if (id == parents.length) {
+                parents = Arrays.copyOf(parents, id * 2);
+            }
+            parents[id] = id;
+            terms.add(term);
+            nodes.put(term, id);
+            return id;
+        }
+
+        private int find(int node) {
+            int root = node;
+            while (parents[root] != root) {
+                root = parents[root];
+            }
+            // 路径压缩
+            while (parents[node] != root) {
+                int next = parents[node];
+                parents[node] = root;
+                node = next;
+            }
+            return root;
+        }
+
+        private void union(int a, int b) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA != rootB) {
+                parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+            }
+        }
+
+        public SynonymRegistry build() {
+            Map<Integer, TreeSet<String>> byRoot = new HashMap<>();
+            for (int node = 0; node < terms.size(); node++) {
+                byRoot.computeIfAbsent(find(node), root -> new TreeSet<>()).add(terms.get(node));
+            }
+            // 按组内最小的词排序分配组编号
+            TreeMap<String, Set<String>> sorted = new TreeMap<>();
+            for (TreeSet<String> group : byRoot.values()) {
+                if (group.size() >= 2) {
+                    sorted.put(group.first(), Collections.unmodifiableSet(group));
+                }
+            }
+
+            Map<String, Integer> groupIds = new HashMap<>();
+            List<Set<String>> groups = new ArrayList<>(sorted.size());
+            for (Set<String> group : sorted.values()) {
+                for (String term : group) {
+                    groupIds.put(term, groups.size());
+                }
+                groups.add(group);
+            }
+            return new SynonymRegistry(groupIds, Collections.unmodifiableList(groups));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+-- 基线表结构（与实体类映射一致，适用于 MySQL 5.7+）
+-- 已有数据库（此前由 ddl-auto=update 建表）在首次迁移时按 baseline-version=1 记为基线，跳过本脚本
+
+CREATE TABLE IF NOT EXISTS sys_user (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(50) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    real_name VARCHAR(100),
+    email VARCHAR(100),
+    status INTEGER,
+    role VARCHAR(20),
+    create_time DATETIME(6),
+    update_time DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_sys_user_username UNIQUE (username)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS quota_version (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    version_name VARCHAR(200) NOT NULL,
+    description VARCHAR(1000),
+    create_time DATETIME(6),
+    update_time DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS enterprise_quota (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    quota_code VARCHAR(100),
+    quota_name LONGTEXT,
+    feature_value LONGTEXT,
+    unit VARCHAR(50),
+    unit_price DECIMAL(18, 2),
+    labor_cost DECIMAL(18, 2),
+    material_cost DECIMAL(18, 2),
+    machine_cost DECIMAL(18, 2),
+    remark LONGTEXT,
+    version_id BIGINT,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS project_item (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT,
+    item_code VARCHAR(100),
+    item_name LONGTEXT,
+    feature_value LONGTEXT,
+    unit VARCHAR(50),
+    quantity DECIMAL(18, 2),
+    matched_quota_id BIGINT,
+    matched_quota_code VARCHAR(100),
+    matched_quota_name LONGTEXT,
+    matched_quota_feature_value LONGTEXT,
+    matched_unit_price DECIMAL(18, 2),
+    total_price DECIMAL(18, 2),
+    match_status INTEGER,
+    remark LONGTEXT,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS project_item_quota (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    project_item_id BIGINT NOT NULL,
+    quota_id BIGINT NOT NULL,
+    quota_code VARCHAR(100),
+    quota_name LONGTEXT,
+    quota_feature_value LONGTEXT,
+    unit_price DECIMAL(18, 2),
+    sort_order INTEGER,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS keyword_weight (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    keyword VARCHAR(200),
+    weight DOUBLE PRECISION,
+    match_count INTEGER,
+    total_count INTEGER,
+    success_rate DOUBLE PRECISION,
+    is_core_concept BIT,
+    update_time DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_keyword_weight_keyword UNIQUE (keyword)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS matching_learning_record (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    item_name TEXT,
+    item_feature_value LONGTEXT,
+    quota_name TEXT,
+    quota_feature_value LONGTEXT,
+    match_score DOUBLE PRECISION,
+    match_type INTEGER,
+    item_keywords TEXT,
+    quota_keywords TEXT,
+    common_keywords TEXT,
+    learning_weight DOUBLE PRECISION,
+    create_time DATETIME(6),
+    update_time DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS matching_rule (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    rule_type VARCHAR(50),
+    source_text TEXT,
+    target_text TEXT,
+    rule_value TEXT,
+    confidence DOUBLE PRECISION,
+    usage_count INTEGER,
+    create_time DATETIME(6),
+    update_time DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS document_template (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    template_name VARCHAR(200) NOT NULL,
+    file_name VARCHAR(500) NOT NULL,
+    file_path VARCHAR(1000) NOT NULL,
+    file_size BIGINT,
+    description TEXT,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    created_by VARCHAR(100),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS replacement_template (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    template_name VARCHAR(200) NOT NULL,
+    replacements LONGTEXT NOT NULL,
+    description TEXT,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    created_by VARCHAR(100),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
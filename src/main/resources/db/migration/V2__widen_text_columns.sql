@@ -0,0 +1,18 @@
+-- 长文本字段改为 LONGTEXT（原 update-table-structure.sql）
+-- ddl-auto=update 不会修改已有列的类型，早期建表的数据库这些列仍是 VARCHAR(255)；对新库为空操作
+
+ALTER TABLE enterprise_quota
+    MODIFY COLUMN quota_name LONGTEXT,
+    MODIFY COLUMN feature_value LONGTEXT,
+    MODIFY COLUMN remark LONGTEXT;
+
+ALTER TABLE project_item
+    MODIFY COLUMN item_name LONGTEXT,
+    MODIFY COLUMN feature_value LONGTEXT,
+    MODIFY COLUMN matched_quota_name LONGTEXT,
+    MODIFY COLUMN matched_quota_feature_value LONGTEXT,
+    MODIFY COLUMN remark LONGTEXT;
+
+ALTER TABLE project_item_quota
+    MODIFY COLUMN quota_name LONGTEXT,
+    MODIFY COLUMN quota_feature_value LONGTEXT;
@@ -0,0 +1,50 @@
+-- 热点查询列索引
+-- MySQL 不支持 CREATE INDEX IF NOT EXISTS，先查 information_schema，已存在的索引（如此前由 ddl-auto=update 创建）跳过
+
+-- 按用户分页、导出、删除（findByUserId、deleteByUserId）
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_project_item_user_id ON project_item (user_id, id)', 'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'project_item' AND index_name = 'idx_project_item_user_id');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 按用户和匹配状态筛选（findByUserIdAndMatchStatus、清单分页筛选）
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_project_item_user_status ON project_item (user_id, match_status, id)', 'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'project_item' AND index_name = 'idx_project_item_user_status');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 按匹配状态查询（findByMatchStatus）
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_project_item_match_status ON project_item (match_status)', 'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'project_item' AND index_name = 'idx_project_item_match_status');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 按版本加载、删除定额（findByVersionId、deleteByVersionId）
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_enterprise_quota_version_id ON enterprise_quota (version_id, id)', 'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'enterprise_quota' AND index_name = 'idx_enterprise_quota_version_id');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 按定额编码查询（findByQuotaCode）
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_enterprise_quota_quota_code ON enterprise_quota (quota_code)', 'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'enterprise_quota' AND index_name = 'idx_enterprise_quota_quota_code');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 按清单加载、删除多定额明细（findByProjectItemId...、deleteByProjectItemId）
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_project_item_quota_item_id ON project_item_quota (project_item_id, sort_order)', 'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'project_item_quota' AND index_name = 'idx_project_item_quota_item_id');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,17 @@
+-- 关键词权重增量学习
+
+-- 匹配成功次数按学习权重累计（自动匹配0.5、手动修改1.0），改为小数
+ALTER TABLE keyword_weight MODIFY match_count DOUBLE PRECISION;
+
+-- 学习进度：各学习任务已处理的最大学习记录ID
+CREATE TABLE IF NOT EXISTS learning_checkpoint (
+    name VARCHAR(64) NOT NULL,
+    last_record_id BIGINT NOT NULL,
+    update_time DATETIME(6),
+    PRIMARY KEY (name)
+) ENGINE = InnoDB;
+
+INSERT IGNORE INTO learning_checkpoint (name, last_record_id, update_time) VALUES ('keyword_weight', 0, NOW(6));
+
+-- 之前每次学习都重新累计全部历史记录，计数被重复累加；清零后由首次增量学习从头累计一次
+UPDATE keyword_weight SET match_count = 0, total_count = 0;
@@ -0,0 +1,19 @@
+-- 学习记录关键词结构化存储（代替 matching_learning_record 中的 JSON 文本列）
+
+-- 关键词表：每个关键词一个ID（区分大小写和全半角，与关键词提取结果一致）
+CREATE TABLE IF NOT EXISTS learning_keyword (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    keyword VARCHAR(200) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_learning_keyword_keyword UNIQUE (keyword)
+) ENGINE = InnoDB;
+
+-- 学习记录中出现的关键词：role 1=清单关键词，2=定额关键词，3=共同关键词
+-- 主键按记录ID开头，增量学习按记录ID范围读取；按关键词统计时使用 keyword_id 索引
+CREATE TABLE IF NOT EXISTS learning_record_keyword (
+    record_id BIGINT NOT NULL,
+    role TINYINT NOT NULL,
+    keyword_id BIGINT NOT NULL,
+    PRIMARY KEY (record_id, role, keyword_id),
+    KEY idx_learning_record_keyword_keyword (keyword_id, role)
+) ENGINE = InnoDB;
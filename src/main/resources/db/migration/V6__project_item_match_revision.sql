@@ -0,0 +1,17 @@
+-- 增量重新匹配：清单上次匹配时的输入指纹和匹配修订号
+-- 已有数据库按 baseline-version=1 跳过 V1，这两列在此单独添加；
+-- MySQL 不支持 ADD COLUMN IF NOT EXISTS，先查 information_schema，已存在的列跳过
+
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'ALTER TABLE project_item ADD COLUMN match_fingerprint BIGINT', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'project_item' AND column_name = 'match_fingerprint');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'ALTER TABLE project_item ADD COLUMN match_revision BIGINT', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'project_item' AND column_name = 'match_revision');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -7,6 +7,9 @@ let selectedQuotaIds = new Set();
 let selectedVersionIds = new Set();
 let currentVersionId = null; // 当前选中的版本ID
 let currentViewingVersionId = null; // 当前查看的版本明细ID
+const ITEMS_PAGE_SIZE = 100; // 项目清单每页条数
+let itemsPage = 0; // 项目清单当前页（从0开始）
+let itemsFilterTimer = null;
 
 window.onload = function() {
     try {
@@ -194,47 +197,92 @@ async function matchQuotas() {
     statusSpan.className = 'status-message';
     
     try {
-        const url = API_BASE + '/match?versionId=' + versionId;
+        // 提交异步匹配任务，随后轮询进度
+        const url = API_BASE + '/match-jobs?versionId=' + versionId;
         const response = await fetch(url, {
             method: 'POST'
         });
         
         const result = await response.json();
         
-        if (result.success) {
-            statusSpan.textContent = result.message;
-            statusSpan.className = 'status-message status-success';
-            loadItems();
-        } else {
+        if (!result.success) {
             statusSpan.textContent = result.message;
             statusSpan.className = 'status-message status-error';
+            return;
         }
+        
+        pollMatchJob(result.jobId);
     } catch (error) {
         statusSpan.textContent = '匹配失败：' + error.message;
         statusSpan.className = 'status-message status-error';
     }
 }
 
-async function loadItems() {
+async function pollMatchJob(jobId) {
+    const statusSpan = document.getElementById('matchStatus');
+    
     try {
-        const response = await fetch(API_BASE + '/items');
-        const items = await response.json();
-        
-        // 对于多定额匹配的项目，加载其关联的定额列表
-        const itemsWithQuotas = await Promise.all(items.map(async (item) => {
-            if (item.matchStatus === 3) {
-                try {
-                    const quotasResponse = await fetch(API_BASE + `/items/${item.id}/quotas`);
-                    item.quotas = await quotasResponse.json();
-                } catch (error) {
-                    console.error(`加载项目 ${item.id} 的定额列表失败：`, error);
-                    item.quotas = [];
-                }
+        const response = await fetch(API_BASE + '/match-jobs/' + jobId);
+        const job = await response.json();
+        
+        if (!job.success) {
+            statusSpan.textContent = job.message;
+            statusSpan.className = 'status-message status-error';
+            return;
+        }
+        
+        if (job.status === 'RUNNING') {
+            let text = '匹配中... 已处理 ' + job.processedItems;
+            if (job.totalItems !== null) {
+                text += ' / ' + job.totalItems + '（' + job.percent + '%）';
             }
-            return item;
-        }));
+            text += '，已匹配 ' + job.matchedItems;
+            if (job.etaSeconds !== null) {
+                text += '，预计剩余 ' + job.etaSeconds + ' 秒';
+            }
+            statusSpan.textContent = text;
+            statusSpan.className = 'status-message';
+            setTimeout(() => pollMatchJob(jobId), 1000);
+            return;
+        }
+        
+        statusSpan.textContent = job.message;
+        statusSpan.className = job.status === 'FAILED' ? 'status-message status-error' : 'status-message status-success';
+        loadItems();
+    } catch (error) {
+        statusSpan.textContent = '查询匹配进度失败：' + error.message;
+        statusSpan.className = 'status-message status-error';
+    }
+}
+
+async function loadItems() {
+    try {
+        const keyword = (document.getElementById('searchInput')?.value || '').trim();
+        const matchStatus = document.getElementById('statusFilter')?.value || '';
+        let url = API_BASE + '/items/page?page=' + itemsPage + '&size=' + ITEMS_PAGE_SIZE;
+        if (keyword) {
+            url += '&keyword=' + encodeURIComponent(keyword);
+        }
+        if (matchStatus !== '') {
+            url += '&matchStatus=' + matchStatus;
+        }
+        const response = await fetch(url);
+        const result = await response.json();
+        if (!result.success) {
+            console.error('加载数据失败：', result.message);
+            return;
+        }
+        
+        // 当前页已无数据（如删除后）时回到最后一页
+        if (result.data.length === 0 && itemsPage > 0 && itemsPage >= result.totalPages) {
+            itemsPage = Math.max(0, result.totalPages - 1);
+            return loadItems();
+        }
         
-        renderItemsTable(itemsWithQuotas);
+        // 多定额匹配的定额明细已随列表一起返回
+        renderItemsTable(result.data, result.page * result.size);
+        updateTotalAmount(parseFloat(result.totalAmount) || 0);
+        renderItemsPager(result);
         
         // 初始化可编辑单元格
         setTimeout(() => {
@@ -245,20 +293,33 @@ async function loadItems() {
     }
 }
 
-function renderItemsTable(items) {
+// 渲染分页信息
+function renderItemsPager(result) {
+    const pager = document.getElementById('itemsPager');
+    if (!pager) return;
+    const totalPages = Math.max(1, result.totalPages);
+    pager.innerHTML = `
+        <button onclick="goToItemsPage(${result.page - 1})" ${result.page <= 0 ? 'disabled' : ''}>上一页</button>
+        <span>第 ${result.page + 1} / ${totalPages} 页，共 ${result.totalElements} 条</span>
+        <button onclick="goToItemsPage(${result.page + 1})" ${result.page + 1 >= totalPages ? 'disabled' : ''}>下一页</button>
+    `;
+}
+
+function goToItemsPage(page) {
+    if (page < 0) return;
+    itemsPage = page;
+    loadItems();
+}
+
+function renderItemsTable(items, offset = 0) {
     const tbody = document.getElementById('itemsTableBody');
     
     if (items.length === 0) {
         tbody.innerHTML = '<tr><td colspan="15" class="empty-message">暂无数据，请先导入项目清单</td></tr>';
-        selectedItemIds.clear();
         updateItemBatchActions();
-        updateTotalAmount(0);
         return;
     }
     
-    // 计算总金额
-    let totalAmount = 0;
-    
     tbody.innerHTML = items.map((item, index) => {
         const statusClass = item.matchStatus === 1 ? 'status-matched' : 
                            item.matchStatus === 2 ? 'status-manual' : 
@@ -283,12 +344,6 @@ function renderItemsTable(items) {
             quotaFeatureDisplay = item.matchedQuotaFeatureValue || '';
         }
         
-        // 累加总金额（只计算有匹配的项目）
-        if (item.totalPrice != null) {
-            const price = parseFloat(item.totalPrice) || 0;
-            totalAmount += price;
-        }
-        
         const isSelected = selectedItemIds.has(item.id);
         return `
             <tr data-item-id="${item.id}">
@@ -296,7 +351,7 @@ function renderItemsTable(items) {
                     <input type="checkbox" ${isSelected ? 'checked' : ''} 
                            onchange="toggleItemSelection(${item.id}, this.checked)">
                 </td>
-                <td style="text-align: center; font-weight: bold;">${index + 1}</td>
+                <td style="text-align: center; font-weight: bold;">${offset + index + 1}</td>
                 <td class="editable-cell" data-field="itemCode" data-item-id="${item.id}" title="双击编辑">${item.itemCode || ''}</td>
                 <td class="editable-cell" data-field="itemName" data-item-id="${item.id}" title="双击编辑">${item.itemName || ''}</td>
                 <td class="editable-cell" data-field="featureValue" data-item-id="${item.id}" title="双击编辑">${item.featureValue || ''}</td>
@@ -319,9 +374,6 @@ function renderItemsTable(items) {
         `;
     }).join('');
     
-    // 更新总金额显示
-    updateTotalAmount(totalAmount);
-    
     // 初始化列宽调整功能、批量操作和滚动
     setTimeout(() => {
         initResizableColumns();
@@ -372,15 +424,13 @@ async function addNewRowToTable() {
     }
 }
 
+// 按关键词、匹配状态筛选（服务端查询，输入停止后再加载）
 function filterItems() {
-    const searchInput = document.getElementById('searchInput');
-    const keyword = searchInput.value.toLowerCase();
-    const rows = document.querySelectorAll('#itemsTableBody tr');
-    
-    rows.forEach(row => {
-        const text = row.textContent.toLowerCase();
-        row.style.display = text.includes(keyword) ? '' : 'none';
-    });
+    clearTimeout(itemsFilterTimer);
+    itemsFilterTimer = setTimeout(() => {
+        itemsPage = 0;
+        loadItems();
+    }, 300);
 }
 
 // 双击编辑功能
@@ -771,14 +821,19 @@ async function searchQuotas() {
             url += '&versionId=' + versionId;
         }
         const response = await fetch(url);
-        const quotas = await response.json();
+        const result = await response.json();
+        const quotas = result.data || [];
         
         if (quotas.length === 0) {
             quotaList.innerHTML = '<p>未找到匹配的企业定额</p>';
             return;
         }
         
-        quotaList.innerHTML = quotas.map(quota => {
+        // 结果按相关度排序，只显示第一页
+        const summary = result.totalElements > quotas.length
+            ? `<p style="color: #666; font-size: 12px;">共 ${result.totalElements} 条，显示最相关的 ${quotas.length} 条，可输入更多关键词缩小范围</p>`
+            : '';
+        quotaList.innerHTML = summary + quotas.map(quota => {
             const isAdded = currentItemQuotas.some(q => q.quotaId === quota.id);
             return `
             <div class="quota-item" onclick="selectQuota(${quota.id})" style="position: relative; ${isAdded ? 'opacity: 0.6; background: #e0e0e0;' : ''}">
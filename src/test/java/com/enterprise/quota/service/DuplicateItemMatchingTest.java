@@ -0,0 +1,146 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.entity.ProjectItem;
+import com.enterprise.quota.service.MatchingTestSupport.InMemoryQuotaIndexService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.enterprise.quota.service.MatchingTestSupport.item;
+import static com.enterprise.quota.service.MatchingTestSupport.matchAll;
+import static com.enterprise.quota.service.MatchingTestSupport.quota;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 重复清单分组匹配测试
+ * 名称、特征值、单位相同的清单只匹配一次，结果必须与逐条单独匹配相同；只有单位不同的清单不能合并
+ */
+class DuplicateItemMatchingTest {
+
+    private static final long SEED = 20240722L;
+
+    private static final String[] FRAGMENTS = {
+        "POE交换机", "交换机", "网络机柜", "摄像机", "半球摄像机", "硬盘录像机", "NVR", "单模光缆", "PVC线管", "配线架",
+        "UPS电源", "门禁", "读卡器", "安装", "调试", "(含支架)", "16路", "DN20"
+    };
+
+    @Test
+    void duplicatesMatchLikeIndividualItems() {
+        Random random = new Random(SEED);
+        List<EnterpriseQuota> quotas = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            quotas.add(quota(i + 1L, text(random), random.nextBoolean() ? text(random) : null));
+        }
+
+        // 每种文本重复1-4次：首尾空白不同、特征值为null或空白、工程量不同
+        List<ProjectItem> items = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < 60; i++) {
+            String name = text(random);
+            String feature = random.nextBoolean() ? text(random) : null;
+            int copies = 1 + random.nextInt(4);
+            for (int c = 0; c < copies; c++) {
+                ProjectItem item = item(id++, c % 2 == 0 ? name : " " + name + " ",
+                        feature != null ? feature : (c % 2 == 0 ? null : "  "));
+                item.setUnit(c % 2 == 0 ? "台" : "台 ");
+                item.setQuantity(BigDecimal.valueOf(1 + random.nextInt(20)));
+                items.add(item);
+            }
+        }
+        Collections.shuffle(items, random);
+
+        Set<String> keys = new HashSet<>();
+        for (ProjectItem item : items) {
+            keys.add(QuotaMatchingService.groupKey(item, null));
+        }
+        assertEquals(60, keys.size());
+
+        InMemoryQuotaIndexService quotaIndexService = new InMemoryQuotaIndexService();
+        quotaIndexService.quotas = quotas;
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            int matched = matchAll(quotaIndexService, pool, items);
+            assertTrue(matched > 0, "没有匹配到任何定额");
+
+            int expectedMatched = 0;
+            for (ProjectItem grouped : items) {
+                ProjectItem single = item(grouped.getId(), grouped.getItemName(), grouped.getFeatureValue());
+                single.setUnit(grouped.getUnit());
+                single.setQuantity(grouped.getQuantity());
+                expectedMatched += matchAll(quotaIndexService, pool, Collections.singletonList(single));
+
+                String message = "清单: " + grouped.getItemName() + " / " + grouped.getFeatureValue();
+                assertEquals(single.getMatchStatus(), grouped.getMatchStatus(), message);
+                assertEquals(single.getMatchedQuotaId(), grouped.getMatchedQuotaId(), message);
+                assertEquals(single.getMatchedUnitPrice(), grouped.getMatchedUnitPrice(), message);
+                assertEquals(single.getTotalPrice(), grouped.getTotalPrice(), message);
+                assertEquals(single.getMatchFingerprint(), grouped.getMatchFingerprint(), message);
+            }
+            assertEquals(expectedMatched, matched);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void itemsDifferingOnlyInUnitAreNotMerged() {
+        ProjectItem set = item(1L, "网络机柜", "42U");
+        ProjectItem piece = item(2L, "网络机柜", "42U");
+        piece.setUnit("套");
+        ProjectItem padded = item(3L, " 网络机柜", "42U ");
+        padded.setUnit(" 台");
+
+        assertNotEquals(QuotaMatchingService.groupKey(set, null), QuotaMatchingService.groupKey(piece, null));
+        assertEquals(QuotaMatchingService.groupKey(set, null), QuotaMatchingService.groupKey(padded, null));
+
+        // 增量匹配时上次的匹配结果不同的清单也不能合并
+        int[] slots = new int[] {0, 3};
+        ProjectItem previous = item(4L, "网络机柜", "42U");
+        previous.setMatchRevision(7L);
+        previous.setMatchStatus(1);
+        previous.setMatchedQuotaId(3L);
+        ProjectItem other = item(5L, "网络机柜", "42U");
+        other.setMatchRevision(7L);
+        other.setMatchStatus(1);
+        other.setMatchedQuotaId(4L);
+        assertNotEquals(QuotaMatchingService.groupKey(previous, slots), QuotaMatchingService.groupKey(other, slots));
+        assertNotEquals(QuotaMatchingService.groupKey(set, null), QuotaMatchingService.groupKey(previous, slots));
+
+        // 单位不同的清单各自匹配，单位和合价保持各自的值
+        InMemoryQuotaIndexService quotaIndexService = new InMemoryQuotaIndexService();
+        quotaIndexService.quotas = Arrays.asList(quota(1L, "网络机柜", "42U"), quota(2L, "机柜", null));
+        piece.setQuantity(BigDecimal.valueOf(3));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            List<ProjectItem> items = Arrays.asList(set, piece, padded);
+            assertEquals(3, matchAll(quotaIndexService, pool, items));
+            assertEquals("台", set.getUnit());
+            assertEquals("套", piece.getUnit());
+            assertEquals(Long.valueOf(1L), piece.getMatchedQuotaId());
+            assertEquals(0, BigDecimal.valueOf(30).compareTo(piece.getTotalPrice()));
+            assertEquals(0, BigDecimal.TEN.compareTo(set.getTotalPrice()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String text(Random random) {
+        int count = 1 + random.nextInt(3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return sb.toString();
+    }
+}
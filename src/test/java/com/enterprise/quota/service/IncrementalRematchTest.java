@@ -0,0 +1,202 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.entity.ProjectItem;
+import com.enterprise.quota.service.MatchingTestSupport.InMemoryQuotaIndexService;
+import com.enterprise.quota.util.ScoringModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.enterprise.quota.service.MatchingTestSupport.item;
+import static com.enterprise.quota.service.MatchingTestSupport.matchAll;
+import static com.enterprise.quota.service.MatchingTestSupport.quota;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 增量匹配的正确性测试
+ * 定额新增、修改、删除后，增量匹配（只对变化的定额和上次的最佳定额打分）的结果必须与全量匹配完全一致；
+ * 打分模型变化后之前的匹配修订号全部失效，所有清单重新全量匹配
+ */
+class IncrementalRematchTest {
+
+    private static final long SEED = 20240715L;
+
+    private static final String[] FRAGMENTS = {
+        "POE", "POE交换机", "交换机", "核心交换机", "机柜", "网络机柜", "摄像机", "半球摄像机", "硬盘录像机", "NVR",
+        "光纤", "单模光缆", "光缆", "PVC线管", "线管", "配线架", "UPS电源", "电源", "门禁", "读卡器",
+        "安装", "调试", "(含支架)", "16路", "DN20"
+    };
+
+    @Test
+    void incrementalRematchEqualsFullRematch() {
+        Random random = new Random(SEED);
+        List<EnterpriseQuota> v1 = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            v1.add(quota(i + 1L, text(random), random.nextBoolean() ? text(random) : null));
+        }
+        List<ProjectItem> items = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            items.add(item(i + 1L, text(random), random.nextBoolean() ? text(random) : null));
+        }
+
+        InMemoryQuotaIndexService quotaIndexService = new InMemoryQuotaIndexService();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            quotaIndexService.quotas = v1;
+            int matched = matchAll(quotaIndexService, pool, items);
+            assertTrue(matched > 0, "没有匹配到任何定额");
+
+            // 第二个版本：删除、修改部分上次的最佳定额，其余定额随机删除、修改，并新增定额
+            List<Long> bestIds = new ArrayList<>();
+            for (ProjectItem item : items) {
+                if (item.getMatchStatus() == 1 && !bestIds.contains(item.getMatchedQuotaId())) {
+                    bestIds.add(item.getMatchedQuotaId());
+                }
+            }
+            List<EnterpriseQuota> v2 = new ArrayList<>();
+            for (EnterpriseQuota quota : v1) {
+                int best = bestIds.indexOf(quota.getId());
+                boolean delete = (best >= 0 && best < 5) || (best < 0 && random.nextInt(10) == 0);
+                boolean modify = (best >= 5 && best < 10) || (best < 0 && random.nextInt(10) == 0);
+                if (delete) {
+                    continue;
+                }
+                EnterpriseQuota copy = quota(quota.getId(), quota.getQuotaName(), quota.getFeatureValue());
+                if (modify) {
+                    copy.setQuotaName(text(random));
+                }
+                v2.add(copy);
+            }
+            for (int i = 0; i < 40; i++) {
+                v2.add(quota(1000L + i, text(random), random.nextBoolean() ? text(random) : null));
+            }
+            quotaIndexService.quotas = v2;
+
+            // 上次的最佳定额未变化的清单只对变化的定额打分，最佳定额被删除、修改的清单全量匹配
+            QuotaMatchingService.RematchContext rematch = rematchContext(quotaIndexService, v2);
+            int incremental = 0;
+            int full = 0;
+            for (ProjectItem item : items) {
+                int[] slots = rematch.candidateSlots(item, item.getMatchFingerprint());
+                if (slots == null) {
+                    full++;
+                } else if (slots != QuotaMatchingService.RematchContext.UNCHANGED) {
+                    incremental++;
+                }
+            }
+            assertTrue(incremental > 0, "没有清单使用增量匹配");
+            assertTrue(full > 0, "最佳定额被删除或修改的清单应全量匹配");
+
+            matchAll(quotaIndexService, pool, items);
+            List<ProjectItem> fresh = copies(items);
+            matchAll(quotaIndexService, pool, fresh);
+            assertSameResults(fresh, items);
+
+            // 定额和模型都未变化时全部跳过，结果保持不变
+            rematch = rematchContext(quotaIndexService, v2);
+            for (ProjectItem item : items) {
+                assertSame(QuotaMatchingService.RematchContext.UNCHANGED,
+                        rematch.candidateSlots(item, item.getMatchFingerprint()));
+            }
+            matchAll(quotaIndexService, pool, items);
+            assertSameResults(fresh, items);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void modelVersionChangeForcesFullRematch() {
+        Random random = new Random(SEED + 1);
+        List<EnterpriseQuota> quotas = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            quotas.add(quota(i + 1L, text(random), random.nextBoolean() ? text(random) : null));
+        }
+        List<ProjectItem> items = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            items.add(item(i + 1L, text(random), random.nextBoolean() ? text(random) : null));
+        }
+
+        InMemoryQuotaIndexService quotaIndexService = new InMemoryQuotaIndexService();
+        quotaIndexService.quotas = quotas;
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ScoringModel previous = ScoringModel.current();
+        try {
+            matchAll(quotaIndexService, pool, items);
+            List<Long> before = new ArrayList<>();
+            for (ProjectItem item : items) {
+                before.add(item.getMatchedQuotaId());
+            }
+
+            ScoringModel.publish(new ScoringModel.Builder()
+                    .weight("交换机", 3.0).weight("安装", 0.2).weight("调试", 0.2).weight("摄像机", 2.5)
+                    .build());
+
+            // 定额未变化，但模型版本变化后之前的匹配修订号全部失效
+            QuotaMatchingService.RematchContext rematch = rematchContext(quotaIndexService, quotas);
+            for (ProjectItem item : items) {
+                assertNull(rematch.candidateSlots(item, item.getMatchFingerprint()),
+                        () -> "清单: " + item.getItemName());
+            }
+
+            matchAll(quotaIndexService, pool, items);
+            List<ProjectItem> fresh = copies(items);
+            matchAll(quotaIndexService, pool, fresh);
+            assertSameResults(fresh, items);
+
+            int changed = 0;
+            for (int i = 0; i < items.size(); i++) {
+                if (!Objects.equals(before.get(i), items.get(i).getMatchedQuotaId())) {
+                    changed++;
+                }
+            }
+            assertTrue(changed > 0, "学习到的权重没有改变任何匹配结果");
+        } finally {
+            ScoringModel.publish(previous);
+            pool.shutdownNow();
+        }
+    }
+
+    // 与 batchMatchQuotas 相同的增量匹配上下文（启用倒排索引、不强制全量匹配）
+    private static QuotaMatchingService.RematchContext rematchContext(InMemoryQuotaIndexService quotaIndexService,
+                                                                      List<EnterpriseQuota> quotas) {
+        return new QuotaMatchingService.RematchContext(quotaIndexService.getIndex(null, quotas), false, true,
+                quotaIndexService.getRecentSnapshots());
+    }
+
+    private static void assertSameResults(List<ProjectItem> expected, List<ProjectItem> actual) {
+        for (int i = 0; i < expected.size(); i++) {
+            ProjectItem item = actual.get(i);
+            assertEquals(expected.get(i).getMatchStatus(), item.getMatchStatus(),
+                    () -> "清单: " + item.getItemName());
+            assertEquals(expected.get(i).getMatchedQuotaId(), item.getMatchedQuotaId(),
+                    () -> "清单: " + item.getItemName() + " / " + item.getFeatureValue());
+        }
+    }
+
+    // 未匹配过的清单副本（全量匹配）
+    private static List<ProjectItem> copies(List<ProjectItem> items) {
+        List<ProjectItem> copies = new ArrayList<>(items.size());
+        for (ProjectItem item : items) {
+            copies.add(item(item.getId(), item.getItemName(), item.getFeatureValue()));
+        }
+        return copies;
+    }
+
+    private static String text(Random random) {
+        int count = 1 + random.nextInt(3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return sb.toString();
+    }
+}
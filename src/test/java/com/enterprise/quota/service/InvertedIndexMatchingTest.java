@@ -0,0 +1,108 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.entity.ProjectItem;
+import com.enterprise.quota.util.CompiledQuotaIndex;
+import com.enterprise.quota.util.QuotaKeywordIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 倒排索引筛选候选定额的正确性测试
+ * 使用倒排索引选出的最佳定额必须与全量扫描的结果完全一致
+ */
+class InvertedIndexMatchingTest {
+
+    private static final long SEED = 20240601L;
+
+    // 刻意包含互相包含的词、大小写不同的词、括号和单字，覆盖各条计分规则
+    private static final String[] FRAGMENTS = {
+        "POE", "POE交换机", "Poe", "交换机", "交换", "核心交换机", "机柜", "网络机柜", "网络", "摄像机",
+        "半球摄像机", "硬盘", "录像机", "硬盘录像机", "NVR", "nvr", "光纤", "单模光缆", "光缆", "PVC",
+        "PVC线管", "线管", "配线架", "配线", "UPS", "UPS电源", "电源", "门禁", "读卡器", "安装",
+        "调试", "(含支架)", "（8T）", "16路", "DN20", "机", "管", "a", " ", "，", "、"
+    };
+
+    private final QuotaMatchingService matchingService = new QuotaMatchingService();
+
+    @Test
+    void containmentOnlyQuotaIsCandidate() {
+        List<EnterpriseQuota> quotas = Arrays.asList(quota(1L, "网络机柜", null), quota(2L, "POE交换机", null));
+        CompiledQuotaIndex quotaIndex = CompiledQuotaIndex.compile(null, quotas);
+        ProjectItem item = item(1L, "POE", null);
+        QuotaMatchingService.ItemText itemText = new QuotaMatchingService.ItemText(item);
+
+        // 清单与定额没有共同的关键词，只有部分包含关系（POE / POE交换机）
+        int[] candidates = quotaIndex.getKeywordIndex()
+                .candidates(itemText.keywords, itemText.name, itemText.feature);
+        assertTrue(Arrays.binarySearch(candidates, 1) >= 0, () -> "候选定额: " + Arrays.toString(candidates));
+
+        EnterpriseQuota fullScan = matchingService.findBestMatchOptimized(item, itemText, quotas, quotaIndex, null);
+        assertNotNull(fullScan);
+        assertEquals(fullScan, matchingService.findBestMatchOptimized(item, itemText, quotas, quotaIndex,
+                quotaIndex.getKeywordIndex()));
+    }
+
+    @Test
+    void indexedMatchEqualsFullScan() {
+        Random random = new Random(SEED);
+        List<EnterpriseQuota> quotas = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            quotas.add(quota(i + 1L, text(random), random.nextBoolean() ? text(random) : null));
+        }
+        CompiledQuotaIndex quotaIndex = CompiledQuotaIndex.compile(null, quotas);
+        QuotaKeywordIndex keywordIndex = quotaIndex.getKeywordIndex();
+
+        int matched = 0;
+        for (int i = 0; i < 1000; i++) {
+            ProjectItem item = item(i + 1L, text(random), random.nextBoolean() ? text(random) : null);
+            QuotaMatchingService.ItemText itemText = new QuotaMatchingService.ItemText(item);
+            EnterpriseQuota fullScan = matchingService.findBestMatchOptimized(item, itemText, quotas, quotaIndex, null);
+            EnterpriseQuota indexed = matchingService.findBestMatchOptimized(item, itemText, quotas, quotaIndex,
+                    keywordIndex);
+            assertEquals(idOf(fullScan), idOf(indexed),
+                    () -> "清单: " + item.getItemName() + " / " + item.getFeatureValue());
+            if (fullScan != null) {
+                matched++;
+            }
+        }
+        assertTrue(matched > 0, "没有匹配到任何定额");
+    }
+
+    private static String text(Random random) {
+        int count = 1 + random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static Long idOf(EnterpriseQuota quota) {
+        return quota != null ? quota.getId() : null;
+    }
+
+    private static EnterpriseQuota quota(Long id, String name, String feature) {
+        EnterpriseQuota quota = new EnterpriseQuota();
+        quota.setId(id);
+        quota.setQuotaName(name);
+        quota.setFeatureValue(feature);
+        return quota;
+    }
+
+    private static ProjectItem item(Long id, String name, String feature) {
+        ProjectItem item = new ProjectItem();
+        item.setId(id);
+        item.setItemName(name);
+        item.setFeatureValue(feature);
+        return item;
+    }
+}
@@ -0,0 +1,76 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.MatchingRule;
+import com.enterprise.quota.util.KeywordExtractor;
+import com.enterprise.quota.util.SynonymRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 学习到的同义词规则合并到同义词表的测试
+ * 同义词发现生成的规则（源词与目标词相同，规则值为清单名称）不能使同一清单名称中的不相关关键词成为同义词
+ */
+class LearnedSynonymsTest {
+
+    @Test
+    void keywordsSharingItemNameStaySeparate() throws IOException {
+        List<MatchingRule> rules = Arrays.asList(
+                discoveredRule("摄像机", "[\"网络摄像机安装\",\"半球摄像机安装\"]"),
+                discoveredRule("安装", "[\"网络摄像机安装\",\"交换机安装\"]"));
+
+        assertTrue(MatchingLearningService.synonymPairsOf(rules).isEmpty());
+
+        SynonymRegistry registry = registryWith(MatchingLearningService.synonymPairsOf(rules));
+        assertNotEquals(registry.groupOf("摄像机"), registry.groupOf("安装"));
+        assertEquals(-1, registry.groupOf("安装"));
+        assertEquals(-1, registry.groupOf("网络摄像机安装"));
+
+        SynonymRegistry previous = KeywordExtractor.getSynonymRegistry();
+        try {
+            KeywordExtractor.configureSynonyms(registry);
+            assertEquals(0.0, KeywordExtractor.calculateSimilarity(
+                    Arrays.asList("摄像机"), Arrays.asList("安装")));
+        } finally {
+            KeywordExtractor.configureSynonyms(previous);
+        }
+    }
+
+    @Test
+    void learnedPairsJoinSynonymGroups() throws IOException {
+        MatchingRule pair = new MatchingRule();
+        pair.setRuleType("synonym");
+        pair.setSourceText("枪机");
+        pair.setTargetText(" 摄像机 ");
+        pair.setConfidence(0.9);
+
+        List<List<String>> pairs = MatchingLearningService.synonymPairsOf(
+                Arrays.asList(pair, discoveredRule("安装", "[\"网络摄像机安装\",\"交换机安装\"]")));
+        assertEquals(Arrays.asList(Arrays.asList("枪机", "摄像机")), pairs);
+
+        SynonymRegistry registry = registryWith(pairs);
+        assertEquals(registry.groupOf("摄像头"), registry.groupOf("枪机"));
+        assertEquals(-1, registry.groupOf("安装"));
+    }
+
+    // 与 discoverSynonyms 保存的规则相同：源词、目标词都是关键词本身，规则值为出现该关键词的清单名称
+    private static MatchingRule discoveredRule(String keyword, String itemNames) {
+        MatchingRule rule = new MatchingRule();
+        rule.setRuleType("synonym");
+        rule.setSourceText(keyword);
+        rule.setTargetText(keyword);
+        rule.setRuleValue(itemNames);
+        rule.setConfidence(1.0);
+        return rule;
+    }
+
+    private static SynonymRegistry registryWith(List<List<String>> pairs) throws IOException {
+        return ScoringModelService.buildSynonyms(null, pairs);
+    }
+}
@@ -0,0 +1,247 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.repository.MatchingLearningRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 关键词权重增量学习的进度测试
+ * 在较早开始、仍未提交的事务之后提交的学习记录不能被跳过；重复执行学习不能重复累加 keyword_weight 的计数
+ */
+class LearningCheckpointTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private static final long COMMIT_LAG_SECONDS = 300;
+
+    private static final long NOW = Timestamp.valueOf("2024-07-01 10:00:00").getTime();
+
+    @Test
+    void recordsCommittedAfterOpenTransactionAreNotSkipped() {
+        LearningDatabase db = new LearningDatabase();
+        // 两页已提交的旧记录
+        for (int i = 0; i < 600; i++) {
+            db.addRecord(NOW - 120 * MINUTE, true);
+        }
+        // 较早开始的事务写入的记录尚未提交，其后的记录已经提交
+        db.oldestOpenTransaction = new Timestamp(NOW - 10 * MINUTE);
+        LearningRecord pending = db.addRecord(NOW - 10 * MINUTE, false);
+        for (int i = 0; i < 9; i++) {
+            db.addRecord(NOW - 9 * MINUTE, true);
+        }
+        db.now = new Timestamp(NOW);
+        MatchingLearningService learningService = learningService(db);
+
+        learningService.analyzeAndUpdateWeights();
+        assertEquals(600L, db.checkpoint.longValue());
+        assertCounted(db, 600);
+
+        // 事务仍未提交时再次学习：进度和计数都不变
+        learningService.analyzeAndUpdateWeights();
+        assertEquals(600L, db.checkpoint.longValue());
+        assertCounted(db, 600);
+
+        // 事务提交后，未提交期间之后的记录和该事务的记录都计入
+        pending.committed = true;
+        db.oldestOpenTransaction = null;
+        db.now = new Timestamp(NOW + MINUTE);
+        learningService.analyzeAndUpdateWeights();
+        assertEquals(610L, db.checkpoint.longValue());
+        assertCounted(db, 610);
+    }
+
+    @Test
+    void rerunDoesNotDoubleCountWeights() {
+        LearningDatabase db = new LearningDatabase();
+        for (int i = 0; i < 1200; i++) {
+            db.addRecord(NOW - 60 * MINUTE, true);
+        }
+        // 不到 commit-lag-seconds 的新记录留到下次学习
+        for (int i = 0; i < 5; i++) {
+            db.addRecord(NOW - MINUTE, true);
+        }
+        db.now = new Timestamp(NOW);
+        MatchingLearningService learningService = learningService(db);
+
+        learningService.analyzeAndUpdateWeights();
+        assertEquals(1200L, db.checkpoint.longValue());
+        assertCounted(db, 1200);
+        learningService.analyzeAndUpdateWeights();
+        assertCounted(db, 1200);
+
+        db.now = new Timestamp(NOW + 10 * MINUTE);
+        learningService.analyzeAndUpdateWeights();
+        learningService.analyzeAndUpdateWeights();
+        assertEquals(1205L, db.checkpoint.longValue());
+        assertCounted(db, 1205);
+    }
+
+    // keyword_weight 中的计数恰好等于前 count 条记录各计入一次
+    private static void assertCounted(LearningDatabase db, int count) {
+        Map<String, double[]> expected = new TreeMap<>();
+        for (LearningRecord record : db.records.subList(0, count)) {
+            double[] sums = expected.computeIfAbsent(record.keyword, k -> new double[2]);
+            sums[0] += record.learningWeight;
+            sums[1] += 1;
+        }
+        assertEquals(expected.keySet(), db.weights.keySet());
+        for (Map.Entry<String, double[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), db.weights.get(entry.getKey()), 1e-9, entry.getKey());
+        }
+    }
+
+    private static MatchingLearningService learningService(LearningDatabase db) {
+        MatchingLearningRecordRepository recordRepository = mock(MatchingLearningRecordRepository.class);
+        when(recordRepository.count()).thenAnswer(invocation -> (long) db.visibleRecords(0L, Long.MAX_VALUE).size());
+        when(recordRepository.findIdsAndCreateTimesAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(1);
+            List<Object[]> rows = new ArrayList<>();
+            for (LearningRecord record : db.visibleRecords(invocation.getArgument(0), Long.MAX_VALUE)) {
+                if (rows.size() == page.getPageSize()) {
+                    break;
+                }
+                rows.add(new Object[] {record.id, record.createTime});
+            }
+            return rows;
+        });
+
+        LearningKeywordStore keywordStore = mock(LearningKeywordStore.class);
+        when(keywordStore.commonKeywordStats(anyLong(), anyLong())).thenAnswer(invocation -> {
+            Map<String, double[]> stats = new TreeMap<>();
+            for (LearningRecord record : db.visibleRecords(invocation.getArgument(0), invocation.getArgument(1))) {
+                double[] sums = stats.computeIfAbsent(record.keyword, k -> new double[2]);
+                sums[0] += record.learningWeight;
+                sums[1] += 1;
+            }
+            return stats;
+        });
+
+        MatchingLearningService learningService = new MatchingLearningService();
+        ReflectionTestUtils.setField(learningService, "learningRecordRepository", recordRepository);
+        ReflectionTestUtils.setField(learningService, "keywordStore", keywordStore);
+        ReflectionTestUtils.setField(learningService, "jdbcTemplate", db);
+        ReflectionTestUtils.setField(learningService, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(learningService, "commitLagSeconds", COMMIT_LAG_SECONDS);
+        return learningService;
+    }
+
+    /**
+     * 一条学习记录：自增ID、创建时间、是否已提交（未提交的记录对其他事务不可见），以及一个共同关键词
+     */
+    private static class LearningRecord {
+        final long id;
+        final Timestamp createTime;
+        final String keyword;
+        final double learningWeight;
+        boolean committed;
+
+        LearningRecord(long id, Timestamp createTime, boolean committed) {
+            this.id = id;
+            this.createTime = createTime;
+            this.committed = committed;
+            this.keyword = "关键词" + (id % 7);
+            this.learningWeight = id % 3 == 0 ? 1.0 : 0.5;
+        }
+    }
+
+    /**
+     * 内存中的学习记录、learning_checkpoint 和 keyword_weight，按 SQL 语句模拟 MySQL 的执行结果
+     */
+    private static class LearningDatabase extends JdbcTemplate {
+        final List<LearningRecord> records = new ArrayList<>();
+        // keyword_weight：关键词 -> [match_count, total_count]
+        final Map<String, double[]> weights = new TreeMap<>();
+        Long checkpoint;
+        Timestamp now;
+        Timestamp oldestOpenTransaction;
+
+        LearningRecord addRecord(long createTime, boolean committed) {
+            LearningRecord record = new LearningRecord(records.size() + 1L, new Timestamp(createTime), committed);
+            records.add(record);
+            return record;
+        }
+
+        // 已提交、ID在 (afterId, toId] 范围内的记录
+        List<LearningRecord> visibleRecords(long afterId, long toId) {
+            List<LearningRecord> visible = new ArrayList<>();
+            for (LearningRecord record : records) {
+                if (record.committed && record.id > afterId && record.id <= toId) {
+                    visible.add(record);
+                }
+            }
+            return visible;
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            if (sql.equals("SELECT NOW(6)")) {
+                return requiredType.cast(now);
+            }
+            if (sql.contains("information_schema.innodb_trx")) {
+                return requiredType.cast(oldestOpenTransaction);
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            if (args.length == 0) {
+                return queryForObject(sql, requiredType);
+            }
+            if (sql.startsWith("SELECT last_record_id FROM learning_checkpoint")) {
+                return requiredType.cast(checkpoint);
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT IGNORE INTO learning_checkpoint")) {
+                if (checkpoint == null) {
+                    checkpoint = 0L;
+                    return 1;
+                }
+                return 0;
+            }
+            if (sql.startsWith("UPDATE learning_checkpoint")) {
+                checkpoint = (Long) args[0];
+                return 1;
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            if (!sql.startsWith("INSERT INTO keyword_weight")) {
+                throw new UnsupportedOperationException(sql);
+            }
+            for (T arg : batchArgs) {
+                Map.Entry<String, double[]> entry = (Map.Entry<String, double[]>) arg;
+                double[] counts = weights.computeIfAbsent(entry.getKey(), k -> new double[2]);
+                counts[0] += entry.getValue()[0];
+                counts[1] += entry.getValue()[1];
+            }
+            return new int[][] {new int[batchArgs.size()]};
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.enterprise.quota.service;
+
+import com.enterprise.quota.entity.EnterpriseQuota;
+import com.enterprise.quota.entity.ProjectItem;
+import com.enterprise.quota.repository.ProjectItemRepository;
+import com.enterprise.quota.util.CompiledQuotaIndex;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 匹配流程测试的公共部分：内存中的定额数据，按 batchMatchQuotas 的流程匹配清单
+ */
+final class MatchingTestSupport {
+
+    private MatchingTestSupport() {
+    }
+
+    /**
+     * 按 batchMatchQuotas 的流程匹配全部清单（清单由仓库的 findAll 返回，匹配结果直接写回清单）
+     * @return 匹配成功的清单数
+     */
+    static int matchAll(InMemoryQuotaIndexService quotaIndexService, ForkJoinPool pool, List<ProjectItem> items) {
+        ProjectItemRepository itemRepository = mock(ProjectItemRepository.class);
+        when(itemRepository.findAll()).thenReturn(items);
+
+        QuotaMatchingService matchingService = new QuotaMatchingService();
+        ReflectionTestUtils.setField(matchingService, "itemRepository", itemRepository);
+        ReflectionTestUtils.setField(matchingService, "quotaIndexService", quotaIndexService);
+        ReflectionTestUtils.setField(matchingService, "learningEventSink", mock(LearningEventSink.class));
+        ReflectionTestUtils.setField(matchingService, "matchingPool", pool);
+        ReflectionTestUtils.setField(matchingService, "matchingBatchSize", 200);
+        ReflectionTestUtils.setField(matchingService, "saveBatchSize", 100);
+        ReflectionTestUtils.setField(matchingService, "invertedIndexEnabled", true);
+        return matchingService.batchMatchQuotas(null);
+    }
+
+    static EnterpriseQuota quota(Long id, String name, String feature) {
+        EnterpriseQuota quota = new EnterpriseQuota();
+        quota.setId(id);
+        quota.setQuotaCode("Q" + id);
+        quota.setQuotaName(name);
+        quota.setFeatureValue(feature);
+        quota.setUnit("台");
+        quota.setUnitPrice(BigDecimal.TEN);
+        return quota;
+    }
+
+    static ProjectItem item(Long id, String name, String feature) {
+        ProjectItem item = new ProjectItem();
+        item.setId(id);
+        item.setItemName(name);
+        item.setFeatureValue(feature);
+        item.setUnit("台");
+        item.setQuantity(BigDecimal.ONE);
+        return item;
+    }
+
+    /**
+     * 内存中的定额数据：每个定额列表编译一次索引，并像 QuotaIndexService 一样记录用过的索引快照
+     */
+    static class InMemoryQuotaIndexService extends QuotaIndexService {
+        List<EnterpriseQuota> quotas;
+        private final Map<List<EnterpriseQuota>, CompiledQuotaIndex> indexes = new IdentityHashMap<>();
+        private final Map<Long, CompiledQuotaIndex.Snapshot> snapshots = new LinkedHashMap<>();
+
+        @Override
+        public List<EnterpriseQuota> loadQuotas(Long versionId) {
+            return quotas;
+        }
+
+        @Override
+        public CompiledQuotaIndex getIndex(Long versionId, List<EnterpriseQuota> quotas) {
+            CompiledQuotaIndex index = indexes.computeIfAbsent(quotas, q -> CompiledQuotaIndex.compile(versionId, q));
+            snapshots.computeIfAbsent(index.getRevision(), revision -> index.snapshot());
+            return index;
+        }
+
+        @Override
+        public List<CompiledQuotaIndex.Snapshot> getRecentSnapshots() {
+            return new ArrayList<>(snapshots.values());
+        }
+    }
+}
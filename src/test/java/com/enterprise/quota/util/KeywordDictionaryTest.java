@@ -0,0 +1,83 @@
+package com.enterprise.quota.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 关键词字典相似度测试
+ * 关键词向量的相似度必须与 KeywordExtractor.calculateSimilarity 一致（结果不超过1.0）
+ */
+class KeywordDictionaryTest {
+
+    private static final long SEED = 20240601L;
+
+    // 刻意包含同义词、大小写不同的词、互相包含的词和核心概念词
+    private static final String[] VOCABULARY = {
+        "摄像机", "摄像头", "监控摄像头", "监控摄像机", "半球摄像机", "NVR", "nvr", "Nvr", "录像机", "硬盘录像机",
+        "网络硬盘录像机", "POE", "Poe", "POE交换机", "交换机", "交换", "机柜", "网络机柜", "网络", "设备",
+        "系统", "安装", "安装调试", "调试", "光纤", "光缆", "单模光缆", "PVC", "PVC线管", "线管",
+        "机", "器", "UPS", "UPS电源", "电源", "门禁", "读卡器", "配线架", "配线", "六类网线"
+    };
+
+    @Test
+    void similarityMatchesCalculateSimilarity() {
+        Random random = new Random(SEED);
+        for (int round = 0; round < 200; round++) {
+            // 字典只包含部分词，清单关键词中有字典中没有的词
+            List<String> quotaTerms = sample(random, 1 + random.nextInt(VOCABULARY.length));
+            KeywordDictionary dictionary = KeywordDictionary.of(quotaTerms.toArray(new String[0]));
+            for (int i = 0; i < 50; i++) {
+                List<String> quotaKeywords = keywords(random, quotaTerms);
+                List<String> itemKeywords = keywords(random, Arrays.asList(VOCABULARY));
+
+                double expected = Math.min(1.0, KeywordExtractor.calculateSimilarity(itemKeywords, quotaKeywords));
+                double actual = dictionary.similarity(dictionary.queryOf(itemKeywords),
+                        dictionary.vectorOf(quotaKeywords));
+                assertEquals(expected, actual, 1e-12, () -> itemKeywords + " / " + quotaKeywords);
+            }
+        }
+    }
+
+    @Test
+    void queryDoesNotRegisterItemKeywords() {
+        KeywordDictionary dictionary = KeywordDictionary.of(new String[] {"摄像机", "NVR", "交换机"});
+        KeywordDictionary.KeywordVector query = dictionary.queryOf(Arrays.asList("摄像头", "nvr", "POE交换机", "摄像机"));
+
+        assertEquals(3, dictionary.size());
+        assertEquals(-1, dictionary.idOf("摄像头"));
+        assertEquals(4, query.size());
+        // 字典中没有的词仍按同义词、忽略大小写和部分包含规则计分
+        assertEquals(Math.min(1.0, KeywordExtractor.calculateSimilarity(
+                Arrays.asList("摄像头", "nvr", "POE交换机"), Arrays.asList("摄像机", "NVR", "交换机"))),
+                dictionary.similarity(dictionary.queryOf(Arrays.asList("摄像头", "nvr", "POE交换机")),
+                        dictionary.vectorOf(Arrays.asList("摄像机", "NVR", "交换机"))), 1e-12);
+        assertTrue(dictionary.similarity(query, dictionary.vectorOf(Arrays.asList("交换机"))) > 0);
+    }
+
+    private static List<String> sample(Random random, int count) {
+        Set<String> terms = new LinkedHashSet<>();
+        while (terms.size() < count) {
+            terms.add(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    // 可能含重复词
+    private static List<String> keywords(Random random, List<String> terms) {
+        int count = 1 + random.nextInt(6);
+        List<String> keywords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keywords.add(terms.get(random.nextInt(terms.size())));
+        }
+        return keywords;
+    }
+}
@@ -0,0 +1,125 @@
+package com.enterprise.quota.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * 文本清理与关键词提取的基准测试
+ * keyword-extractor-golden.txt 由改为字符扫描之前的正则实现生成，字符扫描实现的输出必须与之完全一致
+ */
+class KeywordExtractorGoldenTest {
+
+    private static final String CORPUS = "keyword-extractor-golden.txt";
+
+    @Test
+    void cleanTextMatchesRegexImplementation() throws IOException {
+        for (GoldenCase c : loadCorpus()) {
+            assertEquals(c.cleaned, KeywordExtractor.cleanText(c.input.trim()), () -> "cleanText: " + c.line);
+        }
+    }
+
+    @Test
+    void stripParenthesesMatchesRegexImplementation() throws IOException {
+        for (GoldenCase c : loadCorpus()) {
+            assertEquals(c.stripped, KeywordExtractor.stripParentheses(c.input), () -> "stripParentheses: " + c.line);
+        }
+    }
+
+    @Test
+    void extractKeywordsMatchesRegexImplementation() throws IOException {
+        for (GoldenCase c : loadCorpus()) {
+            assertEquals(c.keywords, KeywordExtractor.extractKeywords(c.input), () -> "extractKeywords: " + c.line);
+        }
+    }
+
+    private static List<GoldenCase> loadCorpus() throws IOException {
+        List<GoldenCase> cases = new ArrayList<>();
+        try (InputStream in = KeywordExtractorGoldenTest.class.getClassLoader().getResourceAsStream(CORPUS)) {
+            assertNotNull(in, "缺少基准文件 " + CORPUS);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\t", -1);
+                assertEquals(4, columns.length, () -> "列数错误: " + columns.length);
+                cases.add(new GoldenCase(line, unescape(columns[0]), unescape(columns[1]), unescape(columns[2]),
+                        keywordsOf(columns[3])));
+            }
+        }
+        assertFalse(cases.isEmpty(), "基准文件为空");
+        return cases;
+    }
+
+    private static List<String> keywordsOf(String column) {
+        if (column.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> keywords = new ArrayList<>();
+        for (String keyword : Arrays.asList(column.split("\\|", -1))) {
+            keywords.add(unescape(keyword));
+        }
+        return keywords;
+    }
+
+    // 转义：\\ \t \n \r \\uXXXX
+    private static String unescape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char next = text.charAt(++i);
+            switch (next) {
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default:
+                    sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class GoldenCase {
+        final String line;
+        final String input;
+        final String cleaned;
+        final String stripped;
+        final List<String> keywords;
+
+        GoldenCase(String line, String input, String cleaned, String stripped, List<String> keywords) {
+            this.line = line;
+            this.input = input;
+            this.cleaned = cleaned;
+            this.stripped = stripped;
+            this.keywords = keywords;
+        }
+    }
+}
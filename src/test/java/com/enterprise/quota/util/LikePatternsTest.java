@@ -0,0 +1,29 @@
+package com.enterprise.quota.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * LIKE 关键词转义测试
+ */
+class LikePatternsTest {
+
+    @Test
+    void escapesWildcardsAndEscapeCharacter() {
+        assertEquals("100\\%", LikePatterns.escape("100%"));
+        assertEquals("DN\\_20", LikePatterns.escape("DN_20"));
+        assertEquals("C:\\\\temp\\\\\\%", LikePatterns.escape("C:\\temp\\%"));
+        assertEquals("\\%\\_\\\\", LikePatterns.escape("%_\\"));
+    }
+
+    @Test
+    void keepsPlainKeywords() {
+        String keyword = "网络摄像机 DN20";
+        assertSame(keyword, LikePatterns.escape(keyword));
+        assertEquals("", LikePatterns.escape(""));
+        assertNull(LikePatterns.escape(null));
+    }
+}
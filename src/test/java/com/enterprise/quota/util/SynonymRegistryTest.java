@@ -0,0 +1,125 @@
+package com.enterprise.quota.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 同义词表测试
+ * 内置同义词文件的判断结果必须与原来写死在 KeywordExtractor 中的同义词表一致
+ */
+class SynonymRegistryTest {
+
+    // 原 KeywordExtractor.SYNONYMS 中的同义词组
+    private static final List<List<String>> LEGACY_GROUPS = Arrays.asList(
+            Arrays.asList("NVR", "网络硬盘录像机", "硬盘录像机", "录像机"),
+            Arrays.asList("摄像机", "摄像头", "监控摄像头", "监控摄像机"));
+
+    @Test
+    void builtinGroupsMatchLegacyTable() {
+        SynonymRegistry registry = SynonymRegistry.fromClasspath(KeywordExtractor.DEFAULT_SYNONYMS_RESOURCE);
+        assertEquals(LEGACY_GROUPS.size(), registry.size());
+
+        List<String> terms = new ArrayList<>();
+        for (List<String> group : LEGACY_GROUPS) {
+            terms.addAll(group);
+        }
+        terms.addAll(Arrays.asList("交换机", "安装", "nvr", "摄像"));
+        for (String a : terms) {
+            for (String b : terms) {
+                boolean same = registry.groupOf(a) >= 0 && registry.groupOf(a) == registry.groupOf(b);
+                assertEquals(legacySynonyms(a, b), same, () -> a + " / " + b);
+            }
+        }
+    }
+
+    @Test
+    void learnedPairsJoinExistingGroups() {
+        SynonymRegistry.Builder builder = builtinBuilder();
+        builder.add(Arrays.asList("枪机", "监控摄像机"));
+        builder.add(Arrays.asList("IPC", "枪机"));
+        SynonymRegistry registry = builder.build();
+
+        int cameras = registry.groupOf("摄像机");
+        assertTrue(cameras >= 0);
+        assertEquals(cameras, registry.groupOf("枪机"));
+        assertEquals(cameras, registry.groupOf("IPC"));
+        assertNotEquals(cameras, registry.groupOf("NVR"));
+        assertEquals(LEGACY_GROUPS.size(), registry.size());
+    }
+
+    @Test
+    void unrelatedTermsAreNotMerged() {
+        SynonymRegistry.Builder builder = builtinBuilder();
+        builder.add(Arrays.asList("安装", "安装调试"));
+        builder.add(Arrays.asList("交换机", "网络交换机"));
+        builder.add(Collections.singletonList("网络摄像机安装"));
+        SynonymRegistry registry = builder.build();
+
+        assertEquals(LEGACY_GROUPS.size() + 2, registry.size());
+        assertNotEquals(registry.groupOf("安装"), registry.groupOf("交换机"));
+        assertNotEquals(registry.groupOf("安装"), registry.groupOf("摄像机"));
+        assertNotEquals(registry.groupOf("交换机"), registry.groupOf("摄像机"));
+        // 单个词不构成同义词组
+        assertEquals(-1, registry.groupOf("网络摄像机安装"));
+        assertTrue(registry.synonymsOf("网络摄像机安装").isEmpty());
+    }
+
+    @Test
+    void groupIdsDoNotDependOnInsertionOrder() {
+        SynonymRegistry forward = new SynonymRegistry.Builder()
+                .add(Arrays.asList("甲", "乙"))
+                .add(Arrays.asList("丙", "丁"))
+                .build();
+        SynonymRegistry backward = new SynonymRegistry.Builder()
+                .add(Arrays.asList("丁", "丙"))
+                .add(Arrays.asList("乙", "甲"))
+                .build();
+        assertEquals(forward.getGroups(), backward.getGroups());
+        for (String term : Arrays.asList("甲", "乙", "丙", "丁")) {
+            assertEquals(forward.groupOf(term), backward.groupOf(term));
+        }
+    }
+
+    @Test
+    void readsCommaSeparatedLines() throws IOException {
+        String text = "# 注释\n\n 光纤 , 光缆，光纤跳线\n单模,\n";
+        SynonymRegistry registry = SynonymRegistry.read(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), new SynonymRegistry.Builder()).build();
+
+        assertEquals(1, registry.size());
+        assertEquals(registry.groupOf("光纤"), registry.groupOf("光纤跳线"));
+        assertEquals(registry.groupOf("光纤"), registry.groupOf("光缆"));
+        assertEquals(-1, registry.groupOf("单模"));
+        assertEquals(-1, registry.groupOf("# 注释"));
+    }
+
+    // 原 KeywordExtractor.areSynonyms 的同义词组判断（不含忽略大小写相同）
+    private static boolean legacySynonyms(String a, String b) {
+        for (List<String> group : LEGACY_GROUPS) {
+            if (group.contains(a) && group.contains(b)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SynonymRegistry.Builder builtinBuilder() {
+        SynonymRegistry.Builder builder = new SynonymRegistry.Builder();
+        for (Set<String> group : SynonymRegistry.fromClasspath(KeywordExtractor.DEFAULT_SYNONYMS_RESOURCE).getGroups()) {
+            builder.add(group);
+        }
+        return builder;
+    }
+}
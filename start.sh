@@ -54,7 +54,7 @@ SPRING_OPTS="$SPRING_OPTS --server.port=8080"
 
 # 数据库配置（可通过环境变量覆盖）
 if [ -n "$DB_HOST" ]; then
-    SPRING_OPTS="$SPRING_OPTS --spring.datasource.url=jdbc:mysql://${DB_HOST}:${DB_PORT:-3306}/${DB_NAME:-quota_db}?useUnicode=true&characterEncoding=utf8&useSSL=true&serverTimezone=Asia/Shanghai"
+    SPRING_OPTS="$SPRING_OPTS --spring.datasource.url=jdbc:mysql://${DB_HOST}:${DB_PORT:-3306}/${DB_NAME:-quota_db}?useUnicode=true&characterEncoding=utf8&useSSL=true&serverTimezone=Asia/Shanghai&rewriteBatchedStatements=true"
 fi
 if [ -n "$DB_USERNAME" ]; then
     SPRING_OPTS="$SPRING_OPTS --spring.datasource.username=${DB_USERNAME}"